@@ -0,0 +1,602 @@
+package com.indigobyte.javautil;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.DuplicateFormatFlagsException;
+import java.util.FormatFlagsConversionMismatchException;
+import java.util.IllegalFormatFlagsException;
+import java.util.IllegalFormatPrecisionException;
+import java.util.IllegalFormatWidthException;
+import java.util.List;
+import java.util.MissingFormatWidthException;
+import java.util.UnknownFormatConversionException;
+import java.util.UnknownFormatFlagsException;
+
+/**
+ * Parse-only counterpart of {@link Formatter#parse(String)}.
+ * <p>
+ * Accepts and rejects exactly the same format strings as {@link Formatter}, and produces specifiers that compare
+ * equal whenever the corresponding {@link Formatter.FormatSpecifier}s do, but it has no dependencies on the printing
+ * engine, so using it does not load {@link Formatter}, {@link FormattedFloatingDecimal} or {@link FDBigInteger}.
+ */
+public final class FormatSpecifierParser {
+    private static final int LEFT_JUSTIFY = 1 << 0;   // '-'
+    private static final int UPPERCASE = 1 << 1;      // '^'
+    private static final int ALTERNATE = 1 << 2;      // '#'
+    private static final int PLUS = 1 << 3;           // '+'
+    private static final int LEADING_SPACE = 1 << 4;  // ' '
+    private static final int ZERO_PAD = 1 << 5;       // '0'
+    private static final int GROUP = 1 << 6;          // ','
+    private static final int PARENTHESES = 1 << 7;    // '('
+    private static final int PREVIOUS = 1 << 8;       // '<'
+
+    private FormatSpecifierParser() {
+    }
+
+    public interface Segment {
+        /**
+         * @return argument index of the specifier, {@code -1} for "previous argument", {@code -2} for segments that
+         * don't consume an argument (fixed text, {@code %%} and {@code %n})
+         */
+        int index();
+    }
+
+    /**
+     * Splits the format string into fixed text and format specifiers.
+     */
+    @NotNull
+    public static List<Segment> parse(@NotNull String s) {
+        List<Segment> result = new ArrayList<>();
+        parse(s, result, true);
+        return result;
+    }
+
+    /**
+     * Same as {@link #parse(String)}, but only returns format specifiers and doesn't allocate fixed text segments.
+     */
+    @NotNull
+    public static List<Specifier> parseSpecifiers(@NotNull String s) {
+        List<Specifier> result = new ArrayList<>();
+        parse(s, result, false);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void parse(@NotNull String s, @NotNull List<? super Specifier> result, boolean withFixedText) {
+        int len = s.length();
+        int textStart = 0;
+        int pos = s.indexOf('%');
+        while (pos != -1) {
+            if (withFixedText && pos != textStart) {
+                ((List<Segment>) result).add(new FixedText(s, textStart, pos));
+            }
+            Specifier specifier = parseSpecifier(s, pos);
+            if (specifier == null) {
+                // Same error as Formatter reports for a '%' which doesn't start a valid specifier
+                char c = (pos == len - 1) ? '%' : s.charAt(pos + 1);
+                throw new UnknownFormatConversionException(String.valueOf(c));
+            }
+            result.add(specifier);
+            textStart = specifier.end;
+            pos = s.indexOf('%', textStart);
+        }
+        if (withFixedText && textStart != len) {
+            ((List<Segment>) result).add(new FixedText(s, textStart, len));
+        }
+    }
+
+    /**
+     * Matches {@code %[argument_index$][flags][width][.precision][t]conversion} at {@code start}.
+     *
+     * @return parsed specifier or {@code null} if the text at {@code start} is not a specifier
+     */
+    private static Specifier parseSpecifier(@NotNull String s, int start) {
+        int len = s.length();
+        int pos = start + 1;
+
+        int indexStart = -1;
+        int indexEnd = -1;
+        int digitsEnd = skipDigits(s, pos);
+        if (digitsEnd != pos && digitsEnd < len && s.charAt(digitsEnd) == '$') {
+            indexStart = pos;
+            indexEnd = digitsEnd;
+            pos = digitsEnd + 1;
+        }
+
+        int flagsStart = pos;
+        while (pos < len && "-#+ 0,(<".indexOf(s.charAt(pos)) != -1) {
+            ++pos;
+        }
+        int flagsEnd = pos;
+
+        int widthStart = pos;
+        pos = skipDigits(s, pos);
+        int widthEnd = pos;
+
+        int precisionStart = -1;
+        int precisionEnd = -1;
+        if (pos < len && s.charAt(pos) == '.') {
+            int precisionDigitsEnd = skipDigits(s, pos + 1);
+            if (precisionDigitsEnd != pos + 1) {
+                precisionStart = pos + 1;
+                precisionEnd = precisionDigitsEnd;
+                pos = precisionDigitsEnd;
+            }
+        }
+
+        if (pos >= len) {
+            return null;
+        }
+        boolean dt = false;
+        char tT = s.charAt(pos);
+        if ((tT == 't' || tT == 'T') && pos + 1 < len && isConversionChar(s.charAt(pos + 1))) {
+            dt = true;
+            ++pos;
+        }
+        char conversion = s.charAt(pos);
+        if (!isConversionChar(conversion)) {
+            return null;
+        }
+        ++pos;
+
+        return new Specifier(
+                s,
+                start,
+                pos,
+                indexStart,
+                indexEnd,
+                flagsStart,
+                flagsEnd,
+                widthStart,
+                widthEnd,
+                precisionStart,
+                precisionEnd,
+                dt,
+                dt && tT == 'T',
+                conversion
+        );
+    }
+
+    private static int skipDigits(@NotNull String s, int pos) {
+        while (pos < s.length() && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') {
+            ++pos;
+        }
+        return pos;
+    }
+
+    private static boolean isConversionChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '%';
+    }
+
+    private static int parseFlag(char c) {
+        switch (c) {
+            case '-':
+                return LEFT_JUSTIFY;
+            case '#':
+                return ALTERNATE;
+            case '+':
+                return PLUS;
+            case ' ':
+                return LEADING_SPACE;
+            case '0':
+                return ZERO_PAD;
+            case ',':
+                return GROUP;
+            case '(':
+                return PARENTHESES;
+            case '<':
+                return PREVIOUS;
+            default:
+                throw new UnknownFormatFlagsException(String.valueOf(c));
+        }
+    }
+
+    @NotNull
+    private static String flagsToString(int flags) {
+        StringBuilder sb = new StringBuilder();
+        if ((flags & LEFT_JUSTIFY) != 0) {
+            sb.append('-');
+        }
+        if ((flags & UPPERCASE) != 0) {
+            sb.append('^');
+        }
+        if ((flags & ALTERNATE) != 0) {
+            sb.append('#');
+        }
+        if ((flags & PLUS) != 0) {
+            sb.append('+');
+        }
+        if ((flags & LEADING_SPACE) != 0) {
+            sb.append(' ');
+        }
+        if ((flags & ZERO_PAD) != 0) {
+            sb.append('0');
+        }
+        if ((flags & GROUP) != 0) {
+            sb.append(',');
+        }
+        if ((flags & PARENTHESES) != 0) {
+            sb.append('(');
+        }
+        if ((flags & PREVIOUS) != 0) {
+            sb.append('<');
+        }
+        return sb.toString();
+    }
+
+    private static boolean isGeneral(char c) {
+        return "bBsShH".indexOf(c) != -1;
+    }
+
+    private static boolean isCharacter(char c) {
+        return c == 'c' || c == 'C';
+    }
+
+    private static boolean isInteger(char c) {
+        return "doxX".indexOf(c) != -1;
+    }
+
+    private static boolean isFloat(char c) {
+        return "eEgGfaA".indexOf(c) != -1;
+    }
+
+    private static boolean isText(char c) {
+        return c == 'n' || c == '%';
+    }
+
+    private static boolean isDateTimeConversion(char c) {
+        return "HIklMNLQpsSTzZaAbBCdehjmyYrRcDF".indexOf(c) != -1;
+    }
+
+    /**
+     * Fixed text between format specifiers, kept as a view over the source string.
+     */
+    public static final class FixedText implements Segment, CharSequence {
+        @NotNull
+        private final String s;
+        private final int start;
+        private final int end;
+
+        FixedText(@NotNull String s, int start, int end) {
+            this.s = s;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int index() {
+            return -2;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            return s.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new StringIndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + (end - start));
+            }
+            return new FixedText(s, start + from, start + to);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return s.substring(start, end);
+        }
+    }
+
+    /**
+     * Parsed format specifier. Two specifiers are equal if they would format their argument identically.
+     */
+    public static final class Specifier implements Segment {
+        private final int start;
+        private final int end;
+        private int index = -1;
+        private int flags;
+        private int width = -1;
+        private int precision = -1;
+        private final boolean dt;
+        private char c;
+
+        private Specifier(
+                @NotNull String s,
+                int start,
+                int end,
+                int indexStart,
+                int indexEnd,
+                int flagsStart,
+                int flagsEnd,
+                int widthStart,
+                int widthEnd,
+                int precisionStart,
+                int precisionEnd,
+                boolean dt,
+                boolean dtUppercase,
+                char conversion
+        ) {
+            this.start = start;
+            this.end = end;
+            this.dt = dt;
+
+            if (indexStart >= 0) {
+                try {
+                    index = Integer.parseInt(s.substring(indexStart, indexEnd), 10);
+                } catch (NumberFormatException ignored) {
+                    // Formatter keeps the default value as well
+                }
+            } else {
+                index = 0;
+            }
+
+            for (int i = flagsStart; i < flagsEnd; i++) {
+                int flag = parseFlag(s.charAt(i));
+                if ((flags & flag) == flag) {
+                    throw new DuplicateFormatFlagsException(flagsToString(flag));
+                }
+                flags |= flag;
+            }
+            if ((flags & PREVIOUS) != 0) {
+                index = -1;
+            }
+
+            if (widthStart != widthEnd) {
+                try {
+                    width = Integer.parseInt(s.substring(widthStart, widthEnd), 10);
+                } catch (NumberFormatException ignored) {
+                    width = -1;
+                }
+            }
+
+            if (precisionStart >= 0) {
+                try {
+                    precision = Integer.parseInt(s.substring(precisionStart, precisionEnd), 10);
+                } catch (NumberFormatException ignored) {
+                    precision = -1;
+                }
+            }
+
+            if (dtUppercase) {
+                flags |= UPPERCASE;
+            }
+
+            c = conversion;
+            if (!dt) {
+                if (!(isGeneral(c) || isInteger(c) || isFloat(c) || isText(c) || c == 't' || isCharacter(c))) {
+                    throw new UnknownFormatConversionException(String.valueOf(c));
+                }
+                if (Character.isUpperCase(c)) {
+                    flags |= UPPERCASE;
+                    c = Character.toLowerCase(c);
+                }
+                if (isText(c)) {
+                    index = -2;
+                }
+            }
+
+            if (dt) {
+                checkDateTime();
+            } else if (isGeneral(c)) {
+                checkGeneral();
+            } else if (isCharacter(c)) {
+                checkCharacter();
+            } else if (isInteger(c)) {
+                checkInteger();
+            } else if (isFloat(c)) {
+                checkFloat();
+            } else if (isText(c)) {
+                checkText();
+            } else {
+                throw new UnknownFormatConversionException(String.valueOf(c));
+            }
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        /**
+         * @return position of the {@code '%'} of the specifier in the parsed string
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return position after the last character of the specifier in the parsed string
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getPrecision() {
+            return precision;
+        }
+
+        public boolean isDateTime() {
+            return dt;
+        }
+
+        public boolean isUpperCase() {
+            return (flags & UPPERCASE) != 0;
+        }
+
+        public boolean isLeftJustified() {
+            return (flags & LEFT_JUSTIFY) != 0;
+        }
+
+        /**
+         * @return conversion character in lower case; for date/time specifiers, the date/time conversion suffix
+         */
+        public char getConversion() {
+            return c;
+        }
+
+        private boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        private void checkGeneral() {
+            if ((c == 'b' || c == 'h') && has(ALTERNATE)) {
+                failMismatch(ALTERNATE);
+            }
+            if (width == -1 && has(LEFT_JUSTIFY)) {
+                throw new MissingFormatWidthException(toString());
+            }
+            checkBadFlags(PLUS, LEADING_SPACE, ZERO_PAD, GROUP, PARENTHESES);
+        }
+
+        private void checkDateTime() {
+            if (precision != -1) {
+                throw new IllegalFormatPrecisionException(precision);
+            }
+            if (!isDateTimeConversion(c)) {
+                throw new UnknownFormatConversionException("t" + c);
+            }
+            checkBadFlags(ALTERNATE, PLUS, LEADING_SPACE, ZERO_PAD, GROUP, PARENTHESES);
+            if (width == -1 && has(LEFT_JUSTIFY)) {
+                throw new MissingFormatWidthException(toString());
+            }
+        }
+
+        private void checkCharacter() {
+            if (precision != -1) {
+                throw new IllegalFormatPrecisionException(precision);
+            }
+            checkBadFlags(ALTERNATE, PLUS, LEADING_SPACE, ZERO_PAD, GROUP, PARENTHESES);
+            if (width == -1 && has(LEFT_JUSTIFY)) {
+                throw new MissingFormatWidthException(toString());
+            }
+        }
+
+        private void checkInteger() {
+            checkNumeric();
+            if (precision != -1) {
+                throw new IllegalFormatPrecisionException(precision);
+            }
+            if (c == 'd') {
+                checkBadFlags(ALTERNATE);
+            } else {
+                checkBadFlags(GROUP);
+            }
+        }
+
+        private void checkFloat() {
+            checkNumeric();
+            if (c == 'a') {
+                checkBadFlags(PARENTHESES, GROUP);
+            } else if (c == 'e') {
+                checkBadFlags(GROUP);
+            } else if (c == 'g') {
+                checkBadFlags(ALTERNATE);
+            }
+        }
+
+        private void checkNumeric() {
+            if (width == -1 && (has(LEFT_JUSTIFY) || has(ZERO_PAD))) {
+                throw new MissingFormatWidthException(toString());
+            }
+            if ((has(PLUS) && has(LEADING_SPACE)) || (has(LEFT_JUSTIFY) && has(ZERO_PAD))) {
+                throw new IllegalFormatFlagsException(flagsToString(flags));
+            }
+        }
+
+        private void checkText() {
+            if (precision != -1) {
+                throw new IllegalFormatPrecisionException(precision);
+            }
+            if (c == '%') {
+                if (flags != LEFT_JUSTIFY && flags != 0) {
+                    throw new IllegalFormatFlagsException(flagsToString(flags));
+                }
+                if (width == -1 && has(LEFT_JUSTIFY)) {
+                    throw new MissingFormatWidthException(toString());
+                }
+            } else {
+                if (width != -1) {
+                    throw new IllegalFormatWidthException(width);
+                }
+                if (flags != 0) {
+                    throw new IllegalFormatFlagsException(flagsToString(flags));
+                }
+            }
+        }
+
+        private void checkBadFlags(int... badFlags) {
+            for (int badFlag : badFlags) {
+                if (has(badFlag)) {
+                    failMismatch(badFlag);
+                }
+            }
+        }
+
+        private void failMismatch(int flag) {
+            throw new FormatFlagsConversionMismatchException(flagsToString(flag), c);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Specifier that = (Specifier) o;
+            return index == that.index &&
+                    flags == that.flags &&
+                    width == that.width &&
+                    precision == that.precision &&
+                    dt == that.dt &&
+                    c == that.c;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = index;
+            result = 31 * result + flags;
+            result = 31 * result + width;
+            result = 31 * result + precision;
+            result = 31 * result + (dt ? 1 : 0);
+            result = 31 * result + c;
+            return result;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("%");
+            sb.append(flagsToString(flags & ~UPPERCASE));
+            if (index > 0) {
+                sb.append(index).append('$');
+            }
+            if (width != -1) {
+                sb.append(width);
+            }
+            if (precision != -1) {
+                sb.append('.').append(precision);
+            }
+            if (dt) {
+                sb.append(has(UPPERCASE) ? 'T' : 't');
+            }
+            sb.append(has(UPPERCASE) ? Character.toUpperCase(c) : c);
+            return sb.toString();
+        }
+    }
+}
@@ -3924,8 +3924,8 @@ public final class Formatter implements Closeable, Flushable {
     private static final String formatSpecifier
 
             = "%(\\d+\\$)?([-#+ 0,(\\<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])";
-    private static double scaleUp;
-    private static Pattern fsPattern = Pattern.compile(formatSpecifier);
+    private static final double scaleUp = Math.scalb(1.0, 54);
+    private static final Pattern fsPattern = Pattern.compile(formatSpecifier);
     private final Locale l;
 
 
@@ -5497,13 +5497,17 @@ public final class Formatter implements Closeable, Flushable {
 
     }
 
-    public class FixedString implements FormatString {
+    /**
+     * Fixed text between format specifiers.  The text is kept as a view over
+     * the source string and is only copied when {@link #toString()} is called.
+     */
+    public class FixedString implements FormatString, CharSequence {
 
-        private String s;
+        private final String s;
 
-        private int start;
+        private final int start;
 
-        private int end;
+        private final int end;
 
         FixedString(String s, int start, int end) {
 
@@ -5525,6 +5529,24 @@ public final class Formatter implements Closeable, Flushable {
             a.append(s, start, end);
         }
 
+        public int length() {
+            return end - start;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new StringIndexOutOfBoundsException(index);
+            }
+            return s.charAt(start + index);
+        }
+
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > end - start || from > to) {
+                throw new StringIndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + (end - start));
+            }
+            return new FixedString(s, start + from, start + to);
+        }
+
         public String toString() {
             return s.substring(start, end);
         }
@@ -7039,8 +7061,6 @@ public final class Formatter implements Closeable, Flushable {
 
                 if (subnormal) {
 
-                    scaleUp = Math.scalb(1.0, 54);
-
                     d *= scaleUp;
 
                     // Calculate the exponent.  This is not just exponent + 54
@@ -0,0 +1,36 @@
+package com.indigobyte.maven.plugins;
+
+/**
+ * How translations are stored in the generated resource bundle class.
+ */
+public enum BundleStorage {
+    /**
+     * Translations are stored in a {@link java.util.HashMap} filled during class initialization.
+     */
+    HASH_MAP,
+    /**
+     * Keys are stored in a sorted {@code String[]} with a parallel {@code Object[]} of translations and are looked up
+     * with binary search. Needs far fewer objects than {@link #HASH_MAP}, as there is no map node per entry.
+     */
+    SORTED_ARRAY,
+    /**
+     * Translations are written to a binary resource next to the generated class, which is read with a single bulk
+     * read during class initialization and decoded into the same structure as {@link #SORTED_ARRAY}. The class
+     * itself stays small, so it is not limited by the constant pool and doesn't need to be verified and interpreted
+     * at the size of the catalog.
+     */
+    RESOURCE,
+    /**
+     * Entries are partitioned by the hash code of their keys into chunks of about 512 entries, each of them held by
+     * its own nested class. A chunk is loaded on first access to any of its keys, so only the chunks which are
+     * actually used are loaded. {@code getKeys()} loads all chunks.
+     */
+    LAZY_CHUNKS,
+    /**
+     * Translations are written to a {@code .mo} resource next to the generated class, which is memory-mapped during
+     * class initialization. Keys and translations stay off the heap, lookups hash into the mapped file and decode the
+     * found translation, optionally keeping recently found ones in a small cache. Requires the reader class, which is
+     * generated as well.
+     */
+    MAPPED
+}
@@ -0,0 +1,103 @@
+package com.indigobyte.maven.plugins;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.SessionData;
+import org.fedorahosted.tennera.jgettext.Catalog;
+import org.fedorahosted.tennera.jgettext.PoParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache of parsed {@code .po}/{@code .pot} files.
+ * <p>
+ * When running inside Maven, a single instance is shared by all executions of all goals of this plugin during the
+ * build session, so every file is parsed at most once per {@code mvn} invocation. Entries are keyed by the real path
+ * of the file and are re-parsed if its size or modification time changes. Files are parsed outside of operations on the
+ * map, by the first thread which needs them, and other threads which need the same file wait for it.
+ * <p>
+ * Cached catalogs are shared between executions and must not be modified.
+ */
+public class CatalogCache {
+    private final ConcurrentMap<Path, CachedCatalog> catalogs = new ConcurrentHashMap<>();
+
+    /**
+     * @return cache shared by all executions within the given build session, or a new private cache if there is no
+     * session (e.g. when running from the command line)
+     */
+    @NotNull
+    public static CatalogCache forSession(@Nullable MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return new CatalogCache();
+        }
+        // The class object is used as a key, so that different versions of the plugin used within the same build
+        // don't get each other's caches
+        SessionData data = session.getRepositorySession().getData();
+        while (true) {
+            Object cache = data.get(CatalogCache.class);
+            if (cache != null) {
+                return (CatalogCache) cache;
+            }
+            CatalogCache newCache = new CatalogCache();
+            if (data.set(CatalogCache.class, null, newCache)) {
+                return newCache;
+            }
+        }
+    }
+
+    @NotNull
+    public Catalog getCatalog(@NotNull String fileName) throws MojoExecutionException {
+        try {
+            Path path = new File(fileName).toPath().toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            CachedCatalog cached = catalogs.get(path);
+            while (cached == null || cached.size != size || cached.lastModified != lastModified) {
+                CachedCatalog newCached = new CachedCatalog(size, lastModified, path);
+                if (cached == null ? catalogs.putIfAbsent(path, newCached) == null : catalogs.replace(path, cached, newCached)) {
+                    cached = newCached;
+                    break;
+                }
+                cached = catalogs.get(path);
+            }
+            cached.parse.run();
+            try {
+                return cached.parse.get();
+            } catch (ExecutionException e) {
+                // Failures are not cached, the next call parses the file again
+                catalogs.remove(path, cached);
+                throw new MojoExecutionException("Unable to parse file " + fileName, e.getCause());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to parse file " + fileName, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for file " + fileName + " to be parsed", e);
+        }
+    }
+
+    private static class CachedCatalog {
+        private final long size;
+        private final long lastModified;
+        // Runs once, in the first thread which needs the catalog
+        @NotNull
+        private final FutureTask<Catalog> parse;
+
+        CachedCatalog(long size, long lastModified, @NotNull Path path) {
+            this.size = size;
+            this.lastModified = lastModified;
+            parse = new FutureTask<>(() -> new PoParser().parseCatalog(path.toFile()));
+        }
+    }
+}
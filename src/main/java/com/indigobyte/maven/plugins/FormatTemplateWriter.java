@@ -0,0 +1,314 @@
+package com.indigobyte.maven.plugins;
+
+import com.indigobyte.javautil.FormatSpecifierParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes translations which are format strings as precompiled templates. Each translation is split into fixed text
+ * and format specifiers at generation time, so the generated formatter class renders it without the regular
+ * expression parsing of {@link java.util.Formatter}. Each specifier is formatted with its own argument, and the most
+ * common ones, {@code %s}, {@code %d} and {@code %n}, are formatted without {@link java.util.Formatter} at all.
+ */
+final class FormatTemplateWriter {
+    // Constants of the templates holder class besides its statements: the table, HashMap, the formatter class and
+    // their methods
+    private static final int TEMPLATES_CONSTANT_COUNT = 64;
+
+    private FormatTemplateWriter() {
+    }
+
+    /**
+     * Format specifier of a template, which formats a single argument.
+     */
+    static final class TemplateSpecifier {
+        // Index of the argument, or -1 if the specifier has no argument
+        final int argument;
+        // The specifier without argument index
+        @NotNull
+        final String format;
+
+        TemplateSpecifier(int argument, @NotNull String format) {
+            this.argument = argument;
+            this.format = format;
+        }
+    }
+
+    /**
+     * Splits the translation the same way as {@link String#format(String, Object...)} would. Argument indexes of
+     * specifiers are resolved here, including ordinary indexes and the {@code <} flag, which is still kept in the
+     * specifier.
+     *
+     * @return fixed text as {@code String}s and {@link TemplateSpecifier}s, or {@code null} if the translation has
+     * no specifiers or isn't a valid format string, and is left to {@link String#format(String, Object...)}
+     */
+    @Nullable
+    static List<Object> getSegments(@NotNull String translation) {
+        if (translation.indexOf('%') < 0) {
+            return null;
+        }
+        List<FormatSpecifierParser.Segment> parsed;
+        try {
+            parsed = FormatSpecifierParser.parse(translation);
+        } catch (IllegalFormatException e) {
+            return null;
+        }
+        List<Object> segments = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int ordinaryIndex = -1;
+        int lastIndex = -1;
+        for (FormatSpecifierParser.Segment segment : parsed) {
+            if (!(segment instanceof FormatSpecifierParser.Specifier)) {
+                text.append((CharSequence) segment);
+                continue;
+            }
+            FormatSpecifierParser.Specifier specifier = (FormatSpecifierParser.Specifier) segment;
+            String source = translation.substring(specifier.getStart(), specifier.getEnd());
+            int formatStart = getFormatStart(source);
+            if (formatStart > 1 && specifier.index() < 1 && source.indexOf('<') < 0) {
+                // Argument index 0 or one which doesn't fit into int, which Formatter handles differently in
+                // different Java versions
+                return null;
+            }
+            int argument;
+            switch (specifier.index()) {
+                case -2:
+                    if (source.equals("%%")) {
+                        text.append('%');
+                        continue;
+                    }
+                    argument = -1;
+                    break;
+                case -1:
+                    if (lastIndex < 0) {
+                        // Fails at runtime with MissingFormatArgumentException
+                        return null;
+                    }
+                    argument = lastIndex;
+                    break;
+                case 0:
+                    argument = ++ordinaryIndex;
+                    lastIndex = argument;
+                    break;
+                default:
+                    argument = specifier.index() - 1;
+                    lastIndex = argument;
+                    break;
+            }
+            if (text.length() > 0) {
+                segments.add(text.toString());
+                text.setLength(0);
+            }
+            segments.add(new TemplateSpecifier(argument, "%" + source.substring(formatStart)));
+        }
+        if (text.length() > 0) {
+            segments.add(text.toString());
+        }
+        return segments;
+    }
+
+    /**
+     * @return position after the argument index of the specifier, {@code 1} if it has none
+     */
+    private static int getFormatStart(@NotNull String specifier) {
+        int pos = 1;
+        while (pos < specifier.length() && Character.isDigit(specifier.charAt(pos))) {
+            ++pos;
+        }
+        return pos > 1 && pos < specifier.length() && specifier.charAt(pos) == '$' ? pos + 1 : 1;
+    }
+
+    /**
+     * Writes {@code format()} and {@code formatPlural()} methods of a bundle, and the holder class of templates of
+     * its translations, which is initialized on first formatting.
+     *
+     * @param translations all translations of the bundle, including plural forms
+     */
+    static void writeFormatMethods(
+            @NotNull Writer out,
+            @NotNull String formatterClass,
+            @NotNull Collection<String> translations
+    ) throws IOException {
+        Map<String, List<Object>> templates = new TreeMap<>();
+        for (String translation : translations) {
+            List<Object> segments = getSegments(translation);
+            if (segments != null) {
+                templates.put(translation, segments);
+            }
+        }
+        List<String> keys = new ArrayList<>(templates.keySet());
+        out.write("\n" +
+                "    /**\n" +
+                "     * @return translation of the message formatted with {@code args}, the same as\n" +
+                "     * {@code String.format(locale, getString(msgid), args)}\n" +
+                "     */\n" +
+                "    public String format(java.util.Locale locale, String msgid, Object... args) {\n" +
+                "        return formatTranslation(locale, getString(msgid), args);\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return translation of the message for the number {@code n} formatted with {@code args}, or {@code null}\n" +
+                "     * if the message has no translation\n" +
+                "     */\n" +
+                "    public String formatPlural(java.util.Locale locale, String msgid, long n, Object... args) {\n" +
+                "        String translation = getPlural(msgid, n);\n" +
+                "        return translation != null ? formatTranslation(locale, translation, args) : null;\n" +
+                "    }\n" +
+                "\n" +
+                "    private static String formatTranslation(java.util.Locale locale, String translation, Object[] args) {\n" +
+                "        if (translation.indexOf('%') < 0) {\n" +
+                "            return translation;\n" +
+                "        }\n" +
+                "        Object[] template = Templates.table.get(translation);\n" +
+                "        return template != null ? " + formatterClass + ".format(locale, translation, template, args) : String.format(locale, translation, args);\n" +
+                "    }\n" +
+                "\n" +
+                "    private static final class Templates {\n" +
+                "        static final java.util.HashMap<String, Object[]> table = new java.util.HashMap<>(" + JavaGenerator.getTableCapacity(keys.size()) + ");\n"
+        );
+        StaticInitializerWriter.write(out, "        ", "java.util.HashMap<String, Object[]> table", "table", TEMPLATES_CONSTANT_COUNT, new StaticInitializerWriter.Statements() {
+            @Override
+            public int size() {
+                return keys.size();
+            }
+
+            @Override
+            public void write(@NotNull StaticInitializerWriter.Code code, int index) throws IOException {
+                List<Object> segments = templates.get(keys.get(index));
+                code.startStatement();
+                // getstatic or aload, invokevirtual, pop
+                code.write("table.put(", 7);
+                code.writeString(keys.get(index));
+                // sipush, anewarray
+                code.write(", new Object[]{", 6);
+                for (int i = 0; i < segments.size(); ++i) {
+                    // dup, sipush, aastore
+                    code.write(i > 0 ? ", " : "", 5);
+                    Object segment = segments.get(i);
+                    if (segment instanceof String) {
+                        code.writeString((String) segment);
+                    } else {
+                        TemplateSpecifier specifier = (TemplateSpecifier) segment;
+                        // new, dup, invokespecial
+                        code.write("new " + formatterClass + ".Specifier(", 7);
+                        code.writeInt(specifier.argument);
+                        code.write(", ", 0);
+                        code.writeString(specifier.format);
+                        code.write(")", 0);
+                    }
+                }
+                code.write("})", 0);
+                code.endStatement();
+            }
+        });
+        out.write("    }\n");
+    }
+
+    /**
+     * Writes body of the formatter class, which has no dependencies besides the JDK.
+     */
+    static void writeFormatterClass(@NotNull Writer out, @NotNull String className) throws IOException {
+        out.write("public final class " + className + " {\n" +
+                "    private static final java.util.concurrent.ConcurrentHashMap<java.util.Locale, Boolean> ASCII_DIGITS = new java.util.concurrent.ConcurrentHashMap<>();\n" +
+                "\n" +
+                "    /**\n" +
+                "     * Format specifier of a template, which formats a single argument.\n" +
+                "     */\n" +
+                "    public static final class Specifier {\n" +
+                "        private final int argument;\n" +
+                "        private final String format;\n" +
+                "        // Whether the specifier has the \"previous argument\" flag, which Formatter passes to Formattable arguments\n" +
+                "        private final boolean previous;\n" +
+                "        // 's', 'd' or 'n' for %s, %d and %n, which are formatted without java.util.Formatter, 0 otherwise\n" +
+                "        private final char conversion;\n" +
+                "\n" +
+                "        /**\n" +
+                "         * @param argument index of the argument, or -1 if the specifier has no argument\n" +
+                "         * @param format   the specifier without argument index, e.g. {@code %.2f} or {@code %<s}\n" +
+                "         */\n" +
+                "        public Specifier(int argument, String format) {\n" +
+                "            this.argument = argument;\n" +
+                "            previous = format.indexOf('<') >= 0;\n" +
+                "            this.format = previous ? format.replace(\"<\", \"\") : format;\n" +
+                "            conversion = this.format.equals(\"%s\") ? 's' : this.format.equals(\"%d\") ? 'd' : this.format.equals(\"%n\") ? 'n' : 0;\n" +
+                "        }\n" +
+                "\n" +
+                "        /**\n" +
+                "         * @return {@code false} if the argument is missing, or it must be formatted as a part of the whole format\n" +
+                "         * string\n" +
+                "         */\n" +
+                "        boolean appendTo(StringBuilder sb, java.util.Locale locale, Object[] args) {\n" +
+                "            if (conversion == 'n') {\n" +
+                "                sb.append(System.lineSeparator());\n" +
+                "                return true;\n" +
+                "            }\n" +
+                "            if (argument < 0) {\n" +
+                "                sb.append(String.format(locale, format));\n" +
+                "                return true;\n" +
+                "            }\n" +
+                "            if (args != null && argument >= args.length) {\n" +
+                "                return false;\n" +
+                "            }\n" +
+                "            Object arg = args != null ? args[argument] : null;\n" +
+                "            if (previous && arg instanceof java.util.Formattable) {\n" +
+                "                return false;\n" +
+                "            }\n" +
+                "            if (conversion == 's' && !(arg instanceof java.util.Formattable)) {\n" +
+                "                sb.append(arg);\n" +
+                "            } else if (conversion == 'd' && (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte)\n" +
+                "                    && ((Number) arg).longValue() >= 0 && hasAsciiDigits(locale)) {\n" +
+                "                sb.append(((Number) arg).longValue());\n" +
+                "            } else {\n" +
+                "                sb.append(String.format(locale, format, arg));\n" +
+                "            }\n" +
+                "            return true;\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n" +
+                "    private " + className + "() {\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param format   the format string the template was made of\n" +
+                "     * @return the template formatted with {@code args}, the same as {@code String.format(locale, format, args)}\n" +
+                "     */\n" +
+                "    public static String format(java.util.Locale locale, String format, Object[] template, Object... args) {\n" +
+                "        StringBuilder sb = new StringBuilder();\n" +
+                "        for (Object segment : template) {\n" +
+                "            if (segment instanceof String) {\n" +
+                "                sb.append((String) segment);\n" +
+                "            } else if (!((Specifier) segment).appendTo(sb, locale, args)) {\n" +
+                "                // Formatter reports the missing argument, or passes the flags of the specifier to the argument\n" +
+                "                return String.format(locale, format, args);\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return sb.toString();\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return {@code true} if Formatter writes numbers of the locale with ASCII digits\n" +
+                "     */\n" +
+                "    private static boolean hasAsciiDigits(java.util.Locale locale) {\n" +
+                "        if (locale == null || locale == java.util.Locale.US) {\n" +
+                "            return true;\n" +
+                "        }\n" +
+                "        Boolean asciiDigits = ASCII_DIGITS.get(locale);\n" +
+                "        if (asciiDigits == null) {\n" +
+                "            asciiDigits = java.text.DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';\n" +
+                "            ASCII_DIGITS.put(locale, asciiDigits);\n" +
+                "        }\n" +
+                "        return asciiDigits;\n" +
+                "    }\n" +
+                "}\n"
+        );
+    }
+}
@@ -0,0 +1,177 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Options which affect the code produced by {@link JavaGenerator}.
+ */
+public class GeneratorOptions {
+    private boolean omitVersion;
+    @NotNull
+    private BundleStorage storage = BundleStorage.HASH_MAP;
+    @Nullable
+    private String accessorClass;
+    @Nullable
+    private String factoryClass;
+    @Nullable
+    private String formatterClass;
+    @Nullable
+    private String readerClass;
+    private int mappedCacheSize;
+
+    /**
+     * @return {@code true} if plugin version must not be written to the header of the generated file
+     */
+    public boolean isOmitVersion() {
+        return omitVersion;
+    }
+
+    @NotNull
+    public GeneratorOptions setOmitVersion(boolean omitVersion) {
+        this.omitVersion = omitVersion;
+        return this;
+    }
+
+    @NotNull
+    public BundleStorage getStorage() {
+        return storage;
+    }
+
+    @NotNull
+    public GeneratorOptions setStorage(@NotNull BundleStorage storage) {
+        this.storage = storage;
+        return this;
+    }
+
+    /**
+     * @return fully qualified name of the class with slot constants for all messages, or {@code null} if it is not
+     * generated
+     */
+    @Nullable
+    public String getAccessorClass() {
+        return accessorClass;
+    }
+
+    @NotNull
+    public GeneratorOptions setAccessorClass(@Nullable String accessorClass) {
+        this.accessorClass = accessorClass == null || accessorClass.isEmpty() ? null : accessorClass;
+        return this;
+    }
+
+    /**
+     * @return fully qualified name of the class which creates bundles of all languages with their parents, or
+     * {@code null} if it is not generated
+     */
+    @Nullable
+    public String getFactoryClass() {
+        return factoryClass;
+    }
+
+    @NotNull
+    public GeneratorOptions setFactoryClass(@Nullable String factoryClass) {
+        this.factoryClass = factoryClass == null || factoryClass.isEmpty() ? null : factoryClass;
+        return this;
+    }
+
+    /**
+     * @return fully qualified name of the class which formats precompiled templates of translations, or {@code null}
+     * if templates are not generated
+     */
+    @Nullable
+    public String getFormatterClass() {
+        return formatterClass;
+    }
+
+    @NotNull
+    public GeneratorOptions setFormatterClass(@Nullable String formatterClass) {
+        this.formatterClass = formatterClass == null || formatterClass.isEmpty() ? null : formatterClass;
+        return this;
+    }
+
+    /**
+     * @return fully qualified name of the class which reads memory-mapped catalogs of bundles with
+     * {@link BundleStorage#MAPPED} storage, or {@code null} if it is not generated
+     */
+    @Nullable
+    public String getReaderClass() {
+        return readerClass;
+    }
+
+    @NotNull
+    public GeneratorOptions setReaderClass(@Nullable String readerClass) {
+        this.readerClass = readerClass == null || readerClass.isEmpty() ? null : readerClass;
+        return this;
+    }
+
+    /**
+     * @return number of translations each bundle with {@link BundleStorage#MAPPED} storage keeps on the heap after
+     * lookup, 0 if they are decoded from the mapped file on every lookup
+     */
+    public int getMappedCacheSize() {
+        return mappedCacheSize;
+    }
+
+    @NotNull
+    public GeneratorOptions setMappedCacheSize(int mappedCacheSize) {
+        if (mappedCacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + mappedCacheSize);
+        }
+        this.mappedCacheSize = mappedCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets option from a command line argument in the {@code name=value} form, where {@code name} is the name of
+     * the corresponding plugin parameter.
+     *
+     * @throws IllegalArgumentException if the argument is malformed or the option is unknown
+     */
+    public void setFromArgument(@NotNull String argument) {
+        int equalsPos = argument.indexOf('=');
+        if (equalsPos == -1) {
+            throw new IllegalArgumentException("Option must be specified as name=value: " + argument);
+        }
+        String name = argument.substring(0, equalsPos);
+        String value = argument.substring(equalsPos + 1);
+        switch (name) {
+            case "omitVersion":
+                setOmitVersion(Boolean.parseBoolean(value));
+                break;
+            case "storage":
+                setStorage(BundleStorage.valueOf(value));
+                break;
+            case "accessorClass":
+                setAccessorClass(value);
+                break;
+            case "factoryClass":
+                setFactoryClass(value);
+                break;
+            case "formatterClass":
+                setFormatterClass(value);
+                break;
+            case "readerClass":
+                setReaderClass(value);
+                break;
+            case "mappedCacheSize":
+                setMappedCacheSize(Integer.parseInt(value));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + name);
+        }
+    }
+
+    /**
+     * @return description of all options, which changes whenever generated code may change
+     */
+    @NotNull
+    public String describe() {
+        return "omitVersion=" + omitVersion + "\n" +
+                "storage=" + storage + "\n" +
+                "accessorClass=" + (accessorClass != null ? accessorClass : "") + "\n" +
+                "factoryClass=" + (factoryClass != null ? factoryClass : "") + "\n" +
+                "formatterClass=" + (formatterClass != null ? formatterClass : "") + "\n" +
+                "readerClass=" + (readerClass != null ? readerClass : "") + "\n" +
+                "mappedCacheSize=" + mappedCacheSize + "\n";
+    }
+}
@@ -1,23 +1,58 @@
 package com.indigobyte.maven.plugins;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.fedorahosted.tennera.jgettext.Message;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class JavaGenerator {
-    private static final int MAX_MESSAGE_COUNT = 1000;
-    private final Map<String, Object> initLines = new HashMap<>();
-
+    static final String CONFIGURATION_HASH_PREFIX = "/* Configuration hash: ";
+    // Plural forms are shared, see getSharedForms()
+    private static final String LOOKUP_JAVADOC = "    /**\n" +
+            "     * @return translation of the key, {@code String[]} of plural forms if it has them, or {@code null} if there\n" +
+            "     * is no such key. Arrays of plural forms may be shared by several messages and must not be modified.\n" +
+            "     */\n";
+    private static final int RESOURCE_MAGIC = 0x43435043;
+    private static final int LAZY_CHUNK_SIZE = 512;
+    // Constants of a chunk class besides its table, e.g. the HashMap class and its constructor
+    private static final int CHUNK_CONSTANT_COUNT = 64;
+    private static final int MAX_CONSTANT_NAME_LENGTH = 64;
+    private static final int PLURAL_TABLE_SIZE = 1000;
+    private static final int MAX_SHARED_FORMS_CONSTANT_COUNT = StaticInitializerWriter.MAX_CONSTANT_COUNT / 4;
+    private static final int MAX_SHARED_FORMS_CODE_SIZE = 16 * 1024;
+    // Sorted by key, so that generated code doesn't depend on the order of messages in the .po file
+    private final Map<String, Object> initLines = new TreeMap<>();
     @NotNull
-    private static String getJavaEscapedString(@NotNull String str) {
-        return "\"" + StringEscapeUtils.escapeJava(str) + "\"";
+    private final GeneratorOptions options;
+
+    public JavaGenerator() {
+        this(new GeneratorOptions());
+    }
+
+    public JavaGenerator(@NotNull GeneratorOptions options) {
+        this.options = options;
+    }
+
+    private static void writeJavaEscapedString(@NotNull Writer out, @NotNull String str) throws IOException {
+        StaticInitializerWriter.writeString(out, str);
     }
 
     public void addInitLine(@NotNull Message message) {
@@ -34,61 +69,597 @@ public class JavaGenerator {
         }
     }
 
+    /**
+     * @return initial capacity of a {@link HashMap} with default load factor which holds {@code size} entries without
+     * being resized
+     */
+    static int getTableCapacity(int size) {
+        return (int) (((long) size * 4 + 2) / 3);
+    }
+
     @NotNull
     public String getText(
             @NotNull String fullPackagePath,
             @NotNull String className,
-            @Nullable String pluralEval
+            @NotNull PluralFormula pluralFormula,
+            @NotNull String configurationHash
     ) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("/* Automatically generated by com.indigobyte.maven.plugins:cc-validate-po-maven-plugin version " + getClass().getPackage().getImplementationVersion() + " */\n" +
+        StringWriter out = new StringWriter();
+        try {
+            write(out, fullPackagePath, className, pluralFormula, configurationHash);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return name of the binary resource that holds translations for {@link BundleStorage#RESOURCE} and
+     * {@link BundleStorage#MAPPED} storages, relative to the generated class
+     */
+    @NotNull
+    public static String getResourceFileName(@NotNull String className, @NotNull BundleStorage storage) {
+        return className + (storage == BundleStorage.MAPPED ? ".mo" : ".bin");
+    }
+
+    /**
+     * Writes generated Java code directly to {@code out}, without building it in memory first. {@code out} should be
+     * buffered.
+     * <p>
+     * The same messages, options and arguments always produce the same code.
+     */
+    public void write(
+            @NotNull Writer out,
+            @NotNull String fullPackagePath,
+            @NotNull String className,
+            @NotNull PluralFormula pluralFormula,
+            @NotNull String configurationHash
+    ) throws IOException {
+        String accessorClass = options.getAccessorClass();
+        out.write(getBanner() +
+                CONFIGURATION_HASH_PREFIX + configurationHash + " */\n" +
                 "package " + fullPackagePath + ";\n" +
                 "\n" +
-                "public class " + className + " extends java.util.ResourceBundle {\n" +
-                "    private static final java.util.HashMap<String, Object> table = new java.util.HashMap<>();\n" +
-                "\n" +
-                "    static {\n"
+                "public class " + className + " extends java.util.ResourceBundle" + (accessorClass != null ? " implements " + accessorClass + ".Bundle" : "") + " {\n"
+        );
+        Map<List<String>, String> sharedForms = options.getStorage() != BundleStorage.MAPPED ? getSharedForms() : Collections.emptyMap();
+        int sharedFormsConstantCount = writeSharedForms(out, sharedForms);
+        switch (options.getStorage()) {
+            case HASH_MAP:
+                out.write("    private static final java.util.HashMap<String, Object> table = new java.util.HashMap<>(" + getTableCapacity(initLines.size()) + ");\n");
+                writeClinitParts(out, sharedForms, sharedFormsConstantCount);
+                break;
+            case SORTED_ARRAY:
+                out.write("    private static final String[] keys = new String[" + initLines.size() + "];\n" +
+                        "    private static final Object[] values = new Object[" + initLines.size() + "];\n"
+                );
+                writeClinitParts(out, sharedForms, sharedFormsConstantCount);
+                break;
+            case RESOURCE:
+                writeResourceLoading(out, className);
+                break;
+            case LAZY_CHUNKS:
+                writeLazyChunks(out, sharedForms);
+                break;
+            case MAPPED:
+                writeMappedCatalog(out, className);
+                break;
+        }
+        writePluralSelection(out, pluralFormula);
+        out.write("\n" +
+                LOOKUP_JAVADOC
         );
-        int initMethodCount = (initLines.size() + MAX_MESSAGE_COUNT - 1) / MAX_MESSAGE_COUNT;
-        for (int methodNumber = 0; methodNumber < initMethodCount; ++methodNumber) {
-            sb.append("        clinit_part_" + methodNumber + "();\n");
+        switch (options.getStorage()) {
+            case HASH_MAP:
+                out.write("    public Object lookup(String msgid) {\n" +
+                        "        return table.get(msgid);\n" +
+                        "    }\n"
+                );
+                break;
+            case SORTED_ARRAY:
+            case RESOURCE:
+                out.write("    public Object lookup(String msgid) {\n" +
+                        "        if (msgid == null) {\n" +
+                        "            return null;\n" +
+                        "        }\n" +
+                        "        int index = java.util.Arrays.binarySearch(keys, msgid);\n" +
+                        "        return index >= 0 ? values[index] : null;\n" +
+                        "    }\n"
+                );
+                break;
+            case LAZY_CHUNKS:
+                out.write("    public Object lookup(String msgid) {\n" +
+                        "        if (msgid == null) {\n" +
+                        "            return null;\n" +
+                        "        }\n" +
+                        "        return chunk((msgid.hashCode() & 0x7fffffff) % CHUNK_COUNT).get(msgid);\n" +
+                        "    }\n"
+                );
+                break;
+            case MAPPED:
+                out.write("    public Object lookup(String msgid) {\n" +
+                        "        return catalog.lookupValue(msgid);\n" +
+                        "    }\n"
+                );
+                break;
         }
-        sb.append("    }\n" +
+        writeContextLookup(out, className);
+        out.write("\n" +
+                "    public Object handleGetObject(String msgid) throws java.util.MissingResourceException {\n" +
+                "        Object value = lookup(msgid);\n" +
+                "        return (value instanceof String[] ? ((String[]) value)[0] : value);\n" +
+                "    }\n" +
                 "\n"
         );
-        for (int methodNumber = 0; methodNumber < initMethodCount; ++methodNumber) {
-            sb.append("    private static void clinit_part_" + methodNumber + "() {\n");
-            List<Map.Entry<String, Object>> entries = new ArrayList<>(initLines.entrySet());
-            entries = entries.subList(methodNumber * MAX_MESSAGE_COUNT, Math.min(entries.size(), (methodNumber + 1) * MAX_MESSAGE_COUNT));
-            for (Map.Entry<String, Object> entry : entries) {
-                sb.append("        table.put(");
-                sb.append(getJavaEscapedString(entry.getKey()));
-                sb.append(", ");
-                if (entry.getValue() instanceof String) {
-                    sb.append(getJavaEscapedString((String) entry.getValue()));
-                } else {
-                    sb.append("new String[]{");
-                    sb.append(((List<String>) entry.getValue()).stream()
-                            .map(JavaGenerator::getJavaEscapedString)
-                            .collect(Collectors.joining(", "))
-                    );
-                    sb.append("}");
+        switch (options.getStorage()) {
+            case HASH_MAP:
+                out.write("    public java.util.Enumeration<String> getKeys() {\n" +
+                        "        return java.util.Collections.enumeration(table.keySet());\n" +
+                        "    }\n"
+                );
+                break;
+            case SORTED_ARRAY:
+            case RESOURCE:
+                out.write("    public java.util.Enumeration<String> getKeys() {\n" +
+                        "        return java.util.Collections.enumeration(java.util.Arrays.asList(keys));\n" +
+                        "    }\n"
+                );
+                break;
+            case LAZY_CHUNKS:
+                out.write("    public java.util.Enumeration<String> getKeys() {\n" +
+                        "        java.util.ArrayList<String> keys = new java.util.ArrayList<>(" + initLines.size() + ");\n" +
+                        "        for (int i = 0; i < CHUNK_COUNT; ++i) {\n" +
+                        "            keys.addAll(chunk(i).keySet());\n" +
+                        "        }\n" +
+                        "        return java.util.Collections.enumeration(keys);\n" +
+                        "    }\n"
+                );
+                break;
+            case MAPPED:
+                out.write("    public java.util.Enumeration<String> getKeys() {\n" +
+                        "        java.util.ArrayList<String> keys = new java.util.ArrayList<>(" + initLines.size() + ");\n" +
+                        "        for (int i = 0; i < catalog.size(); ++i) {\n" +
+                        "            keys.add(catalog.getKey(i));\n" +
+                        "        }\n" +
+                        "        return java.util.Collections.enumeration(keys);\n" +
+                        "    }\n"
+                );
+                break;
+        }
+        if (accessorClass != null) {
+            writeSlots(out, accessorClass);
+        }
+        writeFormatMethods(out);
+        writeConstructors(out, className);
+        out.write("\n" +
+                "    public java.util.ResourceBundle getParent() {\n" +
+                "        return parent;\n" +
+                "    }\n" +
+                "}\n"
+        );
+    }
+
+    /**
+     * Writes {@code getPlural()} methods, which select the plural form of a message for a number without boxing it.
+     * Forms for numbers below {@link #PLURAL_TABLE_SIZE} are precomputed at generation time and stored in a string
+     * constant, so they need neither an array initializer nor evaluation of the formula at runtime. Forms of other
+     * numbers are evaluated with the branches of the formula, as the generated Javadoc of {@code getPluralForm()} says.
+     */
+    private static void writePluralSelection(@NotNull Writer out, @NotNull PluralFormula pluralFormula) throws IOException {
+        StringBuilder forms = new StringBuilder(PLURAL_TABLE_SIZE);
+        try {
+            for (int n = 0; n < PLURAL_TABLE_SIZE; ++n) {
+                long form = pluralFormula.evaluate(n);
+                if (form < 0 || form > Character.MAX_VALUE) {
+                    break;
                 }
-                sb.append(");\n");
+                forms.append((char) form);
             }
-            sb.append("    }\n" +
-                    "\n"
-            );
+        } catch (ArithmeticException e) {
+            // Numbers starting from this one are left to pluralEval(), which fails the same way
         }
-        if (pluralEval != null) {
-            sb.append("    public static long pluralEval(long n) {\n" +
-                    "        return " + pluralEval + ";\n" +
-                    "    }\n"
-            );
+        out.write("    private static final String PLURAL_FORMS = ");
+        writeJavaEscapedString(out, forms.toString());
+        out.write(";\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return value of the plural formula. As in gettext, {@code n} and the value are unsigned.\n" +
+                "     */\n" +
+                "    public static long pluralEval(long n) {\n" +
+                pluralFormula.toJavaMethodBody("        ") +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return index of the plural form for the number. " + (forms.length() > 0
+                ? "Forms of numbers from 0 to " + (forms.length() - 1) + " are read from a\n" +
+                "     * precomputed table, others are computed by {@link #pluralEval(long)}, which evaluates the formula.\n"
+                : "Forms are computed by {@link #pluralEval(long)}, which evaluates the\n" +
+                "     * formula.\n") +
+                "     */\n" +
+                "    public static int getPluralForm(long n) {\n" +
+                "        if (n >= 0 && n < PLURAL_FORMS.length()) {\n" +
+                "            return PLURAL_FORMS.charAt((int) n);\n" +
+                "        }\n" +
+                "        long form = pluralEval(n);\n" +
+                "        // Unsigned forms which don't fit into int are out of range as well\n" +
+                "        return form >= 0 && form <= Integer.MAX_VALUE ? (int) form : Integer.MAX_VALUE;\n" +
+                "    }\n" +
+                "\n" +
+                "    public String getPlural(String msgid, long n) {\n" +
+                "        return selectPluralForm(lookup(msgid), n);\n" +
+                "    }\n" +
+                "\n" +
+                "    public String getPlural(String ctx, String id, long n) {\n" +
+                "        return selectPluralForm(lookup(ctx, id), n);\n" +
+                "    }\n" +
+                "\n" +
+                "    private static String selectPluralForm(Object value, long n) {\n" +
+                "        if (value instanceof String[]) {\n" +
+                "            String[] forms = (String[]) value;\n" +
+                "            int form = getPluralForm(n);\n" +
+                "            // As in gettext, the first form is used if the formula doesn't match the translation\n" +
+                "            return forms[form >= 0 && form < forms.length ? form : 0];\n" +
+                "        }\n" +
+                "        return (String) value;\n" +
+                "    }\n"
+        );
+    }
+
+    /**
+     * Writes {@code lookup(String ctx, String id)}, which finds the same values as {@code lookup(ctx + "\u0004" + id)}
+     * without building the key. Sorted keys are binary searched with a comparison against the context and the id;
+     * with hash-based storages, an index of keys with context is built on first use of the method and probed with the
+     * hash code of the key computed from the context and the id. The mapped catalog is looked up with the joined key,
+     * which its cache needs anyway.
+     */
+    private void writeContextLookup(@NotNull Writer out, @NotNull String className) throws IOException {
+        out.write("\n" +
+                "    public Object lookup(String ctx, String id) {\n" +
+                "        if (ctx == null) {\n" +
+                "            return lookup(id);\n" +
+                "        }\n"
+        );
+        switch (options.getStorage()) {
+            case HASH_MAP:
+                out.write("        return id != null ? Contexts.index.get(ctx, id, keyHash(ctx, id)) : null;\n" +
+                        "    }\n" +
+                        "\n" +
+                        "    private static final class Contexts {\n" +
+                        "        static final ContextIndex index = new ContextIndex(" + className + ".table);\n" +
+                        "    }\n"
+                );
+                writeKeyHash(out);
+                writeContextIndex(out);
+                writeCompareKey(out);
+                break;
+            case SORTED_ARRAY:
+            case RESOURCE:
+                out.write("        if (id == null) {\n" +
+                        "            return null;\n" +
+                        "        }\n" +
+                        "        int low = 0;\n" +
+                        "        int high = keys.length - 1;\n" +
+                        "        while (low <= high) {\n" +
+                        "            int middle = (low + high) >>> 1;\n" +
+                        "            int comparison = compareKey(keys[middle], ctx, id);\n" +
+                        "            if (comparison < 0) {\n" +
+                        "                low = middle + 1;\n" +
+                        "            } else if (comparison > 0) {\n" +
+                        "                high = middle - 1;\n" +
+                        "            } else {\n" +
+                        "                return values[middle];\n" +
+                        "            }\n" +
+                        "        }\n" +
+                        "        return null;\n" +
+                        "    }\n"
+                );
+                writeCompareKey(out);
+                break;
+            case LAZY_CHUNKS:
+                int chunkCount = getChunkCount();
+                out.write("        if (id == null) {\n" +
+                        "            return null;\n" +
+                        "        }\n" +
+                        "        int hash = keyHash(ctx, id);\n" +
+                        "        return contextChunk((hash & 0x7fffffff) % CHUNK_COUNT).get(ctx, id, hash);\n" +
+                        "    }\n"
+                );
+                writeKeyHash(out);
+                out.write("\n" +
+                        "    private static ContextIndex contextChunk(int index) {\n" +
+                        "        switch (index) {\n"
+                );
+                for (int i = 0; i < chunkCount; ++i) {
+                    out.write("            case " + i + ":\n" +
+                            "                return ContextChunk_" + i + ".index;\n"
+                    );
+                }
+                out.write("            default:\n" +
+                        "                throw new IllegalArgumentException(\"Invalid chunk index: \" + index);\n" +
+                        "        }\n" +
+                        "    }\n"
+                );
+                for (int i = 0; i < chunkCount; ++i) {
+                    out.write("\n" +
+                            "    private static final class ContextChunk_" + i + " {\n" +
+                            "        static final ContextIndex index = new ContextIndex(Chunk_" + i + ".table);\n" +
+                            "    }\n"
+                    );
+                }
+                writeContextIndex(out);
+                writeCompareKey(out);
+                break;
+            case MAPPED:
+                out.write("        return id != null ? catalog.lookupValue(ctx + \"\\u0004\" + id) : null;\n" +
+                        "    }\n"
+                );
+                break;
         }
-        sb.append("\n" +
+    }
+
+    /**
+     * Writes {@code compareKey(key, ctx, id)}, which compares a key with the key made of the context and the id without
+     * building the latter.
+     */
+    private static void writeCompareKey(@NotNull Writer out) throws IOException {
+        out.write("\n" +
+                "    /**\n" +
+                "     * Same as {@code key.compareTo(ctx + \"\\u0004\" + id)}.\n" +
+                "     */\n" +
+                "    private static int compareKey(String key, String ctx, String id) {\n" +
+                "        int ctxLength = ctx.length();\n" +
+                "        int length = Math.min(key.length(), ctxLength);\n" +
+                "        for (int i = 0; i < length; ++i) {\n" +
+                "            int difference = key.charAt(i) - ctx.charAt(i);\n" +
+                "            if (difference != 0) {\n" +
+                "                return difference;\n" +
+                "            }\n" +
+                "        }\n" +
+                "        if (key.length() <= ctxLength) {\n" +
+                "            // The key is a prefix of the context\n" +
+                "            return -1;\n" +
+                "        }\n" +
+                "        int difference = key.charAt(ctxLength) - '\\u0004';\n" +
+                "        if (difference != 0) {\n" +
+                "            return difference;\n" +
+                "        }\n" +
+                "        int offset = ctxLength + 1;\n" +
+                "        length = Math.min(key.length() - offset, id.length());\n" +
+                "        for (int i = 0; i < length; ++i) {\n" +
+                "            difference = key.charAt(offset + i) - id.charAt(i);\n" +
+                "            if (difference != 0) {\n" +
+                "                return difference;\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return key.length() - offset - id.length();\n" +
+                "    }\n"
+        );
+    }
+
+    private static void writeKeyHash(@NotNull Writer out) throws IOException {
+        out.write("\n" +
+                "    /**\n" +
+                "     * Same as {@code (ctx + \"\\u0004\" + id).hashCode()}.\n" +
+                "     */\n" +
+                "    private static int keyHash(String ctx, String id) {\n" +
+                "        int power = 1;\n" +
+                "        int base = 31;\n" +
+                "        for (int exponent = id.length(); exponent != 0; exponent >>>= 1) {\n" +
+                "            if ((exponent & 1) != 0) {\n" +
+                "                power *= base;\n" +
+                "            }\n" +
+                "            base *= base;\n" +
+                "        }\n" +
+                "        return (ctx.hashCode() * 31 + '\\u0004') * power + id.hashCode();\n" +
+                "    }\n"
+        );
+    }
+
+    /**
+     * Writes the index of keys with context of a table. It holds the same key strings as the table, so it only adds
+     * two arrays of references, and is probed by the hash code computed from the context and the id.
+     */
+    private static void writeContextIndex(@NotNull Writer out) throws IOException {
+        out.write("\n" +
+                "    private static final class ContextIndex {\n" +
+                "        // Keys and their values in open addressing slots selected by hash codes of the keys\n" +
+                "        private final String[] keys;\n" +
+                "        private final Object[] values;\n" +
+                "\n" +
+                "        ContextIndex(java.util.Map<String, Object> table) {\n" +
+                "            int capacity = Integer.highestOneBit(Math.max(2, 2 * table.size()) - 1) << 1;\n" +
+                "            keys = new String[capacity];\n" +
+                "            values = new Object[capacity];\n" +
+                "            for (java.util.Map.Entry<String, Object> entry : table.entrySet()) {\n" +
+                "                String key = entry.getKey();\n" +
+                "                // Keys without context are found by lookup(String)\n" +
+                "                if (key.indexOf('\\u0004') != -1) {\n" +
+                "                    int hash = key.hashCode();\n" +
+                "                    int slot = (hash ^ hash >>> 16) & (capacity - 1);\n" +
+                "                    while (keys[slot] != null) {\n" +
+                "                        slot = (slot + 1) & (capacity - 1);\n" +
+                "                    }\n" +
+                "                    keys[slot] = key;\n" +
+                "                    values[slot] = entry.getValue();\n" +
+                "                }\n" +
+                "            }\n" +
+                "        }\n" +
+                "\n" +
+                "        /**\n" +
+                "         * @param hash {@code keyHash(ctx, id)}\n" +
+                "         */\n" +
+                "        Object get(String ctx, String id, int hash) {\n" +
+                "            int mask = keys.length - 1;\n" +
+                "            for (int slot = (hash ^ hash >>> 16) & mask; keys[slot] != null; slot = (slot + 1) & mask) {\n" +
+                "                if (keys[slot].hashCode() == hash && compareKey(keys[slot], ctx, id) == 0) {\n" +
+                "                    return values[slot];\n" +
+                "                }\n" +
+                "            }\n" +
+                "            return null;\n" +
+                "        }\n" +
+                "    }\n"
+        );
+    }
+
+    @NotNull
+    private String getBanner() {
+        return getBanner(options);
+    }
+
+    @NotNull
+    private static String getBanner(@NotNull GeneratorOptions options) {
+        String version = options.isOmitVersion() ? "" : " version " + JavaGenerator.class.getPackage().getImplementationVersion();
+        return "/* Automatically generated by com.indigobyte.maven.plugins:cc-validate-po-maven-plugin" + version + " */\n";
+    }
+
+    /**
+     * @return keys of all messages added to the generator, in sorted order
+     */
+    @NotNull
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(initLines.keySet());
+    }
+
+    /**
+     * Writes the key index shared by bundles of all locales generated by
+     * {@link #writeLocaleColumn(Writer, String, String, String, List, PluralFormula, String)}. It holds every key once
+     * and maps it to its id, which is the index of the key in {@code keys} and of its translation in the value column of
+     * each locale.
+     *
+     * @param keys sorted keys of messages of all locales
+     */
+    public static void writeKeyIndex(
+            @NotNull Writer out,
+            @NotNull GeneratorOptions options,
+            @NotNull String fullPackagePath,
+            @NotNull String className,
+            @NotNull List<String> keys,
+            @NotNull String configurationHash
+    ) throws IOException {
+        out.write(getBanner(options) +
+                CONFIGURATION_HASH_PREFIX + configurationHash + " */\n" +
+                "package " + fullPackagePath + ";\n" +
+                "\n" +
+                "public final class " + className + " {\n" +
+                "    public static final int SIZE = " + keys.size() + ";\n" +
+                "    private static final String[] keys = new String[SIZE];\n"
+        );
+        writeKeys(out, keys, 0);
+        out.write("    private " + className + "() {\n" +
+                "    }\n" +
+                "\n" +
+                "    public static String getKey(int id) {\n" +
+                "        return keys[id];\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return id of the key, or {@code -1} if there is no such key\n" +
+                "     */\n" +
+                "    public static int indexOf(String msgid) {\n" +
+                "        if (msgid == null) {\n" +
+                "            return -1;\n" +
+                "        }\n" +
+                "        int index = java.util.Arrays.binarySearch(keys, msgid);\n" +
+                "        return index >= 0 ? index : -1;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return id of the key made of the context and the id, or {@code -1} if there is no such key\n" +
+                "     */\n" +
+                "    public static int indexOf(String ctx, String id) {\n" +
+                "        if (ctx == null) {\n" +
+                "            return indexOf(id);\n" +
+                "        }\n" +
+                "        if (id == null) {\n" +
+                "            return -1;\n" +
+                "        }\n" +
+                "        int low = 0;\n" +
+                "        int high = keys.length - 1;\n" +
+                "        while (low <= high) {\n" +
+                "            int middle = (low + high) >>> 1;\n" +
+                "            int comparison = compareKey(keys[middle], ctx, id);\n" +
+                "            if (comparison < 0) {\n" +
+                "                low = middle + 1;\n" +
+                "            } else if (comparison > 0) {\n" +
+                "                high = middle - 1;\n" +
+                "            } else {\n" +
+                "                return middle;\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return -1;\n" +
+                "    }\n"
+        );
+        writeCompareKey(out);
+        out.write("}\n");
+    }
+
+    /**
+     * Writes bundle of a single locale which holds only translations, in the order of ids of their keys in the key
+     * index written by {@link #writeKeyIndex(Writer, GeneratorOptions, String, String, List, String)}. Messages which
+     * are missing in this locale have no translation and are looked up in the parent bundle.
+     *
+     * @param keys the same keys which were passed to the key index
+     */
+    public void writeLocaleColumn(
+            @NotNull Writer out,
+            @NotNull String fullPackagePath,
+            @NotNull String className,
+            @NotNull String indexClassName,
+            @NotNull List<String> keys,
+            @NotNull PluralFormula pluralFormula,
+            @NotNull String configurationHash
+    ) throws IOException {
+        out.write(getBanner() +
+                CONFIGURATION_HASH_PREFIX + configurationHash + " */\n" +
+                "package " + fullPackagePath + ";\n" +
+                "\n" +
+                "public class " + className + " extends java.util.ResourceBundle {\n"
+        );
+        Map<List<String>, String> sharedForms = getSharedForms();
+        int sharedFormsConstantCount = writeSharedForms(out, sharedForms);
+        out.write("    private static final Object[] values = new Object[" + indexClassName + ".SIZE];\n");
+        // Ids of keys which have translations in this locale
+        List<Integer> ids = new ArrayList<>(initLines.size());
+        for (int id = 0; id < keys.size(); ++id) {
+            if (initLines.containsKey(keys.get(id))) {
+                ids.add(id);
+            }
+        }
+        StaticInitializerWriter.write(out, "Object[] values", "values", sharedFormsConstantCount, new StaticInitializerWriter.Statements() {
+            @Override
+            public int size() {
+                return ids.size();
+            }
+
+            @Override
+            public void write(@NotNull StaticInitializerWriter.Code code, int index) throws IOException {
+                int id = ids.get(index);
+                code.startStatement();
+                writeArrayElement(code, "values", id);
+                writeValue(code, initLines.get(keys.get(id)), sharedForms);
+                code.endStatement();
+            }
+        });
+        writePluralSelection(out, pluralFormula);
+        out.write("\n" +
+                "    /**\n" +
+                "     * @param id id of the key in {@link " + indexClassName + "}\n" +
+                "     * @return translation of the key, {@code String[]} of plural forms if it has them, or {@code null} if\n" +
+                "     * there is no such key. Arrays of plural forms may be shared by several messages and must not be modified.\n" +
+                "     */\n" +
+                "    public Object lookup(int id) {\n" +
+                "        return values[id];\n" +
+                "    }\n" +
+                "\n" +
+                LOOKUP_JAVADOC +
                 "    public Object lookup(String msgid) {\n" +
-                "        return table.get(msgid);\n" +
+                "        int id = " + indexClassName + ".indexOf(msgid);\n" +
+                "        return id >= 0 ? values[id] : null;\n" +
+                "    }\n" +
+                "\n" +
+                "    public Object lookup(String ctx, String id) {\n" +
+                "        int index = " + indexClassName + ".indexOf(ctx, id);\n" +
+                "        return index >= 0 ? values[index] : null;\n" +
                 "    }\n" +
                 "\n" +
                 "    public Object handleGetObject(String msgid) throws java.util.MissingResourceException {\n" +
@@ -97,14 +668,801 @@ public class JavaGenerator {
                 "    }\n" +
                 "\n" +
                 "    public java.util.Enumeration<String> getKeys() {\n" +
-                "        return java.util.Collections.enumeration(table.keySet());\n" +
-                "    }\n" +
-                "\n" +
+                "        java.util.ArrayList<String> keys = new java.util.ArrayList<>(" + initLines.size() + ");\n" +
+                "        for (int id = 0; id < values.length; ++id) {\n" +
+                "            if (values[id] != null) {\n" +
+                "                keys.add(" + indexClassName + ".getKey(id));\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return java.util.Collections.enumeration(keys);\n" +
+                "    }\n"
+        );
+        writeFormatMethods(out);
+        writeConstructors(out, className);
+        out.write("\n" +
                 "    public java.util.ResourceBundle getParent() {\n" +
                 "        return parent;\n" +
                 "    }\n" +
                 "}\n"
         );
-        return sb.toString();
+    }
+
+    /**
+     * Writes methods which format translations with precompiled templates, if the formatter class is set.
+     */
+    private void writeFormatMethods(@NotNull Writer out) throws IOException {
+        String formatterClass = options.getFormatterClass();
+        if (formatterClass == null) {
+            return;
+        }
+        Set<String> translations = new HashSet<>();
+        for (Object value : initLines.values()) {
+            if (value instanceof String) {
+                translations.add((String) value);
+            } else {
+                translations.addAll(getForms(value));
+            }
+        }
+        FormatTemplateWriter.writeFormatMethods(out, formatterClass, translations);
+    }
+
+    /**
+     * Writes the formatter class, which renders precompiled templates of translations written to bundles by
+     * {@link FormatTemplateWriter#writeFormatMethods(Writer, String, Collection)}. It doesn't depend on messages, so
+     * the same class is used by bundles of all languages.
+     */
+    public static void writeFormatterClass(
+            @NotNull Writer out,
+            @NotNull GeneratorOptions options,
+            @NotNull String fullPackagePath,
+            @NotNull String className
+    ) throws IOException {
+        out.write(getBanner(options));
+        if (!fullPackagePath.isEmpty()) {
+            out.write("package " + fullPackagePath + ";\n" +
+                    "\n"
+            );
+        }
+        FormatTemplateWriter.writeFormatterClass(out, className);
+    }
+
+    /**
+     * Writes the reader class of {@code .mo} files written by {@link MoFileWriter}, which doesn't depend on messages.
+     */
+    public static void writeMoReaderClass(
+            @NotNull Writer out,
+            @NotNull GeneratorOptions options,
+            @NotNull String fullPackagePath,
+            @NotNull String className
+    ) throws IOException {
+        out.write(getBanner(options));
+        if (!fullPackagePath.isEmpty()) {
+            out.write("package " + fullPackagePath + ";\n" +
+                    "\n"
+            );
+        }
+        MoFileWriter.writeReaderClass(out, className);
+    }
+
+    /**
+     * Writes constructor which sets the parent bundle, used by the factory class. The constructor without arguments
+     * is kept for {@link java.util.ResourceBundle#getBundle(String)}.
+     */
+    private void writeConstructors(@NotNull Writer out, @NotNull String className) throws IOException {
+        if (options.getFactoryClass() == null) {
+            return;
+        }
+        out.write("\n" +
+                "    public " + className + "() {\n" +
+                "    }\n" +
+                "\n" +
+                "    public " + className + "(java.util.ResourceBundle parent) {\n" +
+                "        setParent(parent);\n" +
+                "    }\n"
+        );
+    }
+
+    /**
+     * Writes the factory class, which creates bundles of all languages without reflection and locking. Each bundle is
+     * held by its own holder class, so it is created on first access, and its parent, the bundle of the closest more
+     * general language (e.g. {@code de} for {@code de_AT}), is chosen at generation time.
+     * <p>
+     * Bundles are found for a locale the same way as by {@link java.util.ResourceBundle#getBundle(String)}: from the
+     * most specific language of the locale to the most general one, then the same for the default locale.
+     *
+     * @param resourceName full name of the resource bundle
+     * @param languages    languages of all bundles
+     */
+    public static void writeFactoryClass(
+            @NotNull Writer out,
+            @NotNull GeneratorOptions options,
+            @NotNull String fullPackagePath,
+            @NotNull String className,
+            @NotNull String resourceName,
+            @NotNull Collection<String> languages
+    ) throws IOException {
+        Set<String> sortedLanguages = new TreeSet<>(languages);
+        out.write(getBanner(options));
+        if (!fullPackagePath.isEmpty()) {
+            out.write("package " + fullPackagePath + ";\n" +
+                    "\n"
+            );
+        }
+        out.write("public final class " + className + " {\n" +
+                "    private " + className + "() {\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return bundle of the most specific language of the locale, or of the default locale if there is no such\n" +
+                "     * bundle\n" +
+                "     * @throws java.util.MissingResourceException if there is no bundle for either locale\n" +
+                "     */\n" +
+                "    public static java.util.ResourceBundle getBundle(java.util.Locale locale) {\n" +
+                "        java.util.ResourceBundle bundle = findBundle(locale);\n" +
+                "        if (bundle == null) {\n" +
+                "            bundle = findBundle(java.util.Locale.getDefault());\n" +
+                "        }\n" +
+                "        if (bundle == null) {\n" +
+                "            throw new java.util.MissingResourceException(\"Can't find bundle for base name " + resourceName + ", locale \" + locale, \"" + resourceName + "_\" + locale, \"\");\n" +
+                "        }\n" +
+                "        return bundle;\n" +
+                "    }\n" +
+                "\n" +
+                "    private static java.util.ResourceBundle findBundle(java.util.Locale locale) {\n" +
+                "        String language = locale.getLanguage();\n" +
+                "        String country = locale.getCountry();\n" +
+                "        String variant = locale.getVariant();\n" +
+                "        java.util.ResourceBundle bundle = null;\n" +
+                "        if (!variant.isEmpty()) {\n" +
+                "            bundle = forLanguage(language + \"_\" + country + \"_\" + variant);\n" +
+                "        }\n" +
+                "        if (bundle == null && !country.isEmpty()) {\n" +
+                "            bundle = forLanguage(language + \"_\" + country);\n" +
+                "        }\n" +
+                "        return bundle != null ? bundle : forLanguage(language);\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param language language of the bundle as it was passed to the generator, e.g. {@code de} or {@code de_AT}\n" +
+                "     * @return the bundle, or {@code null} if there is no bundle of this language\n" +
+                "     */\n" +
+                "    public static java.util.ResourceBundle forLanguage(String language) {\n" +
+                "        if (language == null) {\n" +
+                "            return null;\n" +
+                "        }\n" +
+                "        switch (language) {\n"
+        );
+        for (String language : sortedLanguages) {
+            out.write("            case ");
+            writeJavaEscapedString(out, language);
+            out.write(":\n" +
+                    "                return Bundle_" + language + ".BUNDLE;\n"
+            );
+        }
+        out.write("            default:\n" +
+                "                return null;\n" +
+                "        }\n" +
+                "    }\n"
+        );
+        String bundlePrefix = resourceName + "_";
+        for (String language : sortedLanguages) {
+            String parentLanguage = getParentLanguage(language, sortedLanguages);
+            out.write("\n" +
+                    "    private static final class Bundle_" + language + " {\n" +
+                    "        static final java.util.ResourceBundle BUNDLE = new " + bundlePrefix + language + "(" + (parentLanguage != null ? "Bundle_" + parentLanguage + ".BUNDLE" : "null") + ");\n" +
+                    "    }\n"
+            );
+        }
+        out.write("}\n");
+    }
+
+    /**
+     * @return the closest more general language which has a bundle, e.g. {@code de} for {@code de_AT_1901} if there is no
+     * {@code de_AT}, or {@code null} if there is no such language
+     */
+    @Nullable
+    static String getParentLanguage(@NotNull String language, @NotNull Set<String> languages) {
+        for (int separatorPos = language.lastIndexOf('_'); separatorPos > 0; separatorPos = language.lastIndexOf('_', separatorPos - 1)) {
+            String parentLanguage = language.substring(0, separatorPos);
+            if (languages.contains(parentLanguage)) {
+                return parentLanguage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes implementation of the {@code Bundle} interface of the accessor class. Slots are resolved once per bundle
+     * instance, on first access, and messages missing in this bundle are taken from the parent one, as
+     * {@link java.util.ResourceBundle#getObject(String)} does. Concurrent first accesses may resolve slots more than
+     * once, but always to the same values.
+     */
+    private static void writeSlots(@NotNull Writer out, @NotNull String accessorClass) throws IOException {
+        out.write("\n" +
+                "    private volatile Object[] slots;\n" +
+                "\n" +
+                "    public Object getSlot(int slot) {\n" +
+                "        Object[] result = slots;\n" +
+                "        if (result == null) {\n" +
+                "            result = new Object[" + accessorClass + ".SLOT_COUNT];\n" +
+                "            " + accessorClass + ".Bundle parentBundle = parent instanceof " + accessorClass + ".Bundle ? (" + accessorClass + ".Bundle) parent : null;\n" +
+                "            for (int i = 0; i < result.length; ++i) {\n" +
+                "                result[i] = lookup(" + accessorClass + ".getKey(i));\n" +
+                "                if (result[i] == null && parentBundle != null) {\n" +
+                "                    result[i] = parentBundle.getSlot(i);\n" +
+                "                }\n" +
+                "            }\n" +
+                "            slots = result;\n" +
+                "        }\n" +
+                "        return result[slot];\n" +
+                "    }\n"
+        );
+    }
+
+    /**
+     * Writes the accessor class, which has an {@code int} constant for every message. Constants are indices of slots
+     * in bundles generated with the same accessor class, so a message can be obtained without building and hashing its
+     * key, and a reference to a removed message doesn't compile.
+     * <p>
+     * Slots are assigned in the order of keys, so all catalogs which share the accessor class must have the same
+     * messages.
+     *
+     * @throws IllegalStateException if there are too many messages for constants of a single class
+     */
+    public void writeAccessorClass(@NotNull Writer out, @NotNull String fullPackagePath, @NotNull String className) throws IOException {
+        // Each constant has its name and value in the constant pool, unlike keys they can't be moved to holder classes
+        int constantCount = 2 * initLines.size();
+        if (constantCount > StaticInitializerWriter.MAX_RESERVED_CONSTANT_COUNT) {
+            throw new IllegalStateException("Accessor class " + className + " can't have constants of " + initLines.size() + " messages, at most " + StaticInitializerWriter.MAX_RESERVED_CONSTANT_COUNT / 2 + " are supported");
+        }
+        out.write(getBanner());
+        if (!fullPackagePath.isEmpty()) {
+            out.write("package " + fullPackagePath + ";\n" +
+                    "\n"
+            );
+        }
+        out.write("public final class " + className + " {\n" +
+                "    /**\n" +
+                "     * Implemented by bundles generated with this accessor class.\n" +
+                "     */\n" +
+                "    public interface Bundle {\n" +
+                "        Object getSlot(int slot);\n" +
+                "    }\n" +
+                "\n" +
+                "    public static final int SLOT_COUNT = " + initLines.size() + ";\n"
+        );
+        Set<String> usedNames = new HashSet<>();
+        usedNames.add("SLOT_COUNT");
+        int slot = 0;
+        for (String key : initLines.keySet()) {
+            out.write("    public static final int " + getConstantName(key, usedNames) + " = " + slot++ + ";\n");
+        }
+        out.write("\n" +
+                "    private static final String[] keys = new String[SLOT_COUNT];\n"
+        );
+        writeKeys(out, new ArrayList<>(initLines.keySet()), constantCount);
+        out.write("    private " + className + "() {\n" +
+                "    }\n" +
+                "\n" +
+                "    public static String getKey(int slot) {\n" +
+                "        return keys[slot];\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return translation of the message, or its first form if the message has plural forms\n" +
+                "     */\n" +
+                "    public static String getString(java.util.ResourceBundle bundle, int slot) {\n" +
+                "        Object value = getObject(bundle, slot);\n" +
+                "        return value instanceof String[] ? ((String[]) value)[0] : (String) value;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return all plural forms of the message. The array may be shared by several messages and must not be\n" +
+                "     * modified.\n" +
+                "     */\n" +
+                "    public static String[] getPluralForms(java.util.ResourceBundle bundle, int slot) {\n" +
+                "        Object value = getObject(bundle, slot);\n" +
+                "        return value instanceof String[] ? (String[]) value : new String[]{(String) value};\n" +
+                "    }\n" +
+                "\n" +
+                "    private static Object getObject(java.util.ResourceBundle bundle, int slot) {\n" +
+                "        Object value = ((Bundle) bundle).getSlot(slot);\n" +
+                "        if (value == null) {\n" +
+                "            throw new java.util.MissingResourceException(\"Can't find resource for bundle \" + bundle.getClass().getName() + \", key \" + keys[slot], bundle.getClass().getName(), keys[slot]);\n" +
+                "        }\n" +
+                "        return value;\n" +
+                "    }\n" +
+                "}\n"
+        );
+    }
+
+    /**
+     * @return unique constant name made of ASCII letters and digits of the context and the id of the message
+     */
+    @NotNull
+    static String getConstantName(@NotNull String key, @NotNull Set<String> usedNames) {
+        StringBuilder name = new StringBuilder();
+        boolean separator = false;
+        for (int i = 0; i < key.length() && name.length() < MAX_CONSTANT_NAME_LENGTH; ++i) {
+            char c = key.charAt(i);
+            if (c == '\u0004') {
+                // Context is separated from the id by a double underscore
+                name.append(name.length() > 0 ? "__" : "");
+                separator = false;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                if (separator && name.length() > 0 && name.charAt(name.length() - 1) != '_') {
+                    name.append('_');
+                }
+                separator = false;
+                name.append(Character.toUpperCase(c));
+            } else {
+                separator = true;
+            }
+        }
+        if (name.length() == 0 || Character.isDigit(name.charAt(0))) {
+            name.insert(0, "MESSAGE_");
+        }
+        String baseName = name.toString();
+        String uniqueName = baseName;
+        for (int suffix = 2; !usedNames.add(uniqueName); ++suffix) {
+            uniqueName = baseName + "_" + suffix;
+        }
+        return uniqueName;
+    }
+
+    /**
+     * Writes static initializer which fills the table in {@code clinit_part_N} methods, split by
+     * {@link StaticInitializerWriter}.
+     */
+    private void writeClinitParts(
+            @NotNull Writer out,
+            @NotNull Map<List<String>, String> sharedForms,
+            int sharedFormsConstantCount
+    ) throws IOException {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(initLines.entrySet());
+        String parameters;
+        String arguments;
+        switch (options.getStorage()) {
+            case HASH_MAP:
+                parameters = "java.util.HashMap<String, Object> table";
+                arguments = "table";
+                break;
+            case SORTED_ARRAY:
+                parameters = "String[] keys, Object[] values";
+                arguments = "keys, values";
+                break;
+            default:
+                throw new IllegalStateException("Storage " + options.getStorage() + " doesn't use clinit_part_N methods");
+        }
+        StaticInitializerWriter.write(out, parameters, arguments, sharedFormsConstantCount, new StaticInitializerWriter.Statements() {
+            @Override
+            public int size() {
+                return entries.size();
+            }
+
+            @Override
+            public void write(@NotNull StaticInitializerWriter.Code code, int index) throws IOException {
+                Map.Entry<String, Object> entry = entries.get(index);
+                code.startStatement();
+                if (options.getStorage() == BundleStorage.HASH_MAP) {
+                    // getstatic of the table before the arguments, invokevirtual and pop after them
+                    code.write("table.put(", 3);
+                    code.writeString(entry.getKey());
+                    code.write(", ", 0);
+                    writeValue(code, entry.getValue(), sharedForms);
+                    code.write(")", 4);
+                } else {
+                    writeArrayElement(code, "keys", index);
+                    code.writeString(entry.getKey());
+                    code.endStatement();
+                    code.startStatement();
+                    writeArrayElement(code, "values", index);
+                    writeValue(code, entry.getValue(), sharedForms);
+                }
+                code.endStatement();
+            }
+        });
+    }
+
+    /**
+     * Writes static initializer which fills {@code keys} array in {@code clinit_part_N} methods.
+     *
+     * @param reservedConstantCount constants used by the rest of the class
+     */
+    private static void writeKeys(@NotNull Writer out, @NotNull List<String> keys, int reservedConstantCount) throws IOException {
+        StaticInitializerWriter.write(out, "String[] keys", "keys", reservedConstantCount, new StaticInitializerWriter.Statements() {
+            @Override
+            public int size() {
+                return keys.size();
+            }
+
+            @Override
+            public void write(@NotNull StaticInitializerWriter.Code code, int index) throws IOException {
+                code.startStatement();
+                writeArrayElement(code, "keys", index);
+                code.writeString(keys.get(index));
+                code.endStatement();
+            }
+        });
+    }
+
+    /**
+     * Writes left-hand side of an assignment to an element of an array.
+     */
+    private static void writeArrayElement(@NotNull StaticInitializerWriter.Code code, @NotNull String array, int index) throws IOException {
+        // getstatic of the array, and aastore after the value
+        code.write(array + "[", 4);
+        code.writeInt(index);
+        code.write("] = ", 0);
+    }
+
+    /**
+     * @return index of the chunk which holds the key, must match {@code lookup()} generated for
+     * {@link BundleStorage#LAZY_CHUNKS}
+     */
+    private static int getChunkIndex(@NotNull String key, int chunkCount) {
+        return (key.hashCode() & 0x7fffffff) % chunkCount;
+    }
+
+    private int getChunkCount() {
+        return Math.max(1, (initLines.size() + LAZY_CHUNK_SIZE - 1) / LAZY_CHUNK_SIZE);
+    }
+
+    /**
+     * Writes a nested holder class per chunk of entries. Entries are assigned to chunks by the hash code of their
+     * keys, and each chunk is loaded when its holder class is first accessed. Class initialization guarantees safe
+     * publication, and once initialized, access to the chunk needs no locking.
+     * <p>
+     * The number of entries only bounds the size of a chunk on average: keys with equal hash codes share a chunk, and
+     * long strings and plural forms make entries larger. So every chunk is filled by {@link StaticInitializerWriter}
+     * as well.
+     */
+    private void writeLazyChunks(@NotNull Writer out, @NotNull Map<List<String>, String> sharedForms) throws IOException {
+        int chunkCount = getChunkCount();
+        List<List<Map.Entry<String, Object>>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; ++i) {
+            chunks.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, Object> entry : initLines.entrySet()) {
+            chunks.get(getChunkIndex(entry.getKey(), chunkCount)).add(entry);
+        }
+        out.write("    private static final int CHUNK_COUNT = " + chunkCount + ";\n" +
+                "\n" +
+                "    private static java.util.Map<String, Object> chunk(int index) {\n" +
+                "        switch (index) {\n"
+        );
+        for (int i = 0; i < chunkCount; ++i) {
+            out.write("            case " + i + ":\n" +
+                    "                return Chunk_" + i + ".table;\n"
+            );
+        }
+        out.write("            default:\n" +
+                "                throw new IllegalArgumentException(\"Invalid chunk index: \" + index);\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n"
+        );
+        for (int i = 0; i < chunkCount; ++i) {
+            List<Map.Entry<String, Object>> chunk = chunks.get(i);
+            out.write("    private static final class Chunk_" + i + " {\n" +
+                    "        static final java.util.HashMap<String, Object> table = new java.util.HashMap<>(" + getTableCapacity(chunk.size()) + ");\n"
+            );
+            StaticInitializerWriter.write(out, "        ", "java.util.HashMap<String, Object> table", "table", CHUNK_CONSTANT_COUNT, new StaticInitializerWriter.Statements() {
+                @Override
+                public int size() {
+                    return chunk.size();
+                }
+
+                @Override
+                public void write(@NotNull StaticInitializerWriter.Code code, int index) throws IOException {
+                    Map.Entry<String, Object> entry = chunk.get(index);
+                    code.startStatement();
+                    // getstatic of the table before the arguments, invokevirtual and pop after them
+                    code.write("table.put(", 3);
+                    code.writeString(entry.getKey());
+                    code.write(", ", 0);
+                    writeValue(code, entry.getValue(), sharedForms);
+                    code.write(")", 4);
+                    code.endStatement();
+                }
+            });
+            out.write("    }\n" +
+                    "\n"
+            );
+        }
+    }
+
+    /**
+     * Writes static initializer which reads the whole resource written by {@link #writeResource(OutputStream)} with a
+     * single bulk read and decodes it into sorted keys and parallel values. Identical translations and plural forms are
+     * decoded once and shared by all messages which use them.
+     */
+    private void writeResourceLoading(@NotNull Writer out, @NotNull String className) throws IOException {
+        out.write("    private static final String[] keys;\n" +
+                "    private static final Object[] values;\n" +
+                "\n" +
+                "    static {\n" +
+                "        byte[] data = new byte[" + getResourceSize() + "];\n" +
+                "        try (java.io.InputStream in = " + className + ".class.getResourceAsStream(\"" + getResourceFileName(className, BundleStorage.RESOURCE) + "\")) {\n" +
+                "            if (in == null) {\n" +
+                "                throw new IllegalStateException(\"Resource " + getResourceFileName(className, BundleStorage.RESOURCE) + " was not found\");\n" +
+                "            }\n" +
+                "            new java.io.DataInputStream(in).readFully(data);\n" +
+                "        } catch (java.io.IOException e) {\n" +
+                "            throw new IllegalStateException(\"Unable to read resource " + getResourceFileName(className, BundleStorage.RESOURCE) + "\", e);\n" +
+                "        }\n" +
+                "        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.wrap(data);\n" +
+                "        if (buffer.getInt() != " + RESOURCE_MAGIC + " || buffer.getInt() != " + initLines.size() + ") {\n" +
+                "            throw new IllegalStateException(\"Resource " + getResourceFileName(className, BundleStorage.RESOURCE) + " doesn't match the class\");\n" +
+                "        }\n" +
+                "        String[] strings = new String[buffer.getInt()];\n" +
+                "        for (int i = 0; i < strings.length; ++i) {\n" +
+                "            strings[i] = readString(buffer);\n" +
+                "        }\n" +
+                "        String[][] formArrays = new String[buffer.getInt()][];\n" +
+                "        for (int i = 0; i < formArrays.length; ++i) {\n" +
+                "            String[] forms = new String[buffer.getInt()];\n" +
+                "            for (int j = 0; j < forms.length; ++j) {\n" +
+                "                forms[j] = strings[buffer.getInt()];\n" +
+                "            }\n" +
+                "            formArrays[i] = forms;\n" +
+                "        }\n" +
+                "        keys = new String[" + initLines.size() + "];\n" +
+                "        values = new Object[" + initLines.size() + "];\n" +
+                "        for (int i = 0; i < keys.length; ++i) {\n" +
+                "            keys[i] = readString(buffer);\n" +
+                "            int reference = buffer.getInt();\n" +
+                "            values[i] = reference >= 0 ? strings[reference] : formArrays[-reference - 1];\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n" +
+                "    private static String readString(java.nio.ByteBuffer buffer) {\n" +
+                "        int length = buffer.getInt();\n" +
+                "        String str = new String(buffer.array(), buffer.position(), length, java.nio.charset.StandardCharsets.UTF_8);\n" +
+                "        buffer.position(buffer.position() + length);\n" +
+                "        return str;\n" +
+                "    }\n" +
+                "\n"
+        );
+    }
+
+    /**
+     * Writes the field with the catalog which is memory-mapped from the resource written by
+     * {@link #writeResource(OutputStream)}. Keys and translations stay off the heap and are decoded on lookup by the
+     * reader class.
+     */
+    private void writeMappedCatalog(@NotNull Writer out, @NotNull String className) throws IOException {
+        String readerClass = options.getReaderClass();
+        if (readerClass == null) {
+            throw new IllegalStateException("Reader class must be set for " + BundleStorage.MAPPED + " storage");
+        }
+        String resourceFileName = getResourceFileName(className, BundleStorage.MAPPED);
+        out.write("    private static final " + readerClass + " catalog = " + readerClass + ".openResource(" + className + ".class, \"" + resourceFileName + "\", " + options.getMappedCacheSize() + ");\n" +
+                "\n" +
+                "    static {\n" +
+                "        if (catalog.size() != " + initLines.size() + ") {\n" +
+                "            throw new IllegalStateException(\"Resource " + resourceFileName + " doesn't match the class\");\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n"
+        );
+    }
+
+    /**
+     * Writes translations for {@link BundleStorage#MAPPED} storage as a {@code .mo} file, see
+     * {@link #writeMappedResource(OutputStream)}, or for {@link BundleStorage#RESOURCE} storage:
+     * <ul>
+     * <li>magic number and entry count,</li>
+     * <li>number of distinct strings used in translations and the strings,</li>
+     * <li>number of distinct arrays of plural forms and the arrays. Each of them is the number of forms and indices of
+     * the strings,</li>
+     * <li>entries sorted by key. Each entry is the key and the reference to the translation: index of the string, or
+     * {@code -1 - index} of the array of plural forms.</li>
+     * </ul>
+     * All numbers are big-endian ints, strings are UTF-8 bytes prefixed with their length.
+     */
+    public void writeResource(@NotNull OutputStream out) throws IOException {
+        if (options.getStorage() == BundleStorage.MAPPED) {
+            writeMappedResource(out);
+            return;
+        }
+        ValueTable valueTable = new ValueTable(initLines.values());
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(RESOURCE_MAGIC);
+        dataOut.writeInt(initLines.size());
+        dataOut.writeInt(valueTable.strings.size());
+        for (String str : valueTable.strings.keySet()) {
+            writeResourceString(dataOut, str);
+        }
+        dataOut.writeInt(valueTable.formArrays.size());
+        for (List<String> forms : valueTable.formArrays.keySet()) {
+            dataOut.writeInt(forms.size());
+            for (String form : forms) {
+                dataOut.writeInt(valueTable.strings.get(form));
+            }
+        }
+        for (Map.Entry<String, Object> entry : initLines.entrySet()) {
+            writeResourceString(dataOut, entry.getKey());
+            if (entry.getValue() instanceof String) {
+                dataOut.writeInt(valueTable.strings.get(entry.getValue()));
+            } else {
+                dataOut.writeInt(-1 - valueTable.formArrays.get(getForms(entry.getValue())));
+            }
+        }
+        dataOut.flush();
+    }
+
+    /**
+     * Writes all entries to a {@code .mo} file without header, with plural forms marked by an empty plural id, so the
+     * reader class tells them from single translations.
+     */
+    private void writeMappedResource(@NotNull OutputStream out) throws IOException {
+        MoFileWriter moFileWriter = new MoFileWriter();
+        for (Map.Entry<String, Object> entry : initLines.entrySet()) {
+            if (entry.getValue() instanceof String) {
+                moFileWriter.addTranslation(entry.getKey(), (String) entry.getValue());
+            } else {
+                moFileWriter.addPluralForms(entry.getKey(), getForms(entry.getValue()));
+            }
+        }
+        moFileWriter.write(out);
+    }
+
+    /**
+     * Distinct strings used in translations and distinct arrays of plural forms, mapped to their indices in the order
+     * of their first use.
+     */
+    private static class ValueTable {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<List<String>, Integer> formArrays = new LinkedHashMap<>();
+
+        ValueTable(@NotNull Collection<Object> values) {
+            for (Object value : values) {
+                if (value instanceof String) {
+                    strings.putIfAbsent((String) value, strings.size());
+                } else if (!formArrays.containsKey(getForms(value))) {
+                    formArrays.put(getForms(value), formArrays.size());
+                    for (String form : getForms(value)) {
+                        strings.putIfAbsent(form, strings.size());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeResourceString(@NotNull DataOutputStream out, @NotNull String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return size of the data written by {@link #writeResource(OutputStream)}
+     */
+    private long getResourceSize() {
+        ValueTable valueTable = new ValueTable(initLines.values());
+        long size = 4 * Integer.BYTES;
+        for (String str : valueTable.strings.keySet()) {
+            size += Integer.BYTES + getUtf8Length(str);
+        }
+        for (List<String> forms : valueTable.formArrays.keySet()) {
+            size += Integer.BYTES + forms.size() * Integer.BYTES;
+        }
+        for (String key : initLines.keySet()) {
+            size += Integer.BYTES + getUtf8Length(key) + Integer.BYTES;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Translations don't fit into a single resource: " + size + " bytes");
+        }
+        return size;
+    }
+
+    private static int getUtf8Length(@NotNull String str) {
+        int length = 0;
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                ++i;
+            } else {
+                // Lone surrogates are encoded as '?' by String.getBytes()
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    private static List<String> getForms(@NotNull Object value) {
+        return (List<String>) value;
+    }
+
+    /**
+     * Identical string literals are already shared through the constant pool, but every {@code new String[]{...}} is a
+     * new array, so plural forms which are used by more than one message are held in static fields.
+     *
+     * @return plural forms used by more than one message, mapped to the names of their fields
+     */
+    @NotNull
+    private Map<List<String>, String> getSharedForms() throws IOException {
+        Map<List<String>, Integer> useCounts = new HashMap<>();
+        for (Object value : initLines.values()) {
+            if (!(value instanceof String)) {
+                useCounts.merge(getForms(value), 1, Integer::sum);
+            }
+        }
+        // Fields are initialized in the static initializer of the class itself, so they are limited to a part of its
+        // constant pool and bytecode, and the rest of the forms are not shared
+        Set<Object> pool = new HashSet<>();
+        int constantCount = 0;
+        int codeSize = 0;
+        Map<List<String>, String> sharedForms = new LinkedHashMap<>();
+        for (Object value : initLines.values()) {
+            if (!(value instanceof String) && useCounts.get(getForms(value)) > 1 && !sharedForms.containsKey(getForms(value))) {
+                String name = "forms_" + sharedForms.size();
+                StaticInitializerWriter.Code code = new StaticInitializerWriter.Code(null, "");
+                writeSharedForms(code, name, getForms(value));
+                if (constantCount + code.getNewConstantCount(pool) > MAX_SHARED_FORMS_CONSTANT_COUNT || codeSize + code.getSize() > MAX_SHARED_FORMS_CODE_SIZE) {
+                    break;
+                }
+                constantCount += code.addConstants(pool);
+                codeSize += code.getSize();
+                sharedForms.put(getForms(value), name);
+            }
+        }
+        return sharedForms;
+    }
+
+    /**
+     * Writes fields which hold shared plural forms.
+     *
+     * @return number of constants used by the fields
+     */
+    private static int writeSharedForms(@NotNull Writer out, @NotNull Map<List<String>, String> sharedForms) throws IOException {
+        StaticInitializerWriter.Code code = new StaticInitializerWriter.Code(out, "    ");
+        for (Map.Entry<List<String>, String> entry : sharedForms.entrySet()) {
+            writeSharedForms(code, entry.getValue(), entry.getKey());
+        }
+        return code.getNewConstantCount(Collections.emptySet());
+    }
+
+    private static void writeSharedForms(@NotNull StaticInitializerWriter.Code code, @NotNull String name, @NotNull List<String> forms) throws IOException {
+        code.startStatement();
+        code.write("private static final String[] ", 0);
+        code.writeField(name);
+        code.write(" = ", 0);
+        writeForms(code, forms);
+        code.endStatement();
+    }
+
+    private static void writeValue(
+            @NotNull StaticInitializerWriter.Code code,
+            @NotNull Object value,
+            @NotNull Map<List<String>, String> sharedForms
+    ) throws IOException {
+        if (value instanceof String) {
+            code.writeString((String) value);
+        } else if (sharedForms.containsKey(getForms(value))) {
+            code.writeField(sharedForms.get(getForms(value)));
+        } else {
+            code.write("new String[]", 0);
+            writeForms(code, getForms(value));
+        }
+    }
+
+    private static void writeForms(@NotNull StaticInitializerWriter.Code code, @NotNull List<String> forms) throws IOException {
+        // Size of the array and anewarray
+        code.write("{", 6);
+        for (int i = 0; i < forms.size(); ++i) {
+            // dup, index of the element, and aastore after the element
+            code.write(i > 0 ? ", " : "", 5);
+            code.writeString(forms.get(i));
+        }
+        code.write("}", 0);
     }
 }
@@ -16,24 +16,53 @@ package com.indigobyte.maven.plugins;
  * limitations under the License.
  */
 
+import com.google.common.hash.Hashing;
+import com.indigobyte.helper.Utils;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.fedorahosted.tennera.jgettext.Catalog;
 import org.fedorahosted.tennera.jgettext.Message;
-import org.fedorahosted.tennera.jgettext.PoParser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
-@Mojo(name = "generate-java")
+@Mojo(name = "generate-java", threadSafe = true)
 public class JavaGeneratorMojo extends AbstractMojo {
 
     @Parameter(property = "outputDir", required = true)
@@ -45,102 +74,726 @@ public class JavaGeneratorMojo extends AbstractMojo {
     @Parameter(property = "resourceName", required = true)
     private String resourceName;
 
-    @Parameter(property = "language", required = true)
+    @Parameter(property = "language", required = false)
     private String language;
 
+    /**
+     * Languages to generate bundles for, instead of a single {@code language}.
+     */
+    @Parameter(property = "languages", required = false)
+    private List<String> languages;
+
+    /**
+     * Maximum number of bundles generated concurrently, {@code 0} means the number of available processors.
+     */
+    @Parameter(property = "threads", required = false, defaultValue = "0")
+    private int threads;
+
+    @Parameter(property = "omitVersion", required = false, defaultValue = "false")
+    private boolean omitVersion;
+
+    @Parameter(property = "storage", required = false, defaultValue = "HASH_MAP")
+    private BundleStorage storage;
+
+    @Parameter(property = "resourceOutputDir", required = false, defaultValue = "${project.build.outputDirectory}")
+    private String resourceOutputDir;
+
+    @Parameter(property = "accessorClass", required = false)
+    private String accessorClass;
+
+    /**
+     * Fully qualified name of the class which creates bundles of all languages. It knows only the languages generated
+     * in the same execution, so it requires {@code languages} or {@code {language}} in {@code poFileName}
+     * instead of a single {@code language}.
+     */
+    @Parameter(property = "factoryClass", required = false)
+    private String factoryClass;
+
+    @Parameter(property = "formatterClass", required = false)
+    private String formatterClass;
+
+    /**
+     * Fully qualified name of the class which reads catalogs of bundles with {@code MAPPED} storage.
+     */
+    @Parameter(property = "readerClass", required = false)
+    private String readerClass;
+
+    @Parameter(property = "mappedCacheSize", required = false, defaultValue = "0")
+    private int mappedCacheSize;
+
     @Parameter(property = "skip", required = false, defaultValue = "false")
     private boolean skip;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     public static void main(String[] args) throws MojoExecutionException {
-        if (args.length == 4) {
-            generateJavaFile(
+        GeneratorOptions options = args.length >= 4 ? parseOptions(args, 4) : null;
+        if (options != null) {
+            List<String> languages = Arrays.asList(args[2].split(","));
+            generateJavaFiles(
+                    new CatalogCache(),
                     args[0],
                     args[1],
-                    args[2],
-                    args[3]
+                    resolvePoFiles(languages.size() == 1 ? languages.get(0) : null, languages, args[3]),
+                    options,
+                    args[0],
+                    0,
+                    new SystemStreamLog()
             );
         } else {
-            System.out.println("Usage: java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.JavaGeneratorMojo <folder for generated Java files> <resource name> <language> <po file>\n" +
+            System.out.println("Usage: java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.JavaGeneratorMojo <folder for generated Java files> <resource name> <language>[,<language> ...] <po file> [<option>=<value> ...]\n" +
+                    "If several languages are given, " + LANGUAGE_PLACEHOLDER + " in the name of the po file is replaced by each of them.\n" +
+                    OPTIONS_USAGE +
                     "example:\n" +
-                    "java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.JavaGeneratorMojo ./i18n/generated com.indigobyte.i18n.messages en messages_en.po"
+                    "java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.JavaGeneratorMojo ./i18n/generated com.indigobyte.i18n.messages en messages_en.po storage=SORTED_ARRAY\n" +
+                    "java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.JavaGeneratorMojo ./i18n/generated com.indigobyte.i18n.messages en,de,fr messages_{language}.po"
             );
 
             System.exit(1);
         }
     }
 
-    private static void generateJavaFile(
+    static final String OPTIONS_USAGE = "where options are:\n" +
+            "    omitVersion=true|false - if \"true\", then plugin version is not written to the generated file, \"false\" by default.\n" +
+            "    storage=HASH_MAP|SORTED_ARRAY|RESOURCE|LAZY_CHUNKS|MAPPED - how translations are stored in the generated class, \"HASH_MAP\" by default.\n" +
+            "        With RESOURCE and MAPPED, binary resource with translations is written next to the generated Java file.\n" +
+            "    accessorClass=<fully qualified class name> - if set, class with slot constants for all messages is generated as well.\n" +
+            "    factoryClass=<fully qualified class name> - if set, class which creates bundles of all languages with their parents is generated as well.\n" +
+            "        It knows only the languages generated in the same execution.\n" +
+            "    formatterClass=<fully qualified class name> - if set, bundles have format() methods which use precompiled templates of translations,\n" +
+            "        and the class which renders them is generated as well.\n" +
+            "    readerClass=<fully qualified class name> - class which reads memory-mapped translations, required with MAPPED storage.\n" +
+            "    mappedCacheSize=<number> - number of translations kept on the heap by each bundle with MAPPED storage, 0 by default.\n";
+
+    /**
+     * @return options set from {@code args} starting from {@code offset}, or {@code null} if they are invalid
+     */
+    @Nullable
+    static GeneratorOptions parseOptions(@NotNull String[] args, int offset) {
+        GeneratorOptions options = new GeneratorOptions();
+        for (int i = offset; i < args.length; ++i) {
+            try {
+                options.setFromArgument(args[i]);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return null;
+            }
+        }
+        return options;
+    }
+
+    static final String LANGUAGE_PLACEHOLDER = "{language}";
+
+    /**
+     * @param language single language, or {@code null}
+     * @param languages languages, used if {@code language} is not set
+     * @param poFileName name of the .po file, in which {@link #LANGUAGE_PLACEHOLDER} is replaced by each language. If
+     *                   neither {@code language} nor {@code languages} are set, languages are those of all files
+     *                   matching this name with any text in place of the placeholder.
+     * @return languages mapped to their .po files
+     */
+    @NotNull
+    static Map<String, String> resolvePoFiles(@Nullable String language, @Nullable List<String> languages, @NotNull String poFileName) throws MojoExecutionException {
+        List<String> resolvedLanguages;
+        if (language != null && !language.isEmpty()) {
+            resolvedLanguages = Collections.singletonList(language);
+        } else if (languages != null && !languages.isEmpty()) {
+            resolvedLanguages = languages;
+        } else if (poFileName.contains(LANGUAGE_PLACEHOLDER)) {
+            resolvedLanguages = findLanguages(poFileName);
+        } else {
+            throw new MojoExecutionException("Either \"language\" or \"languages\" must be set, or \"poFileName\" must contain " + LANGUAGE_PLACEHOLDER);
+        }
+        if (resolvedLanguages.size() > 1 && !poFileName.contains(LANGUAGE_PLACEHOLDER)) {
+            throw new MojoExecutionException("\"poFileName\" must contain " + LANGUAGE_PLACEHOLDER + " when there are several languages: " + poFileName);
+        }
+        Map<String, String> poFiles = new LinkedHashMap<>();
+        for (String resolvedLanguage : resolvedLanguages) {
+            poFiles.put(resolvedLanguage, poFileName.replace(LANGUAGE_PLACEHOLDER, resolvedLanguage));
+        }
+        return poFiles;
+    }
+
+    /**
+     * @return sorted languages of all files matching {@code poFilePattern}
+     */
+    @NotNull
+    private static List<String> findLanguages(@NotNull String poFilePattern) throws MojoExecutionException {
+        Path patternPath = Paths.get(poFilePattern);
+        String fileNamePattern = patternPath.getFileName().toString();
+        int placeholderPos = fileNamePattern.indexOf(LANGUAGE_PLACEHOLDER);
+        if (placeholderPos == -1) {
+            throw new MojoExecutionException(LANGUAGE_PLACEHOLDER + " may only be used in the file name: " + poFilePattern);
+        }
+        String prefix = fileNamePattern.substring(0, placeholderPos);
+        String suffix = fileNamePattern.substring(placeholderPos + LANGUAGE_PLACEHOLDER.length());
+        Path dir = patternPath.getParent() != null ? patternPath.getParent() : Paths.get("");
+        List<String> languages = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.length() > prefix.length() + suffix.length() && fileName.startsWith(prefix) && fileName.endsWith(suffix) && Files.isRegularFile(file)) {
+                    languages.add(fileName.substring(prefix.length(), fileName.length() - suffix.length()));
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to list .po files matching " + poFilePattern, e);
+        }
+        if (languages.isEmpty()) {
+            throw new MojoExecutionException("No .po files match " + poFilePattern);
+        }
+        Collections.sort(languages);
+        return languages;
+    }
+
+    /**
+     * Generates bundles of all languages concurrently, each of them in its own task which parses the .po file and
+     * writes the generated files. Time spent on each language is logged.
+     * <p>
+     * The accessor, factory and formatter classes, if they are set in options, are written once all bundles are
+     * generated.
+     *
+     * @param threads maximum number of concurrently generated bundles, {@code 0} means the number of available
+     *                processors
+     */
+    static void generateJavaFiles(
+            @NotNull CatalogCache catalogCache,
             @NotNull String outputDir,
             @NotNull String resourceName,
-            @NotNull String language,
-            @NotNull String poFileName
+            @NotNull Map<String, String> poFiles,
+            @NotNull GeneratorOptions options,
+            @NotNull String resourceOutputDir,
+            int threads,
+            @NotNull Log log
     ) throws MojoExecutionException {
-        JavaGenerator javaGenerator = new JavaGenerator();
+        int threadCount = Math.min(poFiles.size(), threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        boolean upToDate = true;
+        if (threadCount <= 1) {
+            for (Map.Entry<String, String> entry : poFiles.entrySet()) {
+                upToDate &= generateTimed(catalogCache, outputDir, resourceName, entry.getKey(), entry.getValue(), options, resourceOutputDir, log) == GenerationResult.UP_TO_DATE;
+            }
+        } else {
+            upToDate = generateConcurrently(catalogCache, outputDir, resourceName, poFiles, options, resourceOutputDir, threadCount, log);
+        }
+        if (options.getAccessorClass() != null) {
+            GenerationResult result = generateAccessorClass(catalogCache, outputDir, poFiles, options, upToDate);
+            log.info(options.getAccessorClass() + ": " + result.getDescription());
+        }
+        if (options.getFactoryClass() != null) {
+            GenerationResult result = generateFactoryClass(outputDir, resourceName, poFiles.keySet(), options);
+            log.info(options.getFactoryClass() + ": " + result.getDescription());
+        }
+        if (options.getFormatterClass() != null) {
+            GenerationResult result = generateFormatterClass(outputDir, options);
+            log.info(options.getFormatterClass() + ": " + result.getDescription());
+        }
+        if (options.getReaderClass() != null) {
+            GenerationResult result = generateReaderClass(outputDir, options);
+            log.info(options.getReaderClass() + ": " + result.getDescription());
+        }
+    }
 
-        PoParser parser = new PoParser();
-        Catalog potCatalog;
+    /**
+     * @return {@code true} if bundles of all languages are up to date
+     */
+    private static boolean generateConcurrently(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull Map<String, String> poFiles,
+            @NotNull GeneratorOptions options,
+            @NotNull String resourceOutputDir,
+            int threadCount,
+            @NotNull Log log
+    ) throws MojoExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
         try {
-            potCatalog = parser.parseCatalog(new File(poFileName));
-        } catch (IOException e) {
-            throw new MojoExecutionException("Unable to parse file " + poFileName, e);
+            List<Future<GenerationResult>> futures = new ArrayList<>();
+            for (Map.Entry<String, String> entry : poFiles.entrySet()) {
+                futures.add(executor.submit(() ->
+                        generateTimed(catalogCache, outputDir, resourceName, entry.getKey(), entry.getValue(), options, resourceOutputDir, log)
+                ));
+            }
+            // All tasks are awaited, so that no files are being written after the execution has failed
+            MojoExecutionException failure = null;
+            boolean upToDate = true;
+            for (Future<GenerationResult> future : futures) {
+                try {
+                    upToDate &= future.get() == GenerationResult.UP_TO_DATE;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof MojoExecutionException
+                                ? (MojoExecutionException) e.getCause()
+                                : new MojoExecutionException("Unable to generate Java code", e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted while generating Java code", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return upToDate;
+        } finally {
+            executor.shutdownNow();
         }
-        Message poProperties = null;
+    }
+
+    @NotNull
+    private static GenerationResult generateTimed(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull String language,
+            @NotNull String poFileName,
+            @NotNull GeneratorOptions options,
+            @NotNull String resourceOutputDir,
+            @NotNull Log log
+    ) throws MojoExecutionException {
+        long start = System.nanoTime();
+        GenerationResult result = generateJavaFile(catalogCache, outputDir, resourceName, language, poFileName, options, resourceOutputDir);
+        log.info(language + ": " + result.getDescription() + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return result;
+    }
+
+    enum GenerationResult {
+        UP_TO_DATE("Generated Java code is up to date, PO file was not parsed"),
+        UNCHANGED("Generated Java code has not changed, file was not rewritten"),
+        WRITTEN("Generated Java code was written");
+
+        @NotNull
+        private final String description;
+
+        GenerationResult(@NotNull String description) {
+            this.description = description;
+        }
+
+        @NotNull
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    @NotNull
+    static GenerationResult generateJavaFile(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull String language,
+            @NotNull String poFileName,
+            @NotNull GeneratorOptions options,
+            @NotNull String resourceOutputDir
+    ) throws MojoExecutionException {
+        String[] packageNames = resourceName.split("\\.");
+        String className = packageNames[packageNames.length - 1] + "_" + language;
+        Path path = getPackageDir(outputDir, packageNames).resolve(className + ".java");
+        Path binaryResourcePath = null;
+        if (options.getStorage() == BundleStorage.RESOURCE || options.getStorage() == BundleStorage.MAPPED) {
+            binaryResourcePath = getPackageDir(resourceOutputDir, packageNames).resolve(JavaGenerator.getResourceFileName(className, options.getStorage()));
+        }
+        if (options.getStorage() == BundleStorage.MAPPED && options.getReaderClass() == null) {
+            throw new MojoExecutionException("\"readerClass\" must be set when \"storage\" is " + BundleStorage.MAPPED);
+        }
+
+        String configurationHash = getConfigurationHash(path, resourceName, language, poFileName, options);
+        if (isUpToDate(path, poFileName, configurationHash)
+                && (binaryResourcePath == null || Files.isRegularFile(binaryResourcePath))) {
+            return GenerationResult.UP_TO_DATE;
+        }
+
+        JavaGenerator javaGenerator = new JavaGenerator(options);
+        PluralFormula pluralFormula = addMessages(javaGenerator, catalogCache.getCatalog(poFileName), poFileName);
+        String fullPackagePath = getPackageName(resourceName);
+
+        boolean written = writeIfChanged(path, out -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                javaGenerator.write(writer, fullPackagePath, className, pluralFormula, configurationHash);
+            }
+        });
+        if (binaryResourcePath != null) {
+            written |= writeIfChanged(binaryResourcePath, javaGenerator::writeResource);
+        }
+        return written ? GenerationResult.WRITTEN : GenerationResult.UNCHANGED;
+    }
 
-        for (Message message : potCatalog) {
-            if (message.getMsgctxt() == null) {
+    /**
+     * Writes the accessor class set in options. Its constants are slots of messages in bundles of all languages, so
+     * the catalogs of all languages must have the same messages.
+     *
+     * @param bundlesUpToDate {@code true} if bundles of all languages are up to date, so the catalogs haven't changed
+     *                        since the accessor class was written
+     */
+    @NotNull
+    static GenerationResult generateAccessorClass(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull Map<String, String> poFiles,
+            @NotNull GeneratorOptions options,
+            boolean bundlesUpToDate
+    ) throws MojoExecutionException {
+        String accessorClass = Objects.requireNonNull(options.getAccessorClass());
+        String[] accessorNames = accessorClass.split("\\.");
+        Path accessorClassPath = getPackageDir(outputDir, accessorNames).resolve(accessorNames[accessorNames.length - 1] + ".java");
+        if (bundlesUpToDate && Files.isRegularFile(accessorClassPath)) {
+            return GenerationResult.UP_TO_DATE;
+        }
+
+        String firstPoFileName = null;
+        Set<String> firstMessageIds = null;
+        for (String poFileName : poFiles.values()) {
+            Set<String> messageIds = new TreeSet<>();
+            for (Message message : catalogCache.getCatalog(poFileName)) {
+                if (message.getMsgctxt() != null) {
+                    messageIds.add(PoValidatorMojo.getContextId(message));
+                }
+            }
+            if (firstMessageIds == null) {
+                firstPoFileName = poFileName;
+                firstMessageIds = messageIds;
+            } else if (!firstMessageIds.equals(messageIds)) {
+                throw new MojoExecutionException("Catalogs of all languages must have the same messages to generate accessor class " + accessorClass + ": " +
+                        Utils.createMessage(firstMessageIds, firstPoFileName, messageIds, poFileName)
+                );
+            }
+        }
+        if (firstPoFileName == null) {
+            throw new MojoExecutionException("No catalogs to generate accessor class " + accessorClass + " from");
+        }
+
+        JavaGenerator javaGenerator = new JavaGenerator(options);
+        addMessages(javaGenerator, catalogCache.getCatalog(firstPoFileName), firstPoFileName);
+        boolean written = writeIfChanged(accessorClassPath, out -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                javaGenerator.writeAccessorClass(writer, getPackageName(accessorClass), accessorNames[accessorNames.length - 1]);
+            }
+        });
+        return written ? GenerationResult.WRITTEN : GenerationResult.UNCHANGED;
+    }
+
+    /**
+     * Writes the factory class set in options, which creates bundles of all {@code languages}.
+     */
+    @NotNull
+    static GenerationResult generateFactoryClass(
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull Collection<String> languages,
+            @NotNull GeneratorOptions options
+    ) throws MojoExecutionException {
+        String factoryClass = Objects.requireNonNull(options.getFactoryClass());
+        String[] factoryNames = factoryClass.split("\\.");
+        Path factoryClassPath = getPackageDir(outputDir, factoryNames).resolve(factoryNames[factoryNames.length - 1] + ".java");
+        boolean written = writeIfChanged(factoryClassPath, out -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                JavaGenerator.writeFactoryClass(writer, options, getPackageName(factoryClass), factoryNames[factoryNames.length - 1], resourceName, languages);
+            }
+        });
+        return written ? GenerationResult.WRITTEN : GenerationResult.UNCHANGED;
+    }
+
+    /**
+     * Writes the formatter class set in options, which renders precompiled templates of translations of all bundles.
+     */
+    @NotNull
+    static GenerationResult generateFormatterClass(
+            @NotNull String outputDir,
+            @NotNull GeneratorOptions options
+    ) throws MojoExecutionException {
+        String formatterClass = Objects.requireNonNull(options.getFormatterClass());
+        String[] formatterNames = formatterClass.split("\\.");
+        Path formatterClassPath = getPackageDir(outputDir, formatterNames).resolve(formatterNames[formatterNames.length - 1] + ".java");
+        boolean written = writeIfChanged(formatterClassPath, out -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                JavaGenerator.writeFormatterClass(writer, options, getPackageName(formatterClass), formatterNames[formatterNames.length - 1]);
+            }
+        });
+        return written ? GenerationResult.WRITTEN : GenerationResult.UNCHANGED;
+    }
+
+    /**
+     * Writes the reader class set in options, which reads memory-mapped catalogs of bundles.
+     */
+    @NotNull
+    static GenerationResult generateReaderClass(
+            @NotNull String outputDir,
+            @NotNull GeneratorOptions options
+    ) throws MojoExecutionException {
+        String readerClass = Objects.requireNonNull(options.getReaderClass());
+        String[] readerNames = readerClass.split("\\.");
+        Path readerClassPath = getPackageDir(outputDir, readerNames).resolve(readerNames[readerNames.length - 1] + ".java");
+        boolean written = writeIfChanged(readerClassPath, out -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                JavaGenerator.writeMoReaderClass(writer, options, getPackageName(readerClass), readerNames[readerNames.length - 1]);
+            }
+        });
+        return written ? GenerationResult.WRITTEN : GenerationResult.UNCHANGED;
+    }
+
+    /**
+     * Adds all messages of the catalog except the header to the generator.
+     *
+     * @return plural formula of the catalog, which is checked against plural forms of all messages
+     */
+    @NotNull
+    static PluralFormula addMessages(@NotNull JavaGenerator javaGenerator, @NotNull Catalog catalog, @NotNull String poFileName) throws MojoExecutionException {
+        for (Message message : catalog) {
+            if (message.getMsgctxt() != null) {
+                javaGenerator.addInitLine(message);
+            }
+        }
+        return checkPluralForms(catalog, poFileName, message -> message.getMsgctxt() != null);
+    }
+
+    /**
+     * @param generated selects the messages which are generated, only their plural forms are checked
+     * @return plural formula of the catalog, after checking that every generated message with plural forms has as many
+     * of them as the formula selects
+     */
+    @NotNull
+    static PluralFormula checkPluralForms(@NotNull Catalog catalog, @NotNull String poFileName, @NotNull Predicate<Message> generated) throws MojoExecutionException {
+        Message poProperties = null;
+        for (Message message : catalog) {
+            if (message.isHeader()) {
                 poProperties = message;
-                continue;
             }
-            javaGenerator.addInitLine(message);
         }
+        PluralFormula pluralFormula = getPluralFormula(poProperties, poFileName);
+        for (Message message : catalog) {
+            if (!message.isHeader() && generated.test(message) && message.getMsgidPlural() != null && !message.getMsgidPlural().isEmpty()
+                    && message.getMsgstrPlural().size() != pluralFormula.getPluralCount()) {
+                throw new MojoExecutionException("Message has " + message.getMsgstrPlural().size() + " plural forms, but nplurals is " +
+                        pluralFormula.getPluralCount() + ", " + PoValidatorMojo.getContextId(message) + " in " + poFileName
+                );
+            }
+        }
+        return pluralFormula;
+    }
+
+    @NotNull
+    static String getPackageName(@NotNull String resourceName) {
+        int lastDotPos = resourceName.lastIndexOf('.');
+        return lastDotPos != -1 ? resourceName.substring(0, lastDotPos) : "";
+    }
+
+    /**
+     * @return plural formula from the "Plural-Forms" header, or the default one if there is no such header
+     */
+    @NotNull
+    private static PluralFormula getPluralFormula(@Nullable Message poProperties, @NotNull String poFileName) throws MojoExecutionException {
+        if (poProperties == null) {
+            return PluralFormula.DEFAULT;
+        }
+        for (String str : poProperties.getMsgstr().split("\n")) {
+            if (str.startsWith("Plural-Forms:")) {
+                String pluralFormPrefix = "plural=";
+                int pluralFormulaPos = str.indexOf(pluralFormPrefix);
+                if (pluralFormulaPos == -1) {
+                    throw new MojoExecutionException("Invalid PO file: \"Plural-Forms\" was found, but \"plural=\" is missing " + poFileName);
+                }
+                String pluralCountPrefix = "nplurals=";
+                int pluralCountPos = str.indexOf(pluralCountPrefix);
+                if (pluralCountPos == -1) {
+                    throw new MojoExecutionException("Invalid PO file: \"Plural-Forms\" was found, but \"nplurals=\" is missing " + poFileName);
+                }
+                int pluralCountStart = pluralCountPos + pluralCountPrefix.length();
+                while (pluralCountStart < str.length() && Character.isWhitespace(str.charAt(pluralCountStart))) {
+                    ++pluralCountStart;
+                }
+                int pluralCountEnd = pluralCountStart;
+                while (pluralCountEnd < str.length() && Character.isDigit(str.charAt(pluralCountEnd))) {
+                    ++pluralCountEnd;
+                }
+                String formula = str.substring(pluralFormulaPos + pluralFormPrefix.length()).trim();
+                if (formula.endsWith(";")) {
+                    formula = formula.substring(0, formula.length() - 1);
+                }
+                try {
+                    return PluralFormula.parse(formula, Integer.parseInt(str.substring(pluralCountStart, pluralCountEnd)));
+                } catch (IllegalArgumentException e) {
+                    throw new MojoExecutionException(e.getMessage() + " in " + poFileName, e);
+                }
+            }
+        }
+        return PluralFormula.DEFAULT;
+    }
 
+    @NotNull
+    static Path getPackageDir(@NotNull String outputDir, @NotNull String[] packageNames) {
         Path path = Paths.get(outputDir);
-        String[] packageNames = resourceName.split("\\.");
         for (int i = 0; i < packageNames.length - 1; ++i) {
             path = path.resolve(packageNames[i]);
         }
-        path = path.normalize();
-        String className = packageNames[packageNames.length - 1] + "_" + language;
-        path = path.resolve(className + ".java");
-        int lastDotPos = resourceName.lastIndexOf('.');
-        String fullPackagePath = "";
-        if (lastDotPos != -1) {
-            fullPackagePath = resourceName.substring(0, lastDotPos);
-        }
-        String pluralEval = null;
-        if (poProperties != null) {
-            for (String str : poProperties.getMsgstr().split("\n")) {
-                if (str.startsWith("Plural-Forms:")) {
-                    String pluralFormPrefix = "plural=";
-                    int pluralFormulaPos = str.indexOf(pluralFormPrefix);
-                    if (pluralFormulaPos == -1) {
-                        throw new MojoExecutionException("Invalid PO file: \"Plural-Forms\" was found, but \"plural=\" is missing " + poFileName);
-                    }
-                    pluralEval = str.substring(pluralFormulaPos + pluralFormPrefix.length());
-                    pluralEval = pluralEval.trim();
-                    if (pluralEval.endsWith(";")) {
-                        pluralEval = pluralEval.substring(0, pluralEval.length() - 1);
-                    }
-                    if (!pluralEval.contains("?")) {
-                        pluralEval += "? 1 : 0";
-                    }
+        return path.normalize();
+    }
+
+    interface ContentWriter {
+        void write(@NotNull OutputStream out) throws IOException;
+    }
+
+    /**
+     * Content is streamed to a temporary file next to the target one, so memory usage doesn't depend on the size of
+     * the catalog, and the target file is only replaced if its content has changed.
+     *
+     * @return {@code true} if the file was written
+     */
+    static boolean writeIfChanged(@NotNull Path path, @NotNull ContentWriter contentWriter) throws MojoExecutionException {
+        Path tempPath = null;
+        try {
+            Files.createDirectories(path.getParent());
+            // Not Files.createTempFile(), since it restricts permissions of the file, which would then be moved to the
+            // target one
+            tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+                contentWriter.write(out);
+            }
+            if (haveSameContent(path, tempPath)) {
+                return false;
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            tempPath = null;
+            return true;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write generated file " + path, e);
+        } finally {
+            if (tempPath != null) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (IOException ignored) {
+                    // Nothing else can be done, the temporary file will be left behind
                 }
             }
         }
+    }
 
-        String javaCode = javaGenerator.getText(fullPackagePath, className, pluralEval);
+    /**
+     * Hash of everything except the contents of the .po file that affects the generated code. Paths are made relative
+     * to the generated file, so that the hash doesn't depend on the location of the project.
+     */
+    @NotNull
+    static String getConfigurationHash(
+            @NotNull Path path,
+            @NotNull String resourceName,
+            @NotNull String language,
+            @NotNull String poFileName,
+            @NotNull GeneratorOptions options
+    ) {
+        Path poPath = Paths.get(poFileName).toAbsolutePath().normalize();
+        String poLocation;
         try {
-            Files.createDirectories(path.getParent());
-            Files.write(path, javaCode.getBytes(StandardCharsets.UTF_8));
+            poLocation = path.toAbsolutePath().getParent().relativize(poPath).toString().replace('\\', '/');
+        } catch (IllegalArgumentException e) {
+            poLocation = poPath.toString();
+        }
+        String configuration = "version=" + JavaGenerator.class.getPackage().getImplementationVersion() + "\n" +
+                "resourceName=" + resourceName + "\n" +
+                "language=" + language + "\n" +
+                "poFile=" + poLocation + "\n" +
+                options.describe();
+        return Hashing.sha256().hashString(configuration, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * @return {@code true} if the generated file is newer than the .po file and was generated with the same
+     * configuration, so that regenerating it would produce the same content
+     */
+    static boolean isUpToDate(@NotNull Path path, @NotNull String poFileName, @NotNull String configurationHash) {
+        try {
+            if (!Files.isRegularFile(path)) {
+                return false;
+            }
+            if (Files.getLastModifiedTime(Paths.get(poFileName)).compareTo(Files.getLastModifiedTime(path)) >= 0) {
+                return false;
+            }
+            String expectedLine = JavaGenerator.CONFIGURATION_HASH_PREFIX + configurationHash + " */";
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                // The hash is on the second line, right after the banner
+                for (int i = 0; i < 2; ++i) {
+                    String line = reader.readLine();
+                    if (expectedLine.equals(line)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
         } catch (IOException e) {
-            throw new MojoExecutionException("Unable to write generated Java code to file " + path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Streamed comparison of two files, so that unchanged files are not rewritten and their modification time is
+     * preserved.
+     */
+    private static boolean haveSameContent(@NotNull Path path, @NotNull Path otherPath) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) != Files.size(otherPath)) {
+            return false;
+        }
+        byte[] buffer = new byte[64 * 1024];
+        byte[] otherBuffer = new byte[buffer.length];
+        try (InputStream in = Files.newInputStream(path); InputStream otherIn = Files.newInputStream(otherPath)) {
+            while (true) {
+                int read = readFully(in, buffer);
+                int otherRead = readFully(otherIn, otherBuffer);
+                if (read != otherRead) {
+                    return false;
+                }
+                if (read == 0) {
+                    return true;
+                }
+                for (int i = 0; i < read; ++i) {
+                    if (buffer[i] != otherBuffer[i]) {
+                        return false;
+                    }
+                }
+            }
         }
     }
 
+    private static int readFully(@NotNull InputStream in, @NotNull byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = in.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                break;
+            }
+            offset += read;
+        }
+        return offset;
+    }
+
+    @NotNull
+    private GeneratorOptions getOptions() {
+        return new GeneratorOptions()
+                .setOmitVersion(omitVersion)
+                .setStorage(storage)
+                .setAccessorClass(accessorClass)
+                .setFactoryClass(factoryClass)
+                .setFormatterClass(formatterClass)
+                .setReaderClass(readerClass)
+                .setMappedCacheSize(mappedCacheSize);
+    }
+
     public void execute() throws MojoExecutionException, MojoFailureException {
         getLog().info("JavaGeneratorMojo has started");
         if (!skip) {
-            generateJavaFile(outputDir, resourceName, language, poFileName);
+            if (factoryClass != null && !factoryClass.isEmpty() && language != null && !language.isEmpty()) {
+                // Every execution would overwrite the factory class with the one that knows only its own language
+                throw new MojoExecutionException("\"factoryClass\" requires all languages to be generated in one execution, set \"languages\" or use " +
+                        LANGUAGE_PLACEHOLDER + " in \"poFileName\" instead of \"language\""
+                );
+            }
+            generateJavaFiles(
+                    CatalogCache.forSession(session),
+                    outputDir,
+                    resourceName,
+                    resolvePoFiles(language, languages, poFileName),
+                    getOptions(),
+                    resourceOutputDir,
+                    threads,
+                    getLog()
+            );
         } else {
             getLog().info("\"skip\" is set to \"true\", Java code generation from PO file was skipped");
         }
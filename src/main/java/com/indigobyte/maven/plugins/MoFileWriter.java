@@ -0,0 +1,577 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes GNU gettext {@code .mo} files in the format of {@code msgfmt}: little-endian, revision 0, strings in UTF-8
+ * sorted by their bytes, and the hash table which lets readers find a message without a binary search. Keys are the
+ * same as in generated bundles: the context and the id separated by {@code \u0004}. Identical translations are stored
+ * once and shared by all messages which use them.
+ */
+final class MoFileWriter {
+    static final int MAGIC = 0x950412de;
+    // Magic, revision, number of strings, offsets of both tables, size and offset of the hash table
+    private static final int HEADER_SIZE = 28;
+
+    // Original strings mapped to translations, sorted by their UTF-8 bytes as msgfmt does
+    private final Map<byte[], byte[]> entries = new TreeMap<>(MoFileWriter::compareUnsigned);
+
+    /**
+     * @return {@code false} for fuzzy and obsolete messages, which {@code msgfmt} leaves out: fuzzy translations are
+     * not reviewed, and obsolete messages are no longer used
+     */
+    static boolean isWritten(@NotNull Message message) {
+        return !message.isFuzzy() && !message.isObsolete();
+    }
+
+    /**
+     * Adds the message, unless it has no translation, or it is fuzzy or obsolete. As with {@code msgfmt}, untranslated
+     * messages are left out, so that readers fall back to the original text.
+     */
+    void addMessage(@NotNull Message message) {
+        if (!isWritten(message)) {
+            return;
+        }
+        String key = message.getMsgctxt() != null ? message.getMsgctxt() + "\u0004" + message.getMsgid() : message.getMsgid();
+        if (message.getMsgidPlural() != null && !message.getMsgidPlural().isEmpty()) {
+            List<String> forms = message.getMsgstrPlural();
+            if (!forms.isEmpty() && !forms.get(0).isEmpty()) {
+                entries.put(join(key, message.getMsgidPlural()), join(forms.toArray(new String[0])));
+            }
+        } else if (message.getMsgstr() != null && !message.getMsgstr().isEmpty()) {
+            entries.put(key.getBytes(StandardCharsets.UTF_8), message.getMsgstr().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Adds a translation of a generated bundle. Unlike {@link #addMessage(Message)}, empty translations are kept, as
+     * bundles keep them.
+     */
+    void addTranslation(@NotNull String key, @NotNull String translation) {
+        entries.put(key.getBytes(StandardCharsets.UTF_8), translation.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Adds plural forms of a generated bundle. They are stored with an empty plural id, so the NUL after the key tells
+     * readers that the translation is an array of forms.
+     */
+    void addPluralForms(@NotNull String key, @NotNull List<String> forms) {
+        entries.put(join(key, ""), join(forms.toArray(new String[0])));
+    }
+
+    /**
+     * Sets the header, which is the translation of the empty id.
+     */
+    void setHeader(@NotNull String header) {
+        entries.put(new byte[0], header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return strings joined with NUL separators, the way plural ids and forms are stored
+     */
+    @NotNull
+    private static byte[] join(@NotNull String... strings) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < strings.length; ++i) {
+            if (i > 0) {
+                out.write(0);
+            }
+            byte[] bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static int compareUnsigned(@NotNull byte[] a, @NotNull byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); ++i) {
+            if (a[i] != b[i]) {
+                return (a[i] & 0xff) - (b[i] & 0xff);
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Hash function of GNU gettext over the bytes of the string up to its first NUL.
+     */
+    static int hashString(@NotNull byte[] str) {
+        int hash = 0;
+        for (byte b : str) {
+            if (b == 0) {
+                break;
+            }
+            hash = (hash << 4) + (b & 0xff);
+            int high = hash & 0xf0000000;
+            if (high != 0) {
+                hash ^= high >>> 24;
+                hash ^= high;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return size of the hash table for {@code count} strings, the same as msgfmt chooses
+     */
+    static int getHashTableSize(int count) {
+        int size = Math.max(3, (int) ((long) count * 4 / 3) | 1);
+        while (!isPrime(size)) {
+            size += 2;
+        }
+        return size;
+    }
+
+    private static boolean isPrime(int n) {
+        for (int divisor = 3; (long) divisor * divisor <= n; divisor += 2) {
+            if (n % divisor == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void write(@NotNull OutputStream out) throws IOException {
+        List<byte[]> originals = new ArrayList<>(entries.keySet());
+        List<byte[]> translations = new ArrayList<>(entries.values());
+        int count = originals.size();
+        int hashTableSize = getHashTableSize(count);
+        int[] hashTable = new int[hashTableSize];
+        for (int i = 0; i < count; ++i) {
+            int hash = hashString(originals.get(i));
+            int index = Integer.remainderUnsigned(hash, hashTableSize);
+            if (hashTable[index] != 0) {
+                int increment = 1 + Integer.remainderUnsigned(hash, hashTableSize - 2);
+                do {
+                    index = index >= hashTableSize - increment ? index - (hashTableSize - increment) : index + increment;
+                } while (hashTable[index] != 0);
+            }
+            hashTable[index] = i + 1;
+        }
+
+        int originalsOffset = HEADER_SIZE;
+        int translationsOffset = originalsOffset + 8 * count;
+        int hashTableOffset = translationsOffset + 8 * count;
+        long stringsOffset = hashTableOffset + 4L * hashTableSize;
+        long size = stringsOffset;
+        for (byte[] original : originals) {
+            size += original.length + 1;
+        }
+        // Originals are stored first and distinct translations after them, each string followed by NUL
+        Map<ByteBuffer, Long> translationOffsets = new LinkedHashMap<>();
+        for (byte[] translation : translations) {
+            if (!translationOffsets.containsKey(ByteBuffer.wrap(translation))) {
+                translationOffsets.put(ByteBuffer.wrap(translation), size);
+                size += translation.length + 1;
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException(".mo file would have " + size + " bytes, at most " + Integer.MAX_VALUE + " are supported");
+        }
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        writeInt(dataOut, MAGIC);
+        writeInt(dataOut, 0);
+        writeInt(dataOut, count);
+        writeInt(dataOut, originalsOffset);
+        writeInt(dataOut, translationsOffset);
+        writeInt(dataOut, hashTableSize);
+        writeInt(dataOut, hashTableOffset);
+        long offset = stringsOffset;
+        for (byte[] original : originals) {
+            writeInt(dataOut, original.length);
+            writeInt(dataOut, (int) offset);
+            offset += original.length + 1;
+        }
+        for (byte[] translation : translations) {
+            writeInt(dataOut, translation.length);
+            writeInt(dataOut, translationOffsets.get(ByteBuffer.wrap(translation)).intValue());
+        }
+        for (int entry : hashTable) {
+            writeInt(dataOut, entry);
+        }
+        for (byte[] original : originals) {
+            dataOut.write(original);
+            dataOut.write(0);
+        }
+        for (ByteBuffer translation : translationOffsets.keySet()) {
+            dataOut.write(translation.array());
+            dataOut.write(0);
+        }
+        dataOut.flush();
+    }
+
+    private static void writeInt(@NotNull DataOutputStream out, int value) throws IOException {
+        out.writeInt(Integer.reverseBytes(value));
+    }
+
+    /**
+     * Writes body of the reader class, which memory-maps a {@code .mo} file and looks messages up in its hash table.
+     * Keys are encoded to UTF-8 and hashed on the fly, so lookups need no objects besides the returned string, and
+     * the catalog takes no heap regardless of its size. The class has no dependencies besides the JDK.
+     * <p>
+     * Bundles with {@link BundleStorage#MAPPED} storage look their translations up with {@code lookupValue()}, which
+     * may keep recently found values in a small direct-mapped cache on the heap.
+     */
+    static void writeReaderClass(@NotNull Writer out, @NotNull String className) throws IOException {
+        out.write("public final class " + className + " {\n" +
+                "    private static final int MAGIC = 0x950412de;\n" +
+                "\n" +
+                "    private final java.nio.ByteBuffer data;\n" +
+                "    private final int count;\n" +
+                "    private final int originalsOffset;\n" +
+                "    private final int translationsOffset;\n" +
+                "    private final int hashTableSize;\n" +
+                "    private final int hashTableOffset;\n" +
+                "    // Recently looked up keys with their values, in slots selected by hash codes of the keys\n" +
+                "    private final CacheEntry[] cache;\n" +
+                "\n" +
+                "    private static final class CacheEntry {\n" +
+                "        final String key;\n" +
+                "        final Object value;\n" +
+                "\n" +
+                "        CacheEntry(String key, Object value) {\n" +
+                "            this.key = key;\n" +
+                "            this.value = value;\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param data content of a .mo file with strings in UTF-8\n" +
+                "     * @throws java.io.IOException if the data isn't a .mo file\n" +
+                "     */\n" +
+                "    public " + className + "(java.nio.ByteBuffer data) throws java.io.IOException {\n" +
+                "        this(data, 0);\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param data      content of a .mo file with strings in UTF-8\n" +
+                "     * @param cacheSize number of values found by {@code lookupValue()} which are kept on the heap, 0 to\n" +
+                "     *                  decode them from the data on every lookup\n" +
+                "     * @throws java.io.IOException if the data isn't a .mo file\n" +
+                "     */\n" +
+                "    public " + className + "(java.nio.ByteBuffer data, int cacheSize) throws java.io.IOException {\n" +
+                "        int cacheLength = Math.min(cacheSize, 1 << 30);\n" +
+                "        cache = cacheLength > 0 ? new CacheEntry[cacheLength > 1 ? Integer.highestOneBit(cacheLength - 1) << 1 : 1] : null;\n" +
+                "        this.data = data.duplicate();\n" +
+                "        if (data.limit() < 28) {\n" +
+                "            throw new java.io.IOException(\"Not a .mo file, it has only \" + data.limit() + \" bytes\");\n" +
+                "        }\n" +
+                "        if (this.data.getInt(0) != MAGIC) {\n" +
+                "            this.data.order(java.nio.ByteOrder.LITTLE_ENDIAN);\n" +
+                "            if (this.data.getInt(0) != MAGIC) {\n" +
+                "                throw new java.io.IOException(\"Not a .mo file, magic number doesn't match\");\n" +
+                "            }\n" +
+                "        }\n" +
+                "        if ((this.data.getInt(4) >>> 16) > 1) {\n" +
+                "            throw new java.io.IOException(\"Unsupported revision of .mo file: \" + (this.data.getInt(4) >>> 16));\n" +
+                "        }\n" +
+                "        count = this.data.getInt(8);\n" +
+                "        originalsOffset = this.data.getInt(12);\n" +
+                "        translationsOffset = this.data.getInt(16);\n" +
+                "        hashTableSize = this.data.getInt(20);\n" +
+                "        hashTableOffset = this.data.getInt(24);\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * Maps the file into memory. The mapping stays valid after the file is replaced by another one, e.g. with\n" +
+                "     * a rename, so translations can be reloaded by opening the new file, but the file must not be modified in\n" +
+                "     * place while it is open.\n" +
+                "     */\n" +
+                "    public static " + className + " open(java.nio.file.Path path) throws java.io.IOException {\n" +
+                "        return open(path, 0);\n" +
+                "    }\n" +
+                "\n" +
+                "    public static " + className + " open(java.nio.file.Path path, int cacheSize) throws java.io.IOException {\n" +
+                "        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(path, java.nio.file.StandardOpenOption.READ)) {\n" +
+                "            return new " + className + "(channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, 0, channel.size()), cacheSize);\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * Maps the resource of the class into memory. A resource which isn't a file, e.g. one in a jar, is copied\n" +
+                "     * to a temporary file first, which is deleted on exit.\n" +
+                "     *\n" +
+                "     * @param name name of the resource relative to the class\n" +
+                "     * @throws IllegalStateException if the resource is missing or can't be mapped, as it is meant to be\n" +
+                "     *                               opened during class initialization\n" +
+                "     */\n" +
+                "    public static " + className + " openResource(Class<?> owner, String name, int cacheSize) {\n" +
+                "        java.net.URL url = owner.getResource(name);\n" +
+                "        if (url == null) {\n" +
+                "            throw new IllegalStateException(\"Resource \" + name + \" was not found\");\n" +
+                "        }\n" +
+                "        try {\n" +
+                "            java.nio.file.Path path;\n" +
+                "            if (\"file\".equals(url.getProtocol())) {\n" +
+                "                path = java.nio.file.Paths.get(url.toURI());\n" +
+                "            } else {\n" +
+                "                path = java.nio.file.Files.createTempFile(name, null);\n" +
+                "                path.toFile().deleteOnExit();\n" +
+                "                try (java.io.InputStream in = url.openStream()) {\n" +
+                "                    java.nio.file.Files.copy(in, path, java.nio.file.StandardCopyOption.REPLACE_EXISTING);\n" +
+                "                }\n" +
+                "            }\n" +
+                "            return open(path, cacheSize);\n" +
+                "        } catch (java.io.IOException | java.net.URISyntaxException e) {\n" +
+                "            throw new IllegalStateException(\"Unable to map resource \" + name, e);\n" +
+                "        }\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return number of messages, including the header\n" +
+                "     */\n" +
+                "    public int size() {\n" +
+                "        return count;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return the header of the catalog, or {@code null} if it has none\n" +
+                "     */\n" +
+                "    public String getHeader() {\n" +
+                "        return lookup(\"\");\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param msgid id of the message, preceded by its context and {@code \\u0004} if it has one\n" +
+                "     * @return translation of the message, or its first form if it has plural forms, or {@code null} if the\n" +
+                "     * message isn't translated\n" +
+                "     */\n" +
+                "    public String lookup(String msgid) {\n" +
+                "        return lookupPlural(msgid, 0);\n" +
+                "    }\n" +
+                "\n" +
+                "    public String lookup(String ctx, String id) {\n" +
+                "        return lookup(ctx + \"\\u0004\" + id);\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return translation of the message, {@code String[]} of plural forms if it has them, or {@code null} if\n" +
+                "     * there is no such message. Found values and misses are cached if the cache is enabled, so arrays of\n" +
+                "     * plural forms must not be modified.\n" +
+                "     */\n" +
+                "    public Object lookupValue(String msgid) {\n" +
+                "        if (msgid == null) {\n" +
+                "            return null;\n" +
+                "        }\n" +
+                "        if (cache == null) {\n" +
+                "            return readValue(msgid);\n" +
+                "        }\n" +
+                "        int hash = msgid.hashCode();\n" +
+                "        int slot = (hash ^ hash >>> 16) & (cache.length - 1);\n" +
+                "        // Entries are immutable, so they can be replaced by concurrent lookups without locking\n" +
+                "        CacheEntry entry = cache[slot];\n" +
+                "        if (entry != null && entry.key.equals(msgid)) {\n" +
+                "            return entry.value;\n" +
+                "        }\n" +
+                "        Object value = readValue(msgid);\n" +
+                "        cache[slot] = new CacheEntry(msgid, value);\n" +
+                "        return value;\n" +
+                "    }\n" +
+                "\n" +
+                "    private Object readValue(String msgid) {\n" +
+                "        int index = indexOf(msgid);\n" +
+                "        if (index < 0) {\n" +
+                "            return null;\n" +
+                "        }\n" +
+                "        int start = data.getInt(translationsOffset + 8 * index + 4);\n" +
+                "        int end = start + data.getInt(translationsOffset + 8 * index);\n" +
+                "        int originalEnd = data.getInt(originalsOffset + 8 * index + 4) + data.getInt(originalsOffset + 8 * index);\n" +
+                "        if (getStringEnd(data.getInt(originalsOffset + 8 * index + 4), originalEnd) == originalEnd) {\n" +
+                "            return decode(start, end);\n" +
+                "        }\n" +
+                "        // Original has a plural id, forms are separated by NUL\n" +
+                "        int formCount = 1;\n" +
+                "        for (int i = start; i < end; ++i) {\n" +
+                "            if (data.get(i) == 0) {\n" +
+                "                ++formCount;\n" +
+                "            }\n" +
+                "        }\n" +
+                "        String[] forms = new String[formCount];\n" +
+                "        for (int i = 0; i < formCount; ++i) {\n" +
+                "            int formEnd = getStringEnd(start, end);\n" +
+                "            forms[i] = decode(start, formEnd);\n" +
+                "            start = formEnd + 1;\n" +
+                "        }\n" +
+                "        return forms;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param index index of the message, from 0 to {@code size() - 1}\n" +
+                "     * @return key of the message, without its plural id\n" +
+                "     */\n" +
+                "    public String getKey(int index) {\n" +
+                "        int start = data.getInt(originalsOffset + 8 * index + 4);\n" +
+                "        return decode(start, getStringEnd(start, start + data.getInt(originalsOffset + 8 * index)));\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @param form plural form selected by the plural formula of the catalog, e.g. by {@code getPluralForm(n)}\n" +
+                "     *             of the bundle generated from the same catalog\n" +
+                "     * @return the plural form of the translation, the first form if there is no such form, as in gettext, or\n" +
+                "     * {@code null} if the message isn't translated\n" +
+                "     */\n" +
+                "    public String lookupPlural(String msgid, int form) {\n" +
+                "        int index = indexOf(msgid);\n" +
+                "        if (index < 0) {\n" +
+                "            return null;\n" +
+                "        }\n" +
+                "        int length = data.getInt(translationsOffset + 8 * index);\n" +
+                "        int offset = data.getInt(translationsOffset + 8 * index + 4);\n" +
+                "        int start = offset;\n" +
+                "        int end = offset + length;\n" +
+                "        for (int i = 0; i < form && start <= end; ++i) {\n" +
+                "            while (start < end && data.get(start) != 0) {\n" +
+                "                ++start;\n" +
+                "            }\n" +
+                "            ++start;\n" +
+                "        }\n" +
+                "        if (start > end) {\n" +
+                "            start = offset;\n" +
+                "        }\n" +
+                "        return decode(start, getStringEnd(start, end));\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return position of the first NUL from {@code start}, or {@code end} if there is none before it\n" +
+                "     */\n" +
+                "    private int getStringEnd(int start, int end) {\n" +
+                "        int pos = start;\n" +
+                "        while (pos < end && data.get(pos) != 0) {\n" +
+                "            ++pos;\n" +
+                "        }\n" +
+                "        return pos;\n" +
+                "    }\n" +
+                "\n" +
+                "    private String decode(int start, int end) {\n" +
+                "        byte[] bytes = new byte[end - start];\n" +
+                "        java.nio.ByteBuffer buffer = data.duplicate();\n" +
+                "        buffer.position(start);\n" +
+                "        buffer.get(bytes);\n" +
+                "        return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return index of the message in the tables of the file, or -1 if there is no such message\n" +
+                "     */\n" +
+                "    private int indexOf(String msgid) {\n" +
+                "        if (msgid == null) {\n" +
+                "            return -1;\n" +
+                "        }\n" +
+                "        if (hashTableSize > 2) {\n" +
+                "            int hash = hash(msgid);\n" +
+                "            int index = Integer.remainderUnsigned(hash, hashTableSize);\n" +
+                "            int increment = 1 + Integer.remainderUnsigned(hash, hashTableSize - 2);\n" +
+                "            for (int probe = 0; probe < hashTableSize; ++probe) {\n" +
+                "                int entry = data.getInt(hashTableOffset + 4 * index);\n" +
+                "                if (entry == 0) {\n" +
+                "                    return -1;\n" +
+                "                }\n" +
+                "                if (compare(msgid, entry - 1) == 0) {\n" +
+                "                    return entry - 1;\n" +
+                "                }\n" +
+                "                index = index >= hashTableSize - increment ? index - (hashTableSize - increment) : index + increment;\n" +
+                "            }\n" +
+                "            return -1;\n" +
+                "        }\n" +
+                "        // Files without hash table have sorted originals\n" +
+                "        int low = 0;\n" +
+                "        int high = count - 1;\n" +
+                "        while (low <= high) {\n" +
+                "            int middle = (low + high) >>> 1;\n" +
+                "            int comparison = compare(msgid, middle);\n" +
+                "            if (comparison == 0) {\n" +
+                "                return middle;\n" +
+                "            } else if (comparison < 0) {\n" +
+                "                high = middle - 1;\n" +
+                "            } else {\n" +
+                "                low = middle + 1;\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return -1;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * Compares UTF-8 bytes of the key with the original string number {@code index} up to its first NUL, which\n" +
+                "     * separates the id from the plural id.\n" +
+                "     */\n" +
+                "    private int compare(String key, int index) {\n" +
+                "        int length = data.getInt(originalsOffset + 8 * index);\n" +
+                "        int offset = data.getInt(originalsOffset + 8 * index + 4);\n" +
+                "        int pos = 0;\n" +
+                "        for (int i = 0; i < key.length(); ) {\n" +
+                "            int c = codePointAt(key, i);\n" +
+                "            i += Character.charCount(c);\n" +
+                "            int byteCount = getUtf8Length(c);\n" +
+                "            for (int b = 0; b < byteCount; ++b, ++pos) {\n" +
+                "                int keyByte = getUtf8Byte(c, byteCount, b);\n" +
+                "                int fileByte = pos < length ? data.get(offset + pos) & 0xff : 0;\n" +
+                "                if (keyByte != fileByte) {\n" +
+                "                    return keyByte - fileByte;\n" +
+                "                }\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return pos < length && data.get(offset + pos) != 0 ? -1 : 0;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * Hash function of GNU gettext over UTF-8 bytes of the key.\n" +
+                "     */\n" +
+                "    private static int hash(String key) {\n" +
+                "        int hash = 0;\n" +
+                "        for (int i = 0; i < key.length(); ) {\n" +
+                "            int c = codePointAt(key, i);\n" +
+                "            i += Character.charCount(c);\n" +
+                "            int byteCount = getUtf8Length(c);\n" +
+                "            for (int b = 0; b < byteCount; ++b) {\n" +
+                "                hash = (hash << 4) + getUtf8Byte(c, byteCount, b);\n" +
+                "                int high = hash & 0xf0000000;\n" +
+                "                if (high != 0) {\n" +
+                "                    hash ^= high >>> 24;\n" +
+                "                    hash ^= high;\n" +
+                "                }\n" +
+                "            }\n" +
+                "        }\n" +
+                "        return hash;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return code point at the position, with lone surrogates replaced by '?' as String.getBytes() does\n" +
+                "     */\n" +
+                "    private static int codePointAt(String str, int i) {\n" +
+                "        int c = str.codePointAt(i);\n" +
+                "        return Character.isSurrogate((char) c) && c < Character.MIN_SUPPLEMENTARY_CODE_POINT ? '?' : c;\n" +
+                "    }\n" +
+                "\n" +
+                "    private static int getUtf8Length(int c) {\n" +
+                "        return c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;\n" +
+                "    }\n" +
+                "\n" +
+                "    /**\n" +
+                "     * @return byte number {@code b} of the UTF-8 encoding of the code point, which has {@code byteCount} bytes\n" +
+                "     */\n" +
+                "    private static int getUtf8Byte(int c, int byteCount, int b) {\n" +
+                "        if (byteCount == 1) {\n" +
+                "            return c;\n" +
+                "        }\n" +
+                "        int shift = 6 * (byteCount - 1 - b);\n" +
+                "        // 110xxxxx, 1110xxxx or 11110xxx for the first byte, 10xxxxxx for the others\n" +
+                "        return b == 0 ? (0xf00 >> byteCount) & 0xff | c >> shift : 0x80 | (c >> shift) & 0x3f;\n" +
+                "    }\n" +
+                "}\n"
+        );
+    }
+}
@@ -0,0 +1,182 @@
+package com.indigobyte.maven.plugins;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.fedorahosted.tennera.jgettext.Catalog;
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles .po files into GNU gettext .mo files, {@code <outputDir>/<language>/LC_MESSAGES/<domain>.mo}, which can be
+ * replaced at runtime without recompiling classes. Optionally generates a reader class which memory-maps them.
+ */
+@Mojo(name = "generate-mo", threadSafe = true)
+public class MoGeneratorMojo extends AbstractMojo {
+
+    @Parameter(property = "outputDir", required = true)
+    private String outputDir;
+
+    @Parameter(property = "poFileName", required = true)
+    private String poFileName;
+
+    @Parameter(property = "domain", required = false, defaultValue = "messages")
+    private String domain;
+
+    @Parameter(property = "language", required = false)
+    private String language;
+
+    /**
+     * Languages to write .mo files for, instead of a single {@code language}.
+     */
+    @Parameter(property = "languages", required = false)
+    private List<String> languages;
+
+    /**
+     * Fully qualified name of the reader class, which is written to {@code readerOutputDir}.
+     */
+    @Parameter(property = "readerClass", required = false)
+    private String readerClass;
+
+    @Parameter(property = "readerOutputDir", required = false)
+    private String readerOutputDir;
+
+    @Parameter(property = "omitVersion", required = false, defaultValue = "false")
+    private boolean omitVersion;
+
+    @Parameter(property = "skip", required = false, defaultValue = "false")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    public static void main(String[] args) throws MojoExecutionException {
+        if (args.length == 4 || args.length == 6) {
+            List<String> languages = Arrays.asList(args[2].split(","));
+            generateMoFiles(
+                    new CatalogCache(),
+                    args[0],
+                    args[1],
+                    JavaGeneratorMojo.resolvePoFiles(languages.size() == 1 ? languages.get(0) : null, languages, args[3]),
+                    args.length == 6 ? args[4] : null,
+                    args.length == 6 ? args[5] : null,
+                    new GeneratorOptions(),
+                    new SystemStreamLog()
+            );
+        } else {
+            System.out.println("Usage: java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.MoGeneratorMojo <folder for .mo files> <domain> <language>[,<language> ...] <po file> [<folder for the reader class> <reader class>]\n" +
+                    "If several languages are given, " + JavaGeneratorMojo.LANGUAGE_PLACEHOLDER + " in the name of the po file is replaced by each of them.\n" +
+                    "example:\n" +
+                    "java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.MoGeneratorMojo ./i18n/locale messages en,de,fr messages_{language}.po ./i18n/generated com.indigobyte.i18n.MoReader"
+            );
+
+            System.exit(1);
+        }
+    }
+
+    static void generateMoFiles(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull String domain,
+            @NotNull Map<String, String> poFiles,
+            @Nullable String readerOutputDir,
+            @Nullable String readerClass,
+            @NotNull GeneratorOptions options,
+            @NotNull Log log
+    ) throws MojoExecutionException {
+        for (Map.Entry<String, String> entry : poFiles.entrySet()) {
+            Path path = getMoFilePath(outputDir, domain, entry.getKey());
+            boolean written = generateMoFile(catalogCache.getCatalog(entry.getValue()), entry.getValue(), path);
+            log.info(entry.getKey() + ": " + (written ? path + " was written" : path + " has not changed, file was not rewritten"));
+        }
+        if (readerClass != null && !readerClass.isEmpty()) {
+            if (readerOutputDir == null || readerOutputDir.isEmpty()) {
+                throw new MojoExecutionException("\"readerOutputDir\" must be set when \"readerClass\" is set");
+            }
+            String[] readerNames = readerClass.split("\\.");
+            Path readerClassPath = JavaGeneratorMojo.getPackageDir(readerOutputDir, readerNames).resolve(readerNames[readerNames.length - 1] + ".java");
+            boolean written = JavaGeneratorMojo.writeIfChanged(readerClassPath, out -> {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                    JavaGenerator.writeMoReaderClass(writer, options, JavaGeneratorMojo.getPackageName(readerClass), readerNames[readerNames.length - 1]);
+                }
+            });
+            log.info(readerClass + ": " + (written ? JavaGeneratorMojo.GenerationResult.WRITTEN : JavaGeneratorMojo.GenerationResult.UNCHANGED).getDescription());
+        }
+    }
+
+    @NotNull
+    static Path getMoFilePath(@NotNull String outputDir, @NotNull String domain, @NotNull String language) {
+        return Paths.get(outputDir, language, "LC_MESSAGES", domain + ".mo");
+    }
+
+    /**
+     * Writes all messages of the catalog which have translations, with and without context, and its header. Fuzzy and
+     * obsolete messages are left out, as {@code msgfmt} does by default, but the header is written even if it is fuzzy.
+     *
+     * @return {@code true} if the file was written, {@code false} if it has the same content already
+     */
+    static boolean generateMoFile(@NotNull Catalog catalog, @NotNull String poFileName, @NotNull Path path) throws MojoExecutionException {
+        JavaGeneratorMojo.checkPluralForms(catalog, poFileName, MoFileWriter::isWritten);
+        MoFileWriter moFileWriter = new MoFileWriter();
+        for (Message message : catalog) {
+            if (message.isHeader()) {
+                if (message.getMsgstr() != null) {
+                    moFileWriter.setHeader(message.getMsgstr());
+                }
+            } else {
+                moFileWriter.addMessage(message);
+            }
+        }
+        return JavaGeneratorMojo.writeIfChanged(path, moFileWriter::write);
+    }
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("MoGeneratorMojo has started");
+        if (!skip) {
+            generateMoFiles(
+                    CatalogCache.forSession(session),
+                    outputDir,
+                    domain,
+                    JavaGeneratorMojo.resolvePoFiles(language, languages, poFileName),
+                    readerOutputDir,
+                    readerClass,
+                    new GeneratorOptions().setOmitVersion(omitVersion),
+                    getLog()
+            );
+        } else {
+            getLog().info("\"skip\" is set to \"true\", .mo file generation was skipped");
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.indigobyte.maven.plugins;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.common.hash.Hashing;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates bundles of several locales which share a single key index: {@code <resource name>Index} class holds every
+ * key once, and each {@code <resource name>_<language>} bundle holds only an array of translations in the order of
+ * the key index. Lookup of a key in any locale is a search in the index followed by an array access, and callers can
+ * resolve the id of a key once and use it with bundles of all locales.
+ */
+@Mojo(name = "generate-java-multi-locale", threadSafe = true)
+public class MultiLocaleGeneratorMojo extends AbstractMojo {
+
+    @Parameter(property = "outputDir", required = true)
+    private String outputDir;
+
+    @Parameter(property = "resourceName", required = true)
+    private String resourceName;
+
+    /**
+     * Languages mapped to their .po files.
+     */
+    @Parameter(required = true)
+    private Map<String, String> poFiles;
+
+    @Parameter(property = "omitVersion", required = false, defaultValue = "false")
+    private boolean omitVersion;
+
+    @Parameter(property = "factoryClass", required = false)
+    private String factoryClass;
+
+    @Parameter(property = "formatterClass", required = false)
+    private String formatterClass;
+
+    @Parameter(property = "skip", required = false, defaultValue = "false")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    public static void main(String[] args) throws MojoExecutionException {
+        Map<String, String> poFiles = new TreeMap<>();
+        GeneratorOptions options = new GeneratorOptions();
+        boolean valid = args.length >= 3;
+        for (int i = 2; i < args.length && valid; ++i) {
+            int separatorPos = args[i].indexOf(':');
+            if (separatorPos > 0) {
+                poFiles.put(args[i].substring(0, separatorPos), args[i].substring(separatorPos + 1));
+            } else {
+                try {
+                    options.setFromArgument(args[i]);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    valid = false;
+                }
+            }
+        }
+        if (valid && !poFiles.isEmpty()) {
+            generateJavaFiles(new CatalogCache(), args[0], args[1], poFiles, options);
+        } else {
+            System.out.println("Usage: java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.MultiLocaleGeneratorMojo <folder for generated Java files> <resource name> <language>:<po file> [<language>:<po file> ...] [omitVersion=true|false] [factoryClass=<fully qualified class name>] [formatterClass=<fully qualified class name>]\n" +
+                    "example:\n" +
+                    "java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.MultiLocaleGeneratorMojo ./i18n/generated com.indigobyte.i18n.messages en:messages_en.po de:messages_de.po"
+            );
+
+            System.exit(1);
+        }
+    }
+
+    @NotNull
+    static JavaGeneratorMojo.GenerationResult generateJavaFiles(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull Map<String, String> poFiles,
+            @NotNull GeneratorOptions options
+    ) throws MojoExecutionException {
+        JavaGeneratorMojo.GenerationResult result = generateBundles(catalogCache, outputDir, resourceName, poFiles, options);
+        if (options.getFactoryClass() != null
+                && JavaGeneratorMojo.generateFactoryClass(outputDir, resourceName, poFiles.keySet(), options) == JavaGeneratorMojo.GenerationResult.WRITTEN) {
+            result = JavaGeneratorMojo.GenerationResult.WRITTEN;
+        }
+        if (options.getFormatterClass() != null
+                && JavaGeneratorMojo.generateFormatterClass(outputDir, options) == JavaGeneratorMojo.GenerationResult.WRITTEN) {
+            result = JavaGeneratorMojo.GenerationResult.WRITTEN;
+        }
+        return result;
+    }
+
+    @NotNull
+    private static JavaGeneratorMojo.GenerationResult generateBundles(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull Map<String, String> poFiles,
+            @NotNull GeneratorOptions options
+    ) throws MojoExecutionException {
+        String[] packageNames = resourceName.split("\\.");
+        String baseName = packageNames[packageNames.length - 1];
+        String indexClassName = baseName + "Index";
+        Path packageDir = JavaGeneratorMojo.getPackageDir(outputDir, packageNames);
+        Path indexPath = packageDir.resolve(indexClassName + ".java");
+
+        // Every generated file depends on all .po files, since ids of keys depend on messages of all locales
+        StringBuilder configuration = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(poFiles).entrySet()) {
+            configuration.append(JavaGeneratorMojo.getConfigurationHash(indexPath, resourceName, entry.getKey(), entry.getValue(), options)).append('\n');
+        }
+        String configurationHash = Hashing.sha256().hashString(configuration, StandardCharsets.UTF_8).toString();
+        if (isUpToDate(packageDir, indexPath, baseName, poFiles, configurationHash)) {
+            return JavaGeneratorMojo.GenerationResult.UP_TO_DATE;
+        }
+
+        Map<String, JavaGenerator> javaGenerators = new TreeMap<>();
+        Map<String, PluralFormula> pluralFormulas = new TreeMap<>();
+        SortedSet<String> allKeys = new TreeSet<>();
+        for (Map.Entry<String, String> entry : poFiles.entrySet()) {
+            JavaGenerator javaGenerator = new JavaGenerator(options);
+            pluralFormulas.put(entry.getKey(), JavaGeneratorMojo.addMessages(javaGenerator, catalogCache.getCatalog(entry.getValue()), entry.getValue()));
+            javaGenerators.put(entry.getKey(), javaGenerator);
+            allKeys.addAll(javaGenerator.getKeys());
+        }
+        List<String> keys = new ArrayList<>(allKeys);
+        String fullPackagePath = JavaGeneratorMojo.getPackageName(resourceName);
+
+        boolean written = JavaGeneratorMojo.writeIfChanged(indexPath, out -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                JavaGenerator.writeKeyIndex(writer, options, fullPackagePath, indexClassName, keys, configurationHash);
+            }
+        });
+        for (Map.Entry<String, JavaGenerator> entry : javaGenerators.entrySet()) {
+            String className = baseName + "_" + entry.getKey();
+            PluralFormula pluralFormula = pluralFormulas.get(entry.getKey());
+            written |= JavaGeneratorMojo.writeIfChanged(packageDir.resolve(className + ".java"), out -> {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                    entry.getValue().writeLocaleColumn(writer, fullPackagePath, className, indexClassName, keys, pluralFormula, configurationHash);
+                }
+            });
+        }
+        return written ? JavaGeneratorMojo.GenerationResult.WRITTEN : JavaGeneratorMojo.GenerationResult.UNCHANGED;
+    }
+
+    /**
+     * @return {@code true} if the key index and bundles of all locales are newer than all .po files and were generated
+     * with the same configuration
+     */
+    private static boolean isUpToDate(
+            @NotNull Path packageDir,
+            @NotNull Path indexPath,
+            @NotNull String baseName,
+            @NotNull Map<String, String> poFiles,
+            @NotNull String configurationHash
+    ) {
+        List<Path> paths = new ArrayList<>();
+        paths.add(indexPath);
+        for (String language : poFiles.keySet()) {
+            paths.add(packageDir.resolve(baseName + "_" + language + ".java"));
+        }
+        for (Path path : paths) {
+            for (String poFileName : poFiles.values()) {
+                if (!JavaGeneratorMojo.isUpToDate(path, poFileName, configurationHash)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("MultiLocaleGeneratorMojo has started");
+        if (!skip) {
+            JavaGeneratorMojo.GenerationResult result = generateJavaFiles(
+                    CatalogCache.forSession(session),
+                    outputDir,
+                    resourceName,
+                    poFiles,
+                    new GeneratorOptions()
+                            .setOmitVersion(omitVersion)
+                            .setFactoryClass(factoryClass)
+                            .setFormatterClass(formatterClass)
+            );
+            getLog().info(result.getDescription());
+        } else {
+            getLog().info("\"skip\" is set to \"true\", Java code generation from PO files was skipped");
+        }
+    }
+}
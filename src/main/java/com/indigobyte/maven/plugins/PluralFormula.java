@@ -0,0 +1,737 @@
+package com.indigobyte.maven.plugins;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Plural formula from the {@code Plural-Forms} header of a {@code .po} file, e.g.
+ * {@code n%10==1 && n%100!=11 ? 0 : n != 0 ? 1 : 2}.
+ * <p>
+ * Formulas are C expressions of the only variable {@code n} with the same operators and precedence as in GNU gettext:
+ * {@code ?:}, {@code ||}, {@code &&}, {@code ==}, {@code !=}, {@code <}, {@code >}, {@code <=}, {@code >=}, {@code +},
+ * {@code -}, {@code *}, {@code /}, {@code %} and {@code !}. As in C, results of comparisons and logical operators are
+ * {@code 0} or {@code 1}, and any non-zero value is true.
+ * <p>
+ * As in gettext, {@code n} and all values are 64-bit {@code unsigned long}: they are held in {@code long}, but divided
+ * and compared as unsigned, so that e.g. {@code n - 1} for {@code n = 0} is the largest value rather than {@code -1}.
+ */
+public final class PluralFormula {
+    /**
+     * Formula used by gettext if a {@code .po} file has no {@code Plural-Forms} header.
+     */
+    public static final PluralFormula DEFAULT = parse("n != 1", 2);
+    /**
+     * The formula is checked for all numbers from {@code 0} to this one.
+     */
+    public static final int VALIDATION_LIMIT = 100_000;
+
+    @NotNull
+    private final String source;
+    private final int pluralCount;
+    @NotNull
+    private final Node root;
+
+    private PluralFormula(@NotNull String source, int pluralCount, @NotNull Node root) {
+        this.source = source;
+        this.pluralCount = pluralCount;
+        this.root = root;
+    }
+
+    /**
+     * Parses the formula and checks that for every number from {@code 0} to {@link #VALIDATION_LIMIT} it selects one of
+     * {@code pluralCount} forms, and that each of the forms is selected for some number.
+     *
+     * @param pluralCount value of {@code nplurals}
+     * @throws IllegalArgumentException if the formula is malformed or doesn't match {@code pluralCount}
+     */
+    @NotNull
+    public static PluralFormula parse(@NotNull String formula, int pluralCount) {
+        PluralFormula pluralFormula = parseExpression(formula, pluralCount);
+        pluralFormula.validate();
+        return pluralFormula;
+    }
+
+    /**
+     * Same as {@link #parse(String, int)}, but doesn't check values of the formula, so it accepts any expression.
+     *
+     * @throws IllegalArgumentException if the formula is malformed
+     */
+    @VisibleForTesting
+    @NotNull
+    static PluralFormula parseExpression(@NotNull String formula, int pluralCount) {
+        Parser parser = new Parser(formula);
+        Node root = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.pos != formula.length()) {
+            throw parser.error("unexpected '" + formula.charAt(parser.pos) + "'");
+        }
+        return new PluralFormula(formula, pluralCount, root.fold());
+    }
+
+    private void validate() {
+        if (pluralCount < 1) {
+            throw new IllegalArgumentException("nplurals must be positive, but it is " + pluralCount);
+        }
+        boolean[] selected = new boolean[pluralCount];
+        int selectedCount = 0;
+        for (long n = 0; n <= VALIDATION_LIMIT; ++n) {
+            long form;
+            try {
+                form = evaluate(n);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Plural formula \"" + source + "\" divides by zero for n = " + n);
+            }
+            if (Long.compareUnsigned(form, pluralCount) >= 0) {
+                throw new IllegalArgumentException("Plural formula \"" + source + "\" selects form " + Long.toUnsignedString(form) + " for n = " + n + ", but nplurals is " + pluralCount);
+            }
+            if (!selected[(int) form]) {
+                selected[(int) form] = true;
+                ++selectedCount;
+            }
+        }
+        if (selectedCount != pluralCount) {
+            for (int form = 0; form < pluralCount; ++form) {
+                if (!selected[form]) {
+                    throw new IllegalArgumentException("Plural formula \"" + source + "\" never selects form " + form + " for n from 0 to " + VALIDATION_LIMIT + ", but nplurals is " + pluralCount);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return number of plural forms, i.e. value of {@code nplurals}
+     */
+    public int getPluralCount() {
+        return pluralCount;
+    }
+
+    /**
+     * @param n unsigned number
+     * @return index of the plural form for {@code n}, which is unsigned
+     * @throws ArithmeticException if the formula divides by zero for {@code n}
+     */
+    public long evaluate(long n) {
+        return root.evaluate(n);
+    }
+
+    /**
+     * @return body of a method which returns the value of the formula for its {@code long} parameter {@code n}, each
+     * line starts with {@code indent}. Both are unsigned, as in {@link #evaluate(long)}.
+     */
+    @NotNull
+    public String toJavaMethodBody(@NotNull String indent) {
+        JavaBuilder builder = new JavaBuilder(root, indent);
+        String expression = root.toJava(builder);
+        return builder.declarations + indent + "return " + expression + ";\n";
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private enum Operator {
+        OR("||", 1, true),
+        AND("&&", 2, true),
+        EQUAL("==", 3, true),
+        NOT_EQUAL("!=", 3, true),
+        LESS("<", 4, true),
+        GREATER(">", 4, true),
+        LESS_OR_EQUAL("<=", 4, true),
+        GREATER_OR_EQUAL(">=", 4, true),
+        PLUS("+", 5, false),
+        MINUS("-", 5, false),
+        MULTIPLY("*", 6, false),
+        DIVIDE("/", 6, false),
+        REMAINDER("%", 6, false);
+
+        @NotNull
+        private final String symbol;
+        private final int precedence;
+        private final boolean conditional;
+
+        Operator(@NotNull String symbol, int precedence, boolean conditional) {
+            this.symbol = symbol;
+            this.precedence = precedence;
+            this.conditional = conditional;
+        }
+
+        long apply(@NotNull Node left, @NotNull Node right, long n) {
+            switch (this) {
+                // Short-circuit evaluation, as in C
+                case OR:
+                    return left.evaluate(n) != 0 || right.evaluate(n) != 0 ? 1 : 0;
+                case AND:
+                    return left.evaluate(n) != 0 && right.evaluate(n) != 0 ? 1 : 0;
+                default:
+                    break;
+            }
+            long a = left.evaluate(n);
+            long b = right.evaluate(n);
+            switch (this) {
+                case EQUAL:
+                    return a == b ? 1 : 0;
+                case NOT_EQUAL:
+                    return a != b ? 1 : 0;
+                case LESS:
+                    return Long.compareUnsigned(a, b) < 0 ? 1 : 0;
+                case GREATER:
+                    return Long.compareUnsigned(a, b) > 0 ? 1 : 0;
+                case LESS_OR_EQUAL:
+                    return Long.compareUnsigned(a, b) <= 0 ? 1 : 0;
+                case GREATER_OR_EQUAL:
+                    return Long.compareUnsigned(a, b) >= 0 ? 1 : 0;
+                // Addition, subtraction and multiplication of two's complement numbers are the same for unsigned ones
+                case PLUS:
+                    return a + b;
+                case MINUS:
+                    return a - b;
+                case MULTIPLY:
+                    return a * b;
+                case DIVIDE:
+                    return Long.divideUnsigned(a, b);
+                case REMAINDER:
+                    return Long.remainderUnsigned(a, b);
+                default:
+                    throw new IllegalStateException("Unexpected operator " + this);
+            }
+        }
+    }
+
+    private static abstract class Node {
+        abstract long evaluate(long n);
+
+        abstract boolean isConstant();
+
+        /**
+         * @return {@code true} if evaluation of the node can't throw, so it may be moved out of conditions
+         */
+        abstract boolean isSafe();
+
+        /**
+         * @return node which evaluates to the same values, with constant subexpressions replaced by their values
+         */
+        @NotNull
+        abstract Node fold();
+
+        /**
+         * @return text which is the same for structurally equal nodes
+         */
+        @NotNull
+        abstract String getKey();
+
+        /**
+         * Visits all nodes of the tree, children first.
+         */
+        void visit(@NotNull Consumer<Node> visitor) {
+            visitor.accept(this);
+        }
+
+        /**
+         * @return Java expression of type {@code long}
+         */
+        @NotNull
+        String toJava(@NotNull JavaBuilder builder) {
+            return "(" + toJavaCondition(builder) + " ? 1L : 0L)";
+        }
+
+        /**
+         * @return Java expression of type {@code boolean} which is {@code true} if the value is not zero
+         */
+        @NotNull
+        String toJavaCondition(@NotNull JavaBuilder builder) {
+            return "(" + toJava(builder) + " != 0)";
+        }
+
+        /**
+         * @return constant node with the value of this one, or this node if it isn't constant or its evaluation fails
+         */
+        @NotNull
+        Node foldIfConstant() {
+            if (isConstant()) {
+                try {
+                    return new NumberNode(evaluate(0));
+                } catch (ArithmeticException e) {
+                    // Left as is, so that the generated code fails the same way
+                }
+            }
+            return this;
+        }
+    }
+
+    private static class NumberNode extends Node {
+        private final long value;
+
+        NumberNode(long value) {
+            this.value = value;
+        }
+
+        @Override
+        long evaluate(long n) {
+            return value;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+
+        @Override
+        boolean isSafe() {
+            return true;
+        }
+
+        @NotNull
+        @Override
+        Node fold() {
+            return this;
+        }
+
+        @NotNull
+        @Override
+        String getKey() {
+            return Long.toString(value);
+        }
+
+        @NotNull
+        @Override
+        String toJava(@NotNull JavaBuilder builder) {
+            return value + "L";
+        }
+
+        @NotNull
+        @Override
+        String toJavaCondition(@NotNull JavaBuilder builder) {
+            return value != 0 ? "true" : "false";
+        }
+    }
+
+    private static class VariableNode extends Node {
+        @Override
+        long evaluate(long n) {
+            return n;
+        }
+
+        @Override
+        boolean isConstant() {
+            return false;
+        }
+
+        @Override
+        boolean isSafe() {
+            return true;
+        }
+
+        @NotNull
+        @Override
+        Node fold() {
+            return this;
+        }
+
+        @NotNull
+        @Override
+        String getKey() {
+            return "n";
+        }
+
+        @NotNull
+        @Override
+        String toJava(@NotNull JavaBuilder builder) {
+            return "n";
+        }
+    }
+
+    private static class NotNode extends Node {
+        @NotNull
+        private final Node operand;
+
+        NotNode(@NotNull Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        long evaluate(long n) {
+            return operand.evaluate(n) == 0 ? 1 : 0;
+        }
+
+        @Override
+        boolean isConstant() {
+            return operand.isConstant();
+        }
+
+        @Override
+        boolean isSafe() {
+            return operand.isSafe();
+        }
+
+        @NotNull
+        @Override
+        Node fold() {
+            return new NotNode(operand.fold()).foldIfConstant();
+        }
+
+        @NotNull
+        @Override
+        String getKey() {
+            return "!" + operand.getKey();
+        }
+
+        @Override
+        void visit(@NotNull Consumer<Node> visitor) {
+            operand.visit(visitor);
+            visitor.accept(this);
+        }
+
+        @NotNull
+        @Override
+        String toJavaCondition(@NotNull JavaBuilder builder) {
+            return "!" + operand.toJavaCondition(builder);
+        }
+    }
+
+    private static class BinaryNode extends Node {
+        @NotNull
+        private final Operator operator;
+        @NotNull
+        private final Node left;
+        @NotNull
+        private final Node right;
+
+        BinaryNode(@NotNull Operator operator, @NotNull Node left, @NotNull Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        long evaluate(long n) {
+            return operator.apply(left, right, n);
+        }
+
+        @Override
+        boolean isConstant() {
+            return left.isConstant() && right.isConstant();
+        }
+
+        @Override
+        boolean isSafe() {
+            if (!left.isSafe() || !right.isSafe()) {
+                return false;
+            }
+            if (operator == Operator.DIVIDE || operator == Operator.REMAINDER) {
+                return right instanceof NumberNode && ((NumberNode) right).value != 0;
+            }
+            return true;
+        }
+
+        @NotNull
+        @Override
+        Node fold() {
+            return new BinaryNode(operator, left.fold(), right.fold()).foldIfConstant();
+        }
+
+        @NotNull
+        @Override
+        String getKey() {
+            return "(" + left.getKey() + operator.symbol + right.getKey() + ")";
+        }
+
+        @Override
+        void visit(@NotNull Consumer<Node> visitor) {
+            left.visit(visitor);
+            right.visit(visitor);
+            visitor.accept(this);
+        }
+
+        /**
+         * @return {@code true} if the value of the node may be computed once into a local variable
+         */
+        boolean isHoistable() {
+            return !operator.conditional && !isConstant() && isSafe();
+        }
+
+        @NotNull
+        @Override
+        String toJava(@NotNull JavaBuilder builder) {
+            if (operator.conditional) {
+                return super.toJava(builder);
+            }
+            if (isHoistable()) {
+                return builder.getLocal(this, () -> toJavaArithmetic(builder));
+            }
+            return toJavaArithmetic(builder);
+        }
+
+        @NotNull
+        private String toJavaArithmetic(@NotNull JavaBuilder builder) {
+            switch (operator) {
+                case DIVIDE:
+                    return "Long.divideUnsigned(" + left.toJava(builder) + ", " + right.toJava(builder) + ")";
+                case REMAINDER:
+                    return "Long.remainderUnsigned(" + left.toJava(builder) + ", " + right.toJava(builder) + ")";
+                default:
+                    return "(" + left.toJava(builder) + " " + operator.symbol + " " + right.toJava(builder) + ")";
+            }
+        }
+
+        @NotNull
+        @Override
+        String toJavaCondition(@NotNull JavaBuilder builder) {
+            switch (operator) {
+                case OR:
+                case AND:
+                    return "(" + left.toJavaCondition(builder) + " " + operator.symbol + " " + right.toJavaCondition(builder) + ")";
+                case PLUS:
+                case MINUS:
+                case MULTIPLY:
+                case DIVIDE:
+                case REMAINDER:
+                    return super.toJavaCondition(builder);
+                case EQUAL:
+                case NOT_EQUAL:
+                    return "(" + left.toJava(builder) + " " + operator.symbol + " " + right.toJava(builder) + ")";
+                default:
+                    return "(Long.compareUnsigned(" + left.toJava(builder) + ", " + right.toJava(builder) + ") " + operator.symbol + " 0)";
+            }
+        }
+    }
+
+    private static class ConditionalNode extends Node {
+        @NotNull
+        private final Node condition;
+        @NotNull
+        private final Node whenTrue;
+        @NotNull
+        private final Node whenFalse;
+
+        ConditionalNode(@NotNull Node condition, @NotNull Node whenTrue, @NotNull Node whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        long evaluate(long n) {
+            return condition.evaluate(n) != 0 ? whenTrue.evaluate(n) : whenFalse.evaluate(n);
+        }
+
+        @Override
+        boolean isConstant() {
+            return condition.isConstant() && whenTrue.isConstant() && whenFalse.isConstant();
+        }
+
+        @Override
+        boolean isSafe() {
+            return condition.isSafe() && whenTrue.isSafe() && whenFalse.isSafe();
+        }
+
+        @NotNull
+        @Override
+        Node fold() {
+            Node foldedCondition = condition.fold();
+            if (foldedCondition instanceof NumberNode) {
+                return ((NumberNode) foldedCondition).value != 0 ? whenTrue.fold() : whenFalse.fold();
+            }
+            return new ConditionalNode(foldedCondition, whenTrue.fold(), whenFalse.fold());
+        }
+
+        @NotNull
+        @Override
+        String getKey() {
+            return "(" + condition.getKey() + "?" + whenTrue.getKey() + ":" + whenFalse.getKey() + ")";
+        }
+
+        @Override
+        void visit(@NotNull Consumer<Node> visitor) {
+            condition.visit(visitor);
+            whenTrue.visit(visitor);
+            whenFalse.visit(visitor);
+            visitor.accept(this);
+        }
+
+        @NotNull
+        @Override
+        String toJava(@NotNull JavaBuilder builder) {
+            return "(" + condition.toJavaCondition(builder) + " ? " + whenTrue.toJava(builder) + " : " + whenFalse.toJava(builder) + ")";
+        }
+
+        @NotNull
+        @Override
+        String toJavaCondition(@NotNull JavaBuilder builder) {
+            // "c ? 1 : 0" used as a condition is just "c"
+            if (whenTrue instanceof NumberNode && whenFalse instanceof NumberNode) {
+                boolean trueValue = ((NumberNode) whenTrue).value != 0;
+                boolean falseValue = ((NumberNode) whenFalse).value != 0;
+                if (trueValue && !falseValue) {
+                    return condition.toJavaCondition(builder);
+                } else if (!trueValue && falseValue) {
+                    return "!" + condition.toJavaCondition(builder);
+                }
+            }
+            return super.toJavaCondition(builder);
+        }
+    }
+
+    /**
+     * Builds Java code of the formula. Arithmetic subexpressions which occur more than once and can't throw, such as
+     * {@code n % 10}, are computed once into local variables.
+     */
+    private static class JavaBuilder {
+        @NotNull
+        private final Set<String> repeatedKeys = new HashSet<>();
+        @NotNull
+        private final Map<String, String> locals = new HashMap<>();
+        @NotNull
+        private final StringBuilder declarations = new StringBuilder();
+        @NotNull
+        private final String indent;
+
+        JavaBuilder(@NotNull Node root, @NotNull String indent) {
+            this.indent = indent;
+            Set<String> keys = new HashSet<>();
+            root.visit(node -> {
+                if (node instanceof BinaryNode && ((BinaryNode) node).isHoistable() && !keys.add(node.getKey())) {
+                    repeatedKeys.add(node.getKey());
+                }
+            });
+        }
+
+        @NotNull
+        String getLocal(@NotNull Node node, @NotNull Supplier<String> expression) {
+            String key = node.getKey();
+            if (!repeatedKeys.contains(key)) {
+                return expression.get();
+            }
+            String local = locals.get(key);
+            if (local == null) {
+                // Computed before the name is assigned, so that locals it depends on are declared first
+                String value = expression.get();
+                local = "t" + locals.size();
+                locals.put(key, local);
+                declarations.append(indent).append("long ").append(local).append(" = ").append(value).append(";\n");
+            }
+            return local;
+        }
+    }
+
+    /**
+     * Recursive descent parser, binary operators are parsed by precedence climbing.
+     */
+    private static class Parser {
+        @NotNull
+        private final String formula;
+        private int pos;
+
+        Parser(@NotNull String formula) {
+            this.formula = formula;
+        }
+
+        @NotNull
+        Node parseExpression() {
+            Node condition = parseBinary(1);
+            if (!consume("?")) {
+                return condition;
+            }
+            Node whenTrue = parseExpression();
+            if (!consume(":")) {
+                throw error("':' expected");
+            }
+            return new ConditionalNode(condition, whenTrue, parseExpression());
+        }
+
+        @NotNull
+        private Node parseBinary(int minPrecedence) {
+            Node left = parseUnary();
+            while (true) {
+                Operator operator = peekOperator();
+                if (operator == null || operator.precedence < minPrecedence) {
+                    return left;
+                }
+                pos += operator.symbol.length();
+                left = new BinaryNode(operator, left, parseBinary(operator.precedence + 1));
+            }
+        }
+
+        @NotNull
+        private Node parseUnary() {
+            skipWhitespace();
+            if (pos == formula.length()) {
+                throw error("unexpected end of formula");
+            }
+            char c = formula.charAt(pos);
+            if (c == '!' && !formula.startsWith("!=", pos)) {
+                ++pos;
+                return new NotNode(parseUnary());
+            }
+            if (c == '(') {
+                ++pos;
+                Node node = parseExpression();
+                if (!consume(")")) {
+                    throw error("')' expected");
+                }
+                return node;
+            }
+            if (c == 'n') {
+                ++pos;
+                return new VariableNode();
+            }
+            if (c >= '0' && c <= '9') {
+                int start = pos;
+                while (pos < formula.length() && formula.charAt(pos) >= '0' && formula.charAt(pos) <= '9') {
+                    ++pos;
+                }
+                try {
+                    return new NumberNode(Long.parseLong(formula.substring(start, pos)));
+                } catch (NumberFormatException e) {
+                    pos = start;
+                    throw error("number is too large");
+                }
+            }
+            throw error("unexpected '" + c + "'");
+        }
+
+        private Operator peekOperator() {
+            skipWhitespace();
+            Operator result = null;
+            for (Operator operator : Operator.values()) {
+                // The longest match wins, so that "<=" is not taken for "<"
+                if (formula.startsWith(operator.symbol, pos) && (result == null || operator.symbol.length() > result.symbol.length())) {
+                    result = operator;
+                }
+            }
+            return result;
+        }
+
+        private boolean consume(@NotNull String token) {
+            skipWhitespace();
+            if (formula.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while (pos < formula.length() && Character.isWhitespace(formula.charAt(pos))) {
+                ++pos;
+            }
+        }
+
+        @NotNull
+        IllegalArgumentException error(@NotNull String message) {
+            return new IllegalArgumentException("Invalid plural formula \"" + formula + "\" at position " + pos + ": " + message);
+        }
+    }
+}
@@ -18,7 +18,8 @@ package com.indigobyte.maven.plugins;
 
 import com.google.common.collect.LinkedHashMultiset;
 import com.indigobyte.helper.Utils;
-import com.indigobyte.javautil.Formatter;
+import com.indigobyte.javautil.FormatSpecifierParser;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -26,18 +27,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.fedorahosted.tennera.jgettext.Catalog;
 import org.fedorahosted.tennera.jgettext.Message;
-import org.fedorahosted.tennera.jgettext.PoParser;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
-@Mojo(name = "validate-po")
+@Mojo(name = "validate-po", threadSafe = true)
 public class PoValidatorMojo extends AbstractMojo {
-    private static Formatter formatter = new Formatter();
-
     @Parameter(property = "potFileName", required = true)
     private String potFileName;
 
@@ -56,9 +51,13 @@ public class PoValidatorMojo extends AbstractMojo {
     @Parameter(property = "skip", required = false, defaultValue = "false")
     private boolean skip;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     public static void main(String[] args) throws MojoExecutionException {
         if (args.length == 5) {
             validateFiles(
+                    new CatalogCache(),
                     args[0],
                     args[1],
                     Boolean.parseBoolean(args[2]),
@@ -82,13 +81,9 @@ public class PoValidatorMojo extends AbstractMojo {
         }
     }
 
-    private static List<Formatter.FormatSpecifier> getFormatSpecifiers(String str) {
+    private static List<FormatSpecifierParser.Specifier> getFormatSpecifiers(String str) {
         try {
-            List<Formatter.FormatSpecifier> result = formatter.parse(str).stream()
-                    .filter(p -> p instanceof Formatter.FormatSpecifier)
-                    .map(p -> (Formatter.FormatSpecifier) p)
-                    .collect(Collectors.toList());
-            return result;
+            return FormatSpecifierParser.parseSpecifiers(str);
         } catch (UnknownFormatConversionException e) {
             System.err.println("Unable to parse string \"" + str + "\"");
             e.printStackTrace();
@@ -97,15 +92,15 @@ public class PoValidatorMojo extends AbstractMojo {
     }
 
     @NotNull
-    private static String getContextId(@NotNull Message potMessage) {
+    static String getContextId(@NotNull Message potMessage) {
         return "ctx: \"" + potMessage.getMsgctxt() + "\", id: \"" + potMessage.getMsgid() + "\"";
     }
 
     private static void checkFormatMatching(@NotNull Message potMessage, @NotNull Message poMessage, @NotNull String potString, @NotNull String poString) throws MojoExecutionException {
-        List<Formatter.FormatSpecifier> potFormats = getFormatSpecifiers(potString);
-        List<Formatter.FormatSpecifier> poFormats = getFormatSpecifiers(poString);
-        LinkedHashMultiset<Formatter.FormatSpecifier> potFormatSet = LinkedHashMultiset.create(potFormats);
-        LinkedHashMultiset<Formatter.FormatSpecifier> poFormatSet = LinkedHashMultiset.create(poFormats);
+        List<FormatSpecifierParser.Specifier> potFormats = getFormatSpecifiers(potString);
+        List<FormatSpecifierParser.Specifier> poFormats = getFormatSpecifiers(poString);
+        LinkedHashMultiset<FormatSpecifierParser.Specifier> potFormatSet = LinkedHashMultiset.create(potFormats);
+        LinkedHashMultiset<FormatSpecifierParser.Specifier> poFormatSet = LinkedHashMultiset.create(poFormats);
 
         if (Objects.equals(potFormatSet, poFormatSet)) {
             return;
@@ -116,7 +111,8 @@ public class PoValidatorMojo extends AbstractMojo {
         );
     }
 
-    private static void validateFiles(
+    static void validateFiles(
+            @NotNull CatalogCache catalogCache,
             @NotNull String potFileName,
             @NotNull String poFileName,
             boolean exactMatch,
@@ -124,8 +120,8 @@ public class PoValidatorMojo extends AbstractMojo {
             boolean allowFuzzy
     ) throws MojoExecutionException {
         try {
-            Map<MessageContextId, Message> potCatalog = loadCatalog(potFileName);
-            Map<MessageContextId, Message> poCatalog = loadCatalog(poFileName);
+            Map<MessageContextId, Message> potCatalog = loadCatalog(catalogCache, potFileName);
+            Map<MessageContextId, Message> poCatalog = loadCatalog(catalogCache, poFileName);
             if (!Objects.equals(potCatalog.keySet(), poCatalog.keySet())) {
                 throw new MojoExecutionException("Message lists do not match: " + Utils.createMessage(
                         potCatalog.keySet(),
@@ -215,14 +211,8 @@ public class PoValidatorMojo extends AbstractMojo {
     }
 
     @NotNull
-    private static Map<MessageContextId, Message> loadCatalog(@NotNull String fileName) throws MojoExecutionException {
-        PoParser parser = new PoParser();
-        Catalog potCatalog;
-        try {
-            potCatalog = parser.parseCatalog(new File(fileName));
-        } catch (IOException e) {
-            throw new MojoExecutionException("Unable to parse file " + fileName, e);
-        }
+    private static Map<MessageContextId, Message> loadCatalog(@NotNull CatalogCache catalogCache, @NotNull String fileName) throws MojoExecutionException {
+        Catalog potCatalog = catalogCache.getCatalog(fileName);
         Map<MessageContextId, Message> result = new HashMap<>();
         boolean nullContextMessageRead = false;
         for (Message message : potCatalog) {
@@ -241,7 +231,7 @@ public class PoValidatorMojo extends AbstractMojo {
     public void execute() throws MojoExecutionException, MojoFailureException {
         getLog().info("PoValidatorMojo has started");
         if (!skip) {
-            validateFiles(potFileName, poFileName, exactMatch, allowEmptyTranslations, allowFuzzy);
+            validateFiles(CatalogCache.forSession(session), potFileName, poFileName, exactMatch, allowEmptyTranslations, allowFuzzy);
         } else {
             getLog().info("\"skip\" is set to \"true\", PO validation was skipped");
         }
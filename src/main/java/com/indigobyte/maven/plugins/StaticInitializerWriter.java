@@ -0,0 +1,386 @@
+package com.indigobyte.maven.plugins;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes statements which fill static tables of a generated class, so that the class compiles regardless of the number
+ * and size of the statements.
+ * <p>
+ * A method may have at most 64 KB of bytecode and a class at most 65535 constants, and every distinct string literal
+ * takes two of them. The size of bytecode and the constants of each statement are estimated while it is written, and
+ * statements are grouped into {@code clinit_part_N} methods which stay well within the limits. Statements which don't
+ * fit into the constant pool of the class itself go to nested {@code Part_N} holder classes, each of them having a
+ * constant pool of its own. Tables are passed to methods of holder classes as arguments.
+ */
+final class StaticInitializerWriter {
+    /**
+     * Upper bound of the size of a string constant in modified UTF-8, longer strings are concatenated at runtime.
+     */
+    static final int MAX_STRING_CONSTANT_LENGTH = 65_535;
+    private static final int MAX_METHOD_STATEMENT_COUNT = 1000;
+    private static final int MAX_METHOD_CODE_SIZE = 32 * 1024;
+    /**
+     * Constants available to statements. The rest of 65535 is left to the code which isn't estimated.
+     */
+    static final int MAX_CONSTANT_COUNT = 60_000;
+    // Methodref, NameAndType and name of a clinit_part_N method
+    private static final int METHOD_CONSTANT_COUNT = 3;
+    // Class, Methodref, NameAndType and names of a holder class and its fill() method in the class which calls it
+    private static final int HOLDER_CONSTANT_COUNT = 6;
+    // Constants for calls of holder classes are reserved in the class itself before its statements are assigned
+    private static final int MAX_HOLDER_COUNT = 256;
+    /**
+     * Constants which may be used by the rest of the class.
+     */
+    static final int MAX_RESERVED_CONSTANT_COUNT = MAX_CONSTANT_COUNT - MAX_HOLDER_COUNT * HOLDER_CONSTANT_COUNT;
+
+    private StaticInitializerWriter() {
+    }
+
+    /**
+     * Statements of a static initializer.
+     */
+    interface Statements {
+        int size();
+
+        /**
+         * Writes statement number {@code index}. The same statement must always be written the same way, since it is
+         * written once to estimate its cost and once to generate code.
+         */
+        void write(@NotNull Code code, int index) throws IOException;
+    }
+
+    /**
+     * Writes code of statements and estimates its cost. All estimates are upper bounds.
+     */
+    static final class Code {
+        @Nullable
+        private final Writer out;
+        @NotNull
+        private final String indent;
+        private int size;
+        private final List<Object> constants = new ArrayList<>();
+
+        /**
+         * @param out where code is written, or {@code null} if only its cost is estimated
+         */
+        Code(@Nullable Writer out, @NotNull String indent) {
+            this.out = out;
+            this.indent = indent;
+        }
+
+        /**
+         * Writes code which doesn't use constants of its own.
+         *
+         * @param codeSize size of bytecode of the code
+         */
+        void write(@NotNull String text, int codeSize) throws IOException {
+            if (out != null) {
+                out.write(text);
+            }
+            size += codeSize;
+        }
+
+        void startStatement() throws IOException {
+            write(indent, 0);
+        }
+
+        void endStatement() throws IOException {
+            write(";\n", 0);
+        }
+
+        /**
+         * Writes string literal, or concatenation of literals if the string is too long for a single constant.
+         */
+        void writeString(@NotNull String str) throws IOException {
+            List<String> pieces = splitString(str);
+            for (int i = 0; i < pieces.size(); ++i) {
+                if (i > 0) {
+                    // invokevirtual
+                    write(".concat(", 3);
+                }
+                if (out != null) {
+                    writeLiteral(out, pieces.get(i));
+                }
+                // ldc_w
+                size += 3;
+                constants.add(pieces.get(i));
+                if (i > 0) {
+                    write(")", 0);
+                }
+            }
+        }
+
+        void writeInt(int value) throws IOException {
+            // sipush, or ldc_w of an Integer constant
+            write(Integer.toString(value), 3);
+            if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                constants.add(value);
+            }
+        }
+
+        /**
+         * Writes reference to a static field of the generated class.
+         */
+        void writeField(@NotNull String name) throws IOException {
+            write(name, 3);
+            constants.add(new FieldReference(name));
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        /**
+         * @return number of constants used by the code which are not yet in {@code pool}
+         */
+        int getNewConstantCount(@NotNull Set<Object> pool) {
+            int count = 0;
+            Set<Object> counted = new HashSet<>();
+            for (Object constant : constants) {
+                if (!pool.contains(constant) && counted.add(constant)) {
+                    count += getConstantCount(constant);
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Adds constants used by the code to {@code pool}.
+         *
+         * @return number of constants which were not yet in {@code pool}
+         */
+        int addConstants(@NotNull Set<Object> pool) {
+            int count = getNewConstantCount(pool);
+            pool.addAll(constants);
+            return count;
+        }
+
+        private void reset() {
+            size = 0;
+            constants.clear();
+        }
+    }
+
+    private static final class FieldReference {
+        @NotNull
+        private final String name;
+
+        FieldReference(@NotNull String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FieldReference && name.equals(((FieldReference) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+
+    private static int getConstantCount(@NotNull Object constant) {
+        if (constant instanceof String) {
+            // String and Utf8
+            return 2;
+        } else if (constant instanceof FieldReference) {
+            // Fieldref, NameAndType, name, and the accessor method which javac generates for a private field accessed
+            // from a nested class
+            return 5;
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * Writes string literal, or concatenation of literals if the string is too long for a single constant. Unlike
+     * {@code +}, {@code concat()} of literals isn't a constant expression, so javac doesn't merge them back into a single
+     * constant.
+     */
+    static void writeString(@NotNull Writer out, @NotNull String str) throws IOException {
+        new Code(out, "").writeString(str);
+    }
+
+    private static void writeLiteral(@NotNull Writer out, @NotNull String str) throws IOException {
+        out.write('"');
+        StringEscapeUtils.ESCAPE_JAVA.translate(str, out);
+        out.write('"');
+    }
+
+    /**
+     * @return pieces of the string, each of them short enough to be a string constant
+     */
+    @NotNull
+    private static List<String> splitString(@NotNull String str) {
+        if (str.length() <= MAX_STRING_CONSTANT_LENGTH / 3) {
+            return Collections.singletonList(str);
+        }
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        int length = 0;
+        for (int i = 0; i < str.length(); ) {
+            char c = str.charAt(i);
+            // Surrogate pairs are kept in the same piece
+            int end = Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1)) ? i + 2 : i + 1;
+            int charLength = end - i == 2 ? 6 : c != 0 && c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            if (length + charLength > MAX_STRING_CONSTANT_LENGTH) {
+                pieces.add(str.substring(start, i));
+                start = i;
+                length = 0;
+            }
+            length += charLength;
+            i = end;
+        }
+        pieces.add(str.substring(start));
+        return pieces;
+    }
+
+    /**
+     * Writes static initializer which executes all statements, and the methods and holder classes which hold them.
+     *
+     * @param parameters            parameters of methods of holder classes, which receive the tables of the class
+     * @param arguments             the tables passed to methods of holder classes
+     * @param reservedConstantCount constants used by the rest of the class, which are not available to statements
+     * @throws IllegalStateException if the rest of the class leaves too few constants for statements
+     */
+    static void write(
+            @NotNull Writer out,
+            @NotNull String parameters,
+            @NotNull String arguments,
+            int reservedConstantCount,
+            @NotNull Statements statements
+    ) throws IOException {
+        write(out, "    ", parameters, arguments, reservedConstantCount, statements);
+    }
+
+    /**
+     * Same as {@link #write(Writer, String, String, int, Statements)} for a nested class.
+     *
+     * @param indent indentation of members of the class
+     */
+    static void write(
+            @NotNull Writer out,
+            @NotNull String indent,
+            @NotNull String parameters,
+            @NotNull String arguments,
+            int reservedConstantCount,
+            @NotNull Statements statements
+    ) throws IOException {
+        Layout layout = new Layout(statements, reservedConstantCount);
+        out.write("\n" +
+                indent + "static {\n"
+        );
+        int holderCount = 0;
+        for (int method = 0; method < layout.methodStarts.size(); ++method) {
+            holderCount = layout.methodHolders.get(method);
+            if (holderCount == 0) {
+                out.write(indent + "    clinit_part_" + method + "();\n");
+            }
+        }
+        for (int holder = 1; holder <= holderCount; ++holder) {
+            out.write(indent + "    Part_" + (holder - 1) + ".fill(" + arguments + ");\n");
+        }
+        out.write(indent + "}\n" +
+                "\n"
+        );
+        Code code = new Code(out, indent + "    ");
+        Code holderCode = new Code(out, indent + "        ");
+        for (int method = 0; method < layout.methodStarts.size(); ++method) {
+            int holder = layout.methodHolders.get(method);
+            if (holder == 0) {
+                out.write(indent + "private static void clinit_part_" + method + "() {\n");
+            } else {
+                if (method == 0 || layout.methodHolders.get(method - 1) != holder) {
+                    out.write(indent + "private static final class Part_" + (holder - 1) + " {\n" +
+                            indent + "    static void fill(" + parameters + ") {\n"
+                    );
+                    for (int part = method; part < layout.methodStarts.size() && layout.methodHolders.get(part) == holder; ++part) {
+                        out.write(indent + "        clinit_part_" + part + "(" + arguments + ");\n");
+                    }
+                    out.write(indent + "    }\n");
+                }
+                out.write("\n" +
+                        indent + "    private static void clinit_part_" + method + "(" + parameters + ") {\n"
+                );
+            }
+            int end = method + 1 < layout.methodStarts.size() ? layout.methodStarts.get(method + 1) : statements.size();
+            for (int index = layout.methodStarts.get(method); index < end; ++index) {
+                statements.write(holder == 0 ? code : holderCode, index);
+            }
+            if (holder == 0) {
+                out.write(indent + "}\n" +
+                        "\n"
+                );
+            } else {
+                out.write(indent + "    }\n");
+                if (method + 1 == layout.methodStarts.size() || layout.methodHolders.get(method + 1) != holder) {
+                    out.write(indent + "}\n" +
+                            "\n"
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Assignment of statements to methods and of methods to classes. Statements are taken in order, and each of them
+     * goes to the current method unless it makes the method too large, and to the current class unless it makes the
+     * constant pool of the class too large.
+     */
+    private static final class Layout {
+        // Index of the first statement of each method
+        private final List<Integer> methodStarts = new ArrayList<>();
+        // Class of each method: 0 for the class itself, holder number otherwise
+        private final List<Integer> methodHolders = new ArrayList<>();
+
+        Layout(@NotNull Statements statements, int reservedConstantCount) throws IOException {
+            if (reservedConstantCount > MAX_RESERVED_CONSTANT_COUNT) {
+                throw new IllegalStateException("Generated class needs " + reservedConstantCount + " constants besides its tables, at most " + MAX_RESERVED_CONSTANT_COUNT + " are supported");
+            }
+            Code code = new Code(null, "");
+            Set<Object> pool = new HashSet<>();
+            int holder = 0;
+            int constantCount = reservedConstantCount + MAX_HOLDER_COUNT * HOLDER_CONSTANT_COUNT;
+            int methodStatementCount = 0;
+            int methodSize = 0;
+            for (int index = 0; index < statements.size(); ++index) {
+                code.reset();
+                statements.write(code, index);
+                boolean newMethod = methodStarts.isEmpty() || methodStatementCount == MAX_METHOD_STATEMENT_COUNT || methodSize + code.getSize() > MAX_METHOD_CODE_SIZE;
+                int newConstantCount = code.getNewConstantCount(pool) + (newMethod ? METHOD_CONSTANT_COUNT : 0);
+                if ((holder == 0 || methodStatementCount > 0) && constantCount + newConstantCount > MAX_CONSTANT_COUNT) {
+                    ++holder;
+                    pool.clear();
+                    constantCount = 0;
+                    newMethod = true;
+                    newConstantCount = code.getNewConstantCount(pool) + METHOD_CONSTANT_COUNT;
+                    if (holder > MAX_HOLDER_COUNT) {
+                        throw new IllegalStateException("Generated class needs more than " + MAX_HOLDER_COUNT + " holder classes for its tables");
+                    }
+                }
+                if (newMethod) {
+                    methodStarts.add(index);
+                    methodHolders.add(holder);
+                    methodStatementCount = 0;
+                    methodSize = 0;
+                }
+                pool.addAll(code.constants);
+                constantCount += newConstantCount;
+                methodSize += code.getSize();
+                ++methodStatementCount;
+            }
+        }
+    }
+}
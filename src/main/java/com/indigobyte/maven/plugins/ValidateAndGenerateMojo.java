@@ -0,0 +1,191 @@
+package com.indigobyte.maven.plugins;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+
+/**
+ * Validates {@code .po} file against {@code .pot} one and, if validation succeeds, generates Java code from the same
+ * {@code .po} file. Each file is parsed only once.
+ */
+@Mojo(name = "validate-and-generate", threadSafe = true)
+public class ValidateAndGenerateMojo extends AbstractMojo {
+
+    @Parameter(property = "potFileName", required = true)
+    private String potFileName;
+
+    @Parameter(property = "poFileName", required = true)
+    private String poFileName;
+
+    @Parameter(property = "exactMatch", required = true)
+    private boolean exactMatch;
+
+    @Parameter(property = "allowEmptyTranslations", required = true)
+    private boolean allowEmptyTranslations;
+
+    @Parameter(property = "allowFuzzy", required = true)
+    private boolean allowFuzzy;
+
+    @Parameter(property = "outputDir", required = true)
+    private String outputDir;
+
+    @Parameter(property = "resourceName", required = true)
+    private String resourceName;
+
+    @Parameter(property = "language", required = true)
+    private String language;
+
+    @Parameter(property = "omitVersion", required = false, defaultValue = "false")
+    private boolean omitVersion;
+
+    @Parameter(property = "storage", required = false, defaultValue = "HASH_MAP")
+    private BundleStorage storage;
+
+    @Parameter(property = "resourceOutputDir", required = false, defaultValue = "${project.build.outputDirectory}")
+    private String resourceOutputDir;
+
+    @Parameter(property = "accessorClass", required = false)
+    private String accessorClass;
+
+    /**
+     * Not supported, since each execution generates a single language, and the factory class would know only the
+     * language of the last one. Generate it with {@code generate-java} or {@code generate-java-multi-locale}.
+     */
+    @Parameter(property = "factoryClass", required = false)
+    private String factoryClass;
+
+    @Parameter(property = "formatterClass", required = false)
+    private String formatterClass;
+
+    @Parameter(property = "readerClass", required = false)
+    private String readerClass;
+
+    @Parameter(property = "mappedCacheSize", required = false, defaultValue = "0")
+    private int mappedCacheSize;
+
+    @Parameter(property = "skip", required = false, defaultValue = "false")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    public static void main(String[] args) throws MojoExecutionException {
+        GeneratorOptions options = args.length >= 8 ? JavaGeneratorMojo.parseOptions(args, 8) : null;
+        if (options != null) {
+            validateAndGenerate(
+                    new CatalogCache(),
+                    args[0],
+                    args[1],
+                    Boolean.parseBoolean(args[2]),
+                    Boolean.parseBoolean(args[3]),
+                    Boolean.parseBoolean(args[4]),
+                    args[5],
+                    args[6],
+                    args[7],
+                    options,
+                    args[5]
+            );
+        } else {
+            System.out.println("Usage: java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.ValidateAndGenerateMojo <translations.pot> <translations_en.po> <exact match> <allow empty translations> <allow fuzzy> <folder for generated Java files> <resource name> <language> [<option>=<value> ...]\n" +
+                    "See com.indigobyte.maven.plugins.PoValidatorMojo and com.indigobyte.maven.plugins.JavaGeneratorMojo for the description of arguments.\n" +
+                    JavaGeneratorMojo.OPTIONS_USAGE +
+                    "    factoryClass is not supported, since a single language is generated.\n" +
+                    "example:\n" +
+                    "java -cp cc-validate-po-maven-plugin.jar com.indigobyte.maven.plugins.ValidateAndGenerateMojo messages.pot messages_en.po true false false ./i18n/generated com.indigobyte.i18n.messages en"
+            );
+
+            System.exit(1);
+        }
+    }
+
+    @NotNull
+    private static JavaGeneratorMojo.GenerationResult validateAndGenerate(
+            @NotNull CatalogCache catalogCache,
+            @NotNull String potFileName,
+            @NotNull String poFileName,
+            boolean exactMatch,
+            boolean allowEmptyTranslations,
+            boolean allowFuzzy,
+            @NotNull String outputDir,
+            @NotNull String resourceName,
+            @NotNull String language,
+            @NotNull GeneratorOptions options,
+            @NotNull String resourceOutputDir
+    ) throws MojoExecutionException {
+        if (options.getFactoryClass() != null) {
+            throw new MojoExecutionException("\"factoryClass\" is not supported by validate-and-generate, which generates a single language per execution. " +
+                    "Generate the factory class with generate-java or generate-java-multi-locale, which generate all languages in one execution"
+            );
+        }
+        // Both steps get their catalogs from the same cache, so the .po file parsed during validation is reused
+        // for generation. Generation is not performed if validation fails.
+        PoValidatorMojo.validateFiles(catalogCache, potFileName, poFileName, exactMatch, allowEmptyTranslations, allowFuzzy);
+        JavaGeneratorMojo.GenerationResult result = JavaGeneratorMojo.generateJavaFile(catalogCache, outputDir, resourceName, language, poFileName, options, resourceOutputDir);
+        // Every execution writes the same accessor class, since validation ensures that its catalog has the same
+        // messages as the .pot file
+        if (options.getAccessorClass() != null
+                && JavaGeneratorMojo.generateAccessorClass(catalogCache, outputDir, Collections.singletonMap(language, poFileName), options, result == JavaGeneratorMojo.GenerationResult.UP_TO_DATE) == JavaGeneratorMojo.GenerationResult.WRITTEN) {
+            result = JavaGeneratorMojo.GenerationResult.WRITTEN;
+        }
+        if (options.getFormatterClass() != null
+                && JavaGeneratorMojo.generateFormatterClass(outputDir, options) == JavaGeneratorMojo.GenerationResult.WRITTEN) {
+            result = JavaGeneratorMojo.GenerationResult.WRITTEN;
+        }
+        if (options.getReaderClass() != null
+                && JavaGeneratorMojo.generateReaderClass(outputDir, options) == JavaGeneratorMojo.GenerationResult.WRITTEN) {
+            result = JavaGeneratorMojo.GenerationResult.WRITTEN;
+        }
+        return result;
+    }
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("ValidateAndGenerateMojo has started");
+        if (!skip) {
+            JavaGeneratorMojo.GenerationResult result = validateAndGenerate(
+                    CatalogCache.forSession(session),
+                    potFileName,
+                    poFileName,
+                    exactMatch,
+                    allowEmptyTranslations,
+                    allowFuzzy,
+                    outputDir,
+                    resourceName,
+                    language,
+                    new GeneratorOptions()
+                            .setOmitVersion(omitVersion)
+                            .setStorage(storage)
+                            .setAccessorClass(accessorClass)
+                            .setFactoryClass(factoryClass)
+                            .setFormatterClass(formatterClass)
+                            .setReaderClass(readerClass)
+                            .setMappedCacheSize(mappedCacheSize),
+                    resourceOutputDir
+            );
+            getLog().info(result.getDescription());
+        } else {
+            getLog().info("\"skip\" is set to \"true\", PO validation and Java code generation were skipped");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.indigobyte.javautil;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link FormatSpecifierParser} accepts and rejects the same format strings as {@link Formatter#parse(String)},
+ * and splits accepted ones into the same segments with the same argument indexes.
+ */
+public class FormatSpecifierParserTest {
+    private static final String[] CORPUS = {
+            "",
+            "plain text",
+            "%",
+            "%%",
+            "100%",
+            "%n",
+            "%s",
+            "%S",
+            "%d",
+            "%5d",
+            "%-5d",
+            "%05d",
+            "%,d",
+            "%+d",
+            "% d",
+            "%(d",
+            "%#x",
+            "%#o",
+            "%08X",
+            "%.2f",
+            "%10.4e",
+            "%,.2f",
+            "%a",
+            "%A",
+            "%g",
+            "%G",
+            "%b",
+            "%B",
+            "%h",
+            "%H",
+            "%c",
+            "%C",
+            "%tY",
+            "%TB",
+            "%1$tm %1$te,%1$tY",
+            "%<s",
+            "%s %<s",
+            "%1$s %2$s %1$s",
+            "%2$s %s %<s",
+            "%0$s",
+            "%99999999999$s",
+            "%1$",
+            "%$s",
+            "%-s",
+            "%-d",
+            "%05s",
+            "%#s",
+            "%#d",
+            "%+s",
+            "%,x",
+            "%(x",
+            "% x",
+            "%.2d",
+            "%.2s",
+            "%.2c",
+            "%--5d",
+            "%-05d",
+            "%+ d",
+            "%5n",
+            "%-n",
+            "%.2n",
+            "%5%",
+            "%-5%",
+            "%.2%",
+            "%q",
+            "%tq",
+            "%t",
+            "%.f",
+            "%5.",
+            "%1$<s",
+            "%<1$s",
+            "Hello %s, you have %d new messages%n",
+            "%2$s of %1$s: %3$.1f%% done",
+            "%s%%%s",
+            "%%%",
+            "%é",
+            "text %",
+    };
+    private static final String FUZZ_ALPHABET = "%%%%$<-#+ 0,(.1259tTsSdxXfenbhcogaAB";
+    private static final int FUZZ_COUNT = 20_000;
+
+    static {
+        // Formatter asserts that an argument index fits into int, compare with its behavior in production instead
+        FormatSpecifierParserTest.class.getClassLoader().setClassAssertionStatus(Formatter.class.getName(), false);
+    }
+
+    @Test
+    public void testCorpus() {
+        for (String format : CORPUS) {
+            assertSameParse(format);
+        }
+    }
+
+    @Test
+    public void testRandomSpecifiers() {
+        Random random = new Random(27);
+        for (int i = 0; i < FUZZ_COUNT; ++i) {
+            StringBuilder format = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; ++j) {
+                format.append(FUZZ_ALPHABET.charAt(random.nextInt(FUZZ_ALPHABET.length())));
+            }
+            assertSameParse(format.toString());
+        }
+    }
+
+    private static void assertSameParse(@NotNull String format) {
+        assertEquals("Format string \"" + format + "\"", parseWithFormatter(format), parseWithParser(format));
+    }
+
+    /**
+     * @return description of segments, or of the exception thrown for an invalid format string
+     */
+    @NotNull
+    private static List<String> parseWithFormatter(@NotNull String format) {
+        List<String> result = new ArrayList<>();
+        try {
+            for (Formatter.FormatString segment : new Formatter().parse(format)) {
+                result.add(describe(segment instanceof Formatter.FixedString, segment.index(), segment.toString()));
+            }
+        } catch (RuntimeException e) {
+            result.add(describe(e));
+        }
+        return result;
+    }
+
+    @NotNull
+    private static List<String> parseWithParser(@NotNull String format) {
+        List<String> result = new ArrayList<>();
+        try {
+            for (FormatSpecifierParser.Segment segment : FormatSpecifierParser.parse(format)) {
+                result.add(describe(segment instanceof FormatSpecifierParser.FixedText, segment.index(), segment.toString()));
+            }
+        } catch (RuntimeException e) {
+            result.add(describe(e));
+        }
+        return result;
+    }
+
+    @NotNull
+    private static String describe(boolean fixedText, int index, @NotNull String text) {
+        return (fixedText ? "text " : "specifier ") + index + " " + text;
+    }
+
+    @NotNull
+    private static String describe(@NotNull RuntimeException e) {
+        return e.getClass().getName() + ": " + e.getMessage();
+    }
+}
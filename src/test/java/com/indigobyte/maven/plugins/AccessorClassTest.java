@@ -0,0 +1,181 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks slot constants of the accessor class written by {@link JavaGenerator#writeAccessorClass}, and that bundles of
+ * all storages resolve their slots on first access, taking messages missing in the bundle from its parent.
+ */
+public class AccessorClassTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final String ACCESSOR_CLASS = "Messages";
+    private static final String READER_CLASS = "MoReader";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSlotConstants() throws Exception {
+        GeneratorOptions options = new GeneratorOptions().setOmitVersion(true).setAccessorClass(PACKAGE_NAME + "." + ACCESSOR_CLASS);
+        Map<String, String> expectedKeys = new HashMap<>();
+        expectedKeys.put("MENU__FILE", "menu\u0004File");
+        expectedKeys.put("MENU__D_FILE", "menu\u0004%d file");
+        expectedKeys.put("MENU__GERMAN", "menu\u0004German");
+        expectedKeys.put("MENU__MISSING", "menu\u0004Missing");
+        expectedKeys.put("TOOLBAR__FILE", "toolbar\u0004File!");
+        // Same name as the previous key in sort order, made unique
+        expectedKeys.put("TOOLBAR__FILE_2", "toolbar\u0004File...");
+        expectedKeys.put("MESSAGE_1_FILE", "1 file");
+        JavaGenerator accessorGenerator = new JavaGenerator(options);
+        for (String key : expectedKeys.values()) {
+            int separatorPos = key.indexOf('\u0004');
+            accessorGenerator.addInitLine(separatorPos >= 0
+                    ? JavaGeneratorTest.createMessage(key.substring(0, separatorPos), key.substring(separatorPos + 1), "Translation")
+                    : JavaGeneratorTest.createMessage(null, key, "Translation"));
+        }
+        try (URLClassLoader classLoader = compile(options, accessorGenerator)) {
+            Class<?> accessorClass = Class.forName(PACKAGE_NAME + "." + ACCESSOR_CLASS, true, classLoader);
+            Method getKey = accessorClass.getMethod("getKey", int.class);
+            Map<String, String> keys = new HashMap<>();
+            boolean[] usedSlots = new boolean[expectedKeys.size()];
+            for (Field field : accessorClass.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == int.class && !field.getName().equals("SLOT_COUNT")) {
+                    int slot = field.getInt(null);
+                    assertTrue("Slot " + slot + " is used twice", !usedSlots[slot]);
+                    usedSlots[slot] = true;
+                    keys.put(field.getName(), (String) getKey.invoke(null, slot));
+                }
+            }
+            assertEquals(expectedKeys.size(), accessorClass.getField("SLOT_COUNT").getInt(null));
+            assertEquals(expectedKeys, keys);
+        }
+    }
+
+    @Test
+    public void testSlotResolution() throws Exception {
+        for (BundleStorage storage : BundleStorage.values()) {
+            GeneratorOptions options = new GeneratorOptions()
+                    .setOmitVersion(true)
+                    .setStorage(storage)
+                    .setAccessorClass(PACKAGE_NAME + "." + ACCESSOR_CLASS)
+                    .setReaderClass(PACKAGE_NAME + "." + READER_CLASS);
+            JavaGenerator accessorGenerator = new JavaGenerator(options);
+            getGermanMessages().forEach(accessorGenerator::addInitLine);
+            // Message which none of the bundles has
+            accessorGenerator.addInitLine(JavaGeneratorTest.createMessage("menu", "Missing", "Missing"));
+            try (URLClassLoader classLoader = compile(options, accessorGenerator)) {
+                Class<?> accessorClass = Class.forName(PACKAGE_NAME + "." + ACCESSOR_CLASS, true, classLoader);
+                Method getString = accessorClass.getMethod("getString", ResourceBundle.class, int.class);
+                Method getPluralForms = accessorClass.getMethod("getPluralForms", ResourceBundle.class, int.class);
+                int file = accessorClass.getField("MENU__FILE").getInt(null);
+                int german = accessorClass.getField("MENU__GERMAN").getInt(null);
+                int files = accessorClass.getField("MENU__D_FILE").getInt(null);
+                int missing = accessorClass.getField("MENU__MISSING").getInt(null);
+
+                // The parent is set by ResourceBundle.getBundle()
+                ResourceBundle deAt = ResourceBundle.getBundle(PACKAGE_NAME + ".messages", new Locale("de", "AT"), classLoader);
+                assertEquals(storage.name(), PACKAGE_NAME + ".messages_de_AT", deAt.getClass().getName());
+                Field slots = deAt.getClass().getDeclaredField("slots");
+                slots.setAccessible(true);
+                assertNull(storage.name(), slots.get(deAt));
+                assertEquals(storage.name(), "Datei (AT)", getString.invoke(null, deAt, file));
+                Object resolvedSlots = slots.get(deAt);
+                assertNotNull(storage.name(), resolvedSlots);
+                assertEquals(storage.name(), "Nur deutsch", getString.invoke(null, deAt, german));
+                assertEquals(storage.name(), "%d Datei", getString.invoke(null, deAt, files));
+                assertArrayEquals(storage.name(), new String[]{"%d Datei", "%d Dateien"}, (String[]) getPluralForms.invoke(null, deAt, files));
+                assertArrayEquals(storage.name(), new String[]{"Datei (AT)"}, (String[]) getPluralForms.invoke(null, deAt, file));
+                // Slots are resolved once
+                assertSame(storage.name(), resolvedSlots, slots.get(deAt));
+                assertSame(storage.name(), getPluralForms.invoke(null, deAt, files), getPluralForms.invoke(null, deAt, files));
+
+                ResourceBundle de = ResourceBundle.getBundle(PACKAGE_NAME + ".messages", Locale.GERMAN, classLoader);
+                assertEquals(storage.name(), "Datei", getString.invoke(null, de, file));
+                for (ResourceBundle bundle : new ResourceBundle[]{deAt, de}) {
+                    try {
+                        getString.invoke(null, bundle, missing);
+                        fail(storage.name() + ": missing message was found in " + bundle.getClass().getName());
+                    } catch (InvocationTargetException e) {
+                        assertTrue("Unexpected exception: " + e.getCause(), e.getCause() instanceof MissingResourceException);
+                        assertEquals(storage.name(), "menu\u0004Missing", ((MissingResourceException) e.getCause()).getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static List<Message> getGermanMessages() {
+        return Arrays.asList(
+                JavaGeneratorTest.createMessage("menu", "File", "Datei"),
+                JavaGeneratorTest.createMessage("menu", "German", "Nur deutsch"),
+                JavaGeneratorTest.createPluralMessage("menu", "%d file", "%d Datei", "%d Dateien")
+        );
+    }
+
+    /**
+     * Compiles the accessor class and the reader class, if it is set, with bundles of {@code de}, which has all messages of {@link #getGermanMessages()},
+     * and {@code de_AT}, which has only one of them, and writes their binary resources next to their classes.
+     */
+    @NotNull
+    private URLClassLoader compile(@NotNull GeneratorOptions options, @NotNull JavaGenerator accessorGenerator) throws Exception {
+        JavaGenerator de = new JavaGenerator(options);
+        getGermanMessages().forEach(de::addInitLine);
+        JavaGenerator deAt = new JavaGenerator(options);
+        deAt.addInitLine(JavaGeneratorTest.createMessage("menu", "File", "Datei (AT)"));
+        List<String> sources = new ArrayList<>();
+        sources.add(de.getText(PACKAGE_NAME, "messages_de", PluralFormula.DEFAULT, "test"));
+        sources.add(deAt.getText(PACKAGE_NAME, "messages_de_AT", PluralFormula.DEFAULT, "test"));
+        StringWriter accessor = new StringWriter();
+        accessorGenerator.writeAccessorClass(accessor, PACKAGE_NAME, ACCESSOR_CLASS);
+        sources.add(accessor.toString());
+        if (options.getReaderClass() != null) {
+            StringWriter reader = new StringWriter();
+            JavaGenerator.writeMoReaderClass(reader, options, PACKAGE_NAME, READER_CLASS);
+            sources.add(reader.toString());
+        }
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), sources.toArray(new String[0]));
+        assertNotNull("Generated code can't be compiled", classesDir);
+        if (options.getStorage() == BundleStorage.RESOURCE || options.getStorage() == BundleStorage.MAPPED) {
+            Path packageDir = classesDir.resolve(PACKAGE_NAME.replace('.', '/'));
+            try (OutputStream out = Files.newOutputStream(packageDir.resolve(JavaGenerator.getResourceFileName("messages_de", options.getStorage())))) {
+                de.writeResource(out);
+            }
+            try (OutputStream out = Files.newOutputStream(packageDir.resolve(JavaGenerator.getResourceFileName("messages_de_AT", options.getStorage())))) {
+                deAt.writeResource(out);
+            }
+        }
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, AccessorClassTest.class.getClassLoader());
+    }
+}
@@ -0,0 +1,67 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Measures class initialization time of generated bundles: each bundle is generated, compiled with the system Java
+ * compiler and then initialized repeatedly in fresh class loaders.
+ * <p>
+ * Bundles are generated as is and with the table declared with default capacity, to show the effect of pre-sizing.
+ * <p>
+ * Requires a JDK. Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.indigobyte.maven.plugins.BundleClassInitBenchmark}
+ */
+public class BundleClassInitBenchmark {
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 100_000};
+    private static final int ITERATIONS = 15;
+    private static final String PACKAGE_NAME = "com.example.i18n";
+
+    public static void main(String[] args) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run the benchmark with a JDK");
+        }
+        Path workDir = Files.createTempDirectory("bundle-benchmark");
+        System.out.printf("%10s %20s %20s%n", "entries", "default table, ms", "pre-sized table, ms");
+        for (int size : CATALOG_SIZES) {
+            JavaGenerator javaGenerator = JavaGeneratorBenchmark.createGenerator(size);
+            String code = javaGenerator.getText(PACKAGE_NAME, "messages_presized", PluralFormula.DEFAULT, "benchmark");
+            String defaultCode = code
+                    .replace("messages_presized", "messages_default")
+                    .replaceFirst("new java\\.util\\.HashMap<>\\(\\d+\\)", "new java.util.HashMap<>()");
+            Path classesDir = SourceCompiler.compile(compiler, workDir.resolve(Integer.toString(size)), code, defaultCode);
+            if (classesDir == null) {
+                System.out.printf("%10d %41s%n", size, "generated code can't be compiled");
+                continue;
+            }
+            double defaultMillis = measure(classesDir, "messages_default");
+            double presizedMillis = measure(classesDir, "messages_presized");
+            System.out.printf("%10d %20.2f %20.2f%n", size, defaultMillis, presizedMillis);
+        }
+    }
+
+    /**
+     * @return median time of class initialization in milliseconds
+     */
+    private static double measure(@NotNull Path classesDir, @NotNull String className) throws Exception {
+        URL[] urls = {classesDir.toUri().toURL()};
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; ++i) {
+            try (URLClassLoader classLoader = new URLClassLoader(urls, BundleClassInitBenchmark.class.getClassLoader())) {
+                Class<?> bundleClass = Class.forName(PACKAGE_NAME + "." + className, false, classLoader);
+                long start = System.nanoTime();
+                Class.forName(bundleClass.getName(), true, classLoader);
+                times[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(times);
+        return times[ITERATIONS / 2] / 1e6;
+    }
+}
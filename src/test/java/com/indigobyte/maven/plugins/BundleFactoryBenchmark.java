@@ -0,0 +1,118 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Measures resolution of generated bundles by locale with {@link ResourceBundle#getBundle(String, Locale)} and with the
+ * generated factory class, from several threads at once. Each resolution is followed by a lookup, so that it can't be
+ * optimized away.
+ * <p>
+ * Requires a JDK. Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.indigobyte.maven.plugins.BundleFactoryBenchmark}
+ */
+public class BundleFactoryBenchmark {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final List<String> LANGUAGES = Arrays.asList("de", "de_AT", "fr", "pl");
+    private static final Locale[] LOCALES = {new Locale("de", "AT"), Locale.GERMANY, Locale.FRANCE, new Locale("pl", "PL")};
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+    private static final int RESOLUTIONS = 2_000_000;
+    private static final String KEY = "context.1\u0004Message number 1 with %s argument";
+
+    public static void main(String[] args) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run the benchmark with a JDK");
+        }
+        GeneratorOptions options = new GeneratorOptions().setOmitVersion(true).setFactoryClass(PACKAGE_NAME + ".Bundles");
+        List<String> sources = new ArrayList<>();
+        for (String language : LANGUAGES) {
+            JavaGenerator javaGenerator = new JavaGenerator(options);
+            for (int i = 0; i < 1_000; ++i) {
+                javaGenerator.addInitLine(JavaGeneratorBenchmark.createMessage(i));
+            }
+            sources.add(javaGenerator.getText(PACKAGE_NAME, "messages_" + language, PluralFormula.DEFAULT, "benchmark"));
+        }
+        StringWriter factory = new StringWriter();
+        JavaGenerator.writeFactoryClass(factory, options, PACKAGE_NAME, "Bundles", PACKAGE_NAME + ".messages", LANGUAGES);
+        sources.add(factory.toString());
+        sources.add(getResolverSource("JdkResolver", "java.util.ResourceBundle.getBundle(\"" + PACKAGE_NAME + ".messages\", locale)"));
+        sources.add(getResolverSource("FactoryResolver", "Bundles.getBundle(locale)"));
+        Path classesDir = SourceCompiler.compile(compiler, Files.createTempDirectory("factory-benchmark"), sources.toArray(new String[0]));
+        if (classesDir == null) {
+            throw new IllegalStateException("Generated code can't be compiled");
+        }
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, BundleFactoryBenchmark.class.getClassLoader())) {
+            Function<Locale, ResourceBundle> jdkResolver = newResolver(classLoader, "JdkResolver");
+            Function<Locale, ResourceBundle> factoryResolver = newResolver(classLoader, "FactoryResolver");
+            System.out.printf("%10s %20s %20s%n", "threads", "getBundle(), ns", "factory, ns");
+            for (int threadCount : THREAD_COUNTS) {
+                // Warm-up
+                measure(jdkResolver, threadCount);
+                measure(factoryResolver, threadCount);
+                System.out.printf("%10d %20.1f %20.1f%n", threadCount, measure(jdkResolver, threadCount), measure(factoryResolver, threadCount));
+            }
+        }
+    }
+
+    @NotNull
+    private static String getResolverSource(@NotNull String className, @NotNull String resolution) {
+        return "package " + PACKAGE_NAME + ";\n" +
+                "\n" +
+                "public class " + className + " implements java.util.function.Function<java.util.Locale, java.util.ResourceBundle> {\n" +
+                "    public java.util.ResourceBundle apply(java.util.Locale locale) {\n" +
+                "        return " + resolution + ";\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    private static Function<Locale, ResourceBundle> newResolver(@NotNull ClassLoader classLoader, @NotNull String className) throws Exception {
+        return (Function<Locale, ResourceBundle>) Class.forName(PACKAGE_NAME + "." + className, true, classLoader).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * @return wall-clock time per resolution in nanoseconds, with resolutions evenly split between threads
+     */
+    private static double measure(@NotNull Function<Locale, ResourceBundle> resolver, int threadCount) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            int resolutionsPerThread = RESOLUTIONS / threadCount;
+            List<Future<Integer>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int thread = 0; thread < threadCount; ++thread) {
+                futures.add(executor.submit(() -> {
+                    int found = 0;
+                    for (int i = 0; i < resolutionsPerThread; ++i) {
+                        if (resolver.apply(LOCALES[i % LOCALES.length]).getString(KEY) != null) {
+                            ++found;
+                        }
+                    }
+                    return found;
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                future.get();
+            }
+            return (double) (System.nanoTime() - start) / (resolutionsPerThread * threadCount);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
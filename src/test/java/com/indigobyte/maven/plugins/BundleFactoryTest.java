@@ -0,0 +1,153 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the factory class written by {@link JavaGenerator#writeFactoryClass} finds bundles for locales as
+ * {@link ResourceBundle#getBundle(String, Locale)} does, and creates them with their parents.
+ */
+public class BundleFactoryTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final List<String> LANGUAGES = Arrays.asList("de", "de_AT", "de_CH_1901", "fr");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testGetParentLanguage() {
+        assertEquals("de", JavaGenerator.getParentLanguage("de_AT", new HashSet<>(LANGUAGES)));
+        // Missing languages between are skipped
+        assertEquals("de", JavaGenerator.getParentLanguage("de_CH_1901", new HashSet<>(LANGUAGES)));
+        assertEquals("de_AT", JavaGenerator.getParentLanguage("de_AT_1901", new HashSet<>(LANGUAGES)));
+        assertNull(JavaGenerator.getParentLanguage("de", new HashSet<>(LANGUAGES)));
+        assertNull(JavaGenerator.getParentLanguage("pl_PL", new HashSet<>(LANGUAGES)));
+    }
+
+    @Test
+    public void testFactory() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        try (URLClassLoader classLoader = compileBundles()) {
+            Class<?> factoryClass = Class.forName(PACKAGE_NAME + ".Bundles", true, classLoader);
+            Method getBundle = factoryClass.getMethod("getBundle", Locale.class);
+            Method forLanguage = factoryClass.getMethod("forLanguage", String.class);
+            Locale.setDefault(Locale.FRANCE);
+
+            // Exact match, the same instance every time
+            ResourceBundle de = (ResourceBundle) getBundle.invoke(null, Locale.GERMAN);
+            assertEquals(PACKAGE_NAME + ".messages_de", de.getClass().getName());
+            assertSame(de, getBundle.invoke(null, Locale.GERMAN));
+            assertSame(de, forLanguage.invoke(null, "de"));
+            ResourceBundle deAt = (ResourceBundle) getBundle.invoke(null, new Locale("de", "AT"));
+            assertEquals(PACKAGE_NAME + ".messages_de_AT", deAt.getClass().getName());
+            assertSame(deAt, forLanguage.invoke(null, "de_AT"));
+            assertSame(forLanguage.invoke(null, "de_CH_1901"), getBundle.invoke(null, new Locale("de", "CH", "1901")));
+
+            // Fallback to more general languages of the locale
+            assertSame(de, getBundle.invoke(null, Locale.GERMANY));
+            assertSame(de, getBundle.invoke(null, new Locale("de", "CH")));
+            assertSame(deAt, getBundle.invoke(null, new Locale("de", "AT", "1901")));
+
+            // Parents are chosen at generation, skipping missing languages
+            assertEquals("Datei (AT)", deAt.getString("menu\u0004File"));
+            assertEquals("Nur deutsch", deAt.getString("menu\u0004German"));
+            ResourceBundle deCh1901 = (ResourceBundle) forLanguage.invoke(null, "de_CH_1901");
+            assertEquals("Datei (CH)", deCh1901.getString("menu\u0004File"));
+            assertEquals("Nur deutsch", deCh1901.getString("menu\u0004German"));
+            assertEquals("Datei", de.getString("menu\u0004File"));
+            assertEquals(Collections.emptyList(), getMissingKeys(de, "menu\u0004File", "menu\u0004German"));
+            assertEquals(Collections.singletonList("menu\u0004German"), getMissingKeys((ResourceBundle) forLanguage.invoke(null, "fr"), "menu\u0004File", "menu\u0004German"));
+
+            // Unknown locales fall back to the default locale
+            assertSame(forLanguage.invoke(null, "fr"), getBundle.invoke(null, Locale.JAPAN));
+            assertNull(forLanguage.invoke(null, "ja"));
+            assertNull(forLanguage.invoke(null, "DE"));
+            assertNull(forLanguage.invoke(null, (Object) null));
+            Locale.setDefault(Locale.CHINA);
+            assertSame(de, getBundle.invoke(null, Locale.GERMAN));
+            try {
+                getBundle.invoke(null, Locale.JAPAN);
+                fail("Bundle was found for " + Locale.JAPAN + " with default locale " + Locale.CHINA);
+            } catch (InvocationTargetException e) {
+                assertTrue("Unexpected exception: " + e.getCause(), e.getCause() instanceof MissingResourceException);
+                assertEquals(PACKAGE_NAME + ".messages_ja_JP", ((MissingResourceException) e.getCause()).getClassName());
+            }
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @NotNull
+    private static List<String> getMissingKeys(@NotNull ResourceBundle bundle, @NotNull String... keys) {
+        List<String> missingKeys = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                bundle.getString(key);
+            } catch (MissingResourceException e) {
+                missingKeys.add(key);
+            }
+        }
+        return missingKeys;
+    }
+
+    @NotNull
+    private URLClassLoader compileBundles() throws Exception {
+        GeneratorOptions options = new GeneratorOptions().setOmitVersion(true).setFactoryClass(PACKAGE_NAME + ".Bundles");
+        List<String> sources = new ArrayList<>();
+        for (String language : LANGUAGES) {
+            JavaGenerator javaGenerator = new JavaGenerator(options);
+            for (Message message : getMessages(language)) {
+                javaGenerator.addInitLine(message);
+            }
+            sources.add(javaGenerator.getText(PACKAGE_NAME, "messages_" + language, PluralFormula.DEFAULT, "test"));
+        }
+        StringWriter factory = new StringWriter();
+        JavaGenerator.writeFactoryClass(factory, options, PACKAGE_NAME, "Bundles", PACKAGE_NAME + ".messages", LANGUAGES);
+        sources.add(factory.toString());
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), sources.toArray(new String[0]));
+        assertNotNull("Generated code can't be compiled", classesDir);
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, BundleFactoryTest.class.getClassLoader());
+    }
+
+    @NotNull
+    private static List<Message> getMessages(@NotNull String language) {
+        switch (language) {
+            case "de":
+                return Arrays.asList(
+                        JavaGeneratorTest.createMessage("menu", "File", "Datei"),
+                        JavaGeneratorTest.createMessage("menu", "German", "Nur deutsch")
+                );
+            case "de_AT":
+                return Collections.singletonList(JavaGeneratorTest.createMessage("menu", "File", "Datei (AT)"));
+            case "de_CH_1901":
+                return Collections.singletonList(JavaGeneratorTest.createMessage("menu", "File", "Datei (CH)"));
+            default:
+                return Collections.singletonList(JavaGeneratorTest.createMessage("menu", "File", "Fichier"));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.indigobyte.maven.plugins;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.fedorahosted.tennera.jgettext.Catalog;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that {@link CatalogCache} parses every file once, re-parses it when it changes, and is shared by all
+ * executions within a build session.
+ */
+public class CatalogCacheTest {
+    private static final String PO_FILE = "msgid \"\"\n" +
+            "msgstr \"Content-Type: text/plain; charset=UTF-8\\n\"\n" +
+            "\n" +
+            "msgctxt \"menu\"\n" +
+            "msgid \"File\"\n" +
+            "msgstr \"Datei\"\n";
+    private static final String ADDED_MESSAGE = "\n" +
+            "msgctxt \"menu\"\n" +
+            "msgid \"Edit\"\n" +
+            "msgstr \"Bearbeiten\"\n";
+    private static final int THREAD_COUNT = 8;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCacheHit() throws Exception {
+        Path poFile = writePoFile(PO_FILE);
+        CatalogCache catalogCache = new CatalogCache();
+        Catalog catalog = catalogCache.getCatalog(poFile.toString());
+        assertEquals(2, catalog.size());
+        assertSame(catalog, catalogCache.getCatalog(poFile.toString()));
+        // Entries are keyed by the real path of the file
+        assertSame(catalog, catalogCache.getCatalog(poFile.getParent().resolve("../" + poFile.getParent().getFileName() + "/" + poFile.getFileName()).toString()));
+        assertNotSame(catalog, new CatalogCache().getCatalog(poFile.toString()));
+    }
+
+    @Test
+    public void testModifiedFile() throws Exception {
+        Path poFile = writePoFile(PO_FILE);
+        CatalogCache catalogCache = new CatalogCache();
+        Catalog catalog = catalogCache.getCatalog(poFile.toString());
+
+        FileTime lastModified = Files.getLastModifiedTime(poFile);
+        Files.setLastModifiedTime(poFile, FileTime.fromMillis(lastModified.toMillis() - 10_000));
+        Catalog touched = catalogCache.getCatalog(poFile.toString());
+        assertNotSame(catalog, touched);
+        assertSame(touched, catalogCache.getCatalog(poFile.toString()));
+
+        // The same modification time, but a different size
+        lastModified = Files.getLastModifiedTime(poFile);
+        Files.write(poFile, ADDED_MESSAGE.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(poFile, lastModified);
+        Catalog appended = catalogCache.getCatalog(poFile.toString());
+        assertNotSame(touched, appended);
+        assertEquals(3, appended.size());
+        assertNotNull(appended.locateMessage("menu", "Edit"));
+    }
+
+    @Test
+    public void testParseFailure() throws Exception {
+        CatalogCache catalogCache = new CatalogCache();
+        try {
+            catalogCache.getCatalog(temporaryFolder.getRoot().toPath().resolve("missing.po").toString());
+            fail("Missing file was parsed");
+        } catch (MojoExecutionException e) {
+            // Expected
+        }
+        Path poFile = writePoFile("msgid \"unterminated\n");
+        try {
+            catalogCache.getCatalog(poFile.toString());
+            fail("Invalid file was parsed");
+        } catch (MojoExecutionException e) {
+            // Expected
+        }
+        // Failures are not cached
+        try {
+            catalogCache.getCatalog(poFile.toString());
+            fail("Invalid file was parsed");
+        } catch (MojoExecutionException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        Path poFile = writePoFile(PO_FILE);
+        CatalogCache catalogCache = new CatalogCache();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<Catalog>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; ++i) {
+                futures.add(executor.submit((Callable<Catalog>) () -> {
+                    start.await();
+                    return catalogCache.getCatalog(poFile.toString());
+                }));
+            }
+            start.countDown();
+            Catalog catalog = futures.get(0).get();
+            for (Future<Catalog> future : futures) {
+                assertSame(catalog, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSharedAcrossExecutions() throws Exception {
+        Path poFile = writePoFile(PO_FILE);
+        MavenSession session = createSession();
+        CatalogCache catalogCache = CatalogCache.forSession(session);
+        assertSame(catalogCache, CatalogCache.forSession(session));
+        assertSame(catalogCache.getCatalog(poFile.toString()), CatalogCache.forSession(session).getCatalog(poFile.toString()));
+        assertNotSame(catalogCache, CatalogCache.forSession(createSession()));
+        // Without a session, e.g. from the command line, every caller has a cache of its own
+        assertNotSame(CatalogCache.forSession(null), CatalogCache.forSession(null));
+    }
+
+    @NotNull
+    private Path writePoFile(@NotNull String content) throws Exception {
+        Path poFile = temporaryFolder.newFile().toPath();
+        Files.write(poFile, content.getBytes(StandardCharsets.UTF_8));
+        return poFile;
+    }
+
+    @NotNull
+    private static MavenSession createSession() {
+        return new MavenSession(null, new DefaultRepositorySystemSession(), new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+    }
+}
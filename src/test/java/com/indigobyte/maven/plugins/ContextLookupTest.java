@@ -0,0 +1,149 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that {@code lookup(ctx, id)} of generated bundles finds the same values as {@code lookup(ctx + "\u0004" + id)}
+ * with all storages, including contexts which contain the separator or have a key as their prefix.
+ */
+public class ContextLookupTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    // Enough messages for several chunks of LAZY_CHUNKS
+    private static final int GENERATED_MESSAGE_COUNT = 2_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHashMap() throws Exception {
+        checkContextLookup(BundleStorage.HASH_MAP);
+    }
+
+    @Test
+    public void testSortedArray() throws Exception {
+        checkContextLookup(BundleStorage.SORTED_ARRAY);
+    }
+
+    @Test
+    public void testResource() throws Exception {
+        checkContextLookup(BundleStorage.RESOURCE);
+    }
+
+    @Test
+    public void testLazyChunks() throws Exception {
+        checkContextLookup(BundleStorage.LAZY_CHUNKS);
+    }
+
+    @Test
+    public void testMapped() throws Exception {
+        checkContextLookup(BundleStorage.MAPPED);
+    }
+
+    private void checkContextLookup(@NotNull BundleStorage storage) throws Exception {
+        GeneratorOptions options = new GeneratorOptions()
+                .setOmitVersion(true)
+                .setStorage(storage)
+                .setReaderClass(PACKAGE_NAME + ".MoReader");
+        JavaGenerator javaGenerator = new JavaGenerator(options);
+        List<String[]> messages = new ArrayList<>(Arrays.asList(
+                new String[]{"menu", "File", "Datei"},
+                new String[]{"menu", "Fil", "Dat"},
+                new String[]{"menu.sub", "File", "Unterdatei"},
+                new String[]{"me", "nu", "Nu"},
+                new String[]{"menu", "a\u0004b", "A und B"},
+                new String[]{"menu", "", "Leer"},
+                new String[]{"", "File", "Ohne Kontext"},
+                new String[]{"ünïcödé", "😀", "Émoji"}
+        ));
+        for (int i = 0; i < GENERATED_MESSAGE_COUNT; ++i) {
+            messages.add(new String[]{"context." + (i % 37), "Message " + i, "Nachricht " + i});
+        }
+        for (String[] message : messages) {
+            javaGenerator.addInitLine(createMessage(message[0], message[1], message[2]));
+        }
+        Message plural = createMessage("menu", "%d file", null);
+        plural.setMsgidPlural("%d files");
+        plural.addMsgstrPlural("%d Datei", 0);
+        plural.addMsgstrPlural("%d Dateien", 1);
+        javaGenerator.addInitLine(plural);
+
+        try (URLClassLoader classLoader = compile(javaGenerator, options)) {
+            Object bundle = Class.forName(PACKAGE_NAME + ".messages_de", true, classLoader).getDeclaredConstructor().newInstance();
+            Method lookup = bundle.getClass().getMethod("lookup", String.class);
+            Method contextLookup = bundle.getClass().getMethod("lookup", String.class, String.class);
+            for (String[] message : messages) {
+                assertEquals(message[2], lookup.invoke(bundle, message[0] + "\u0004" + message[1]));
+                assertEquals(message[2], contextLookup.invoke(bundle, message[0], message[1]));
+            }
+            assertArrayEquals(new String[]{"%d Datei", "%d Dateien"}, (String[]) contextLookup.invoke(bundle, "menu", "%d file"));
+
+            // Context with the separator finds the same key as the joined one
+            assertEquals("A und B", contextLookup.invoke(bundle, "menu\u0004a", "b"));
+            // Keys which are strict prefixes of the context
+            assertNull(contextLookup.invoke(bundle, "menu\u0004File", "x"));
+            assertNull(contextLookup.invoke(bundle, "menu\u0004Fil", ""));
+            assertNull(contextLookup.invoke(bundle, "menu\u0004", "File"));
+            // Contexts and ids which are prefixes of existing ones
+            assertNull(contextLookup.invoke(bundle, "men", "File"));
+            assertNull(contextLookup.invoke(bundle, "menu", "Fi"));
+            assertNull(contextLookup.invoke(bundle, "menu", "Files"));
+            assertNull(contextLookup.invoke(bundle, "m", "enu\u0004File"));
+            assertNull(contextLookup.invoke(bundle, "menu", null));
+            assertNull(contextLookup.invoke(bundle, null, "File"));
+        }
+    }
+
+    @NotNull
+    private static Message createMessage(@NotNull String ctx, @NotNull String id, @Nullable String translation) {
+        Message message = new Message();
+        message.setMsgctxt(ctx);
+        message.setMsgid(id);
+        if (translation != null) {
+            message.setMsgstr(translation);
+        }
+        return message;
+    }
+
+    /**
+     * Compiles the bundle and the reader class, and writes the binary resource of the bundle next to its class.
+     */
+    @NotNull
+    private URLClassLoader compile(@NotNull JavaGenerator javaGenerator, @NotNull GeneratorOptions options) throws Exception {
+        StringWriter readerClass = new StringWriter();
+        JavaGenerator.writeMoReaderClass(readerClass, options, PACKAGE_NAME, "MoReader");
+        Path classesDir = SourceCompiler.compile(
+                temporaryFolder.newFolder().toPath(),
+                javaGenerator.getText(PACKAGE_NAME, "messages_de", PluralFormula.DEFAULT, "test"),
+                readerClass.toString()
+        );
+        assertNotNull("Generated code can't be compiled", classesDir);
+        if (options.getStorage() == BundleStorage.RESOURCE || options.getStorage() == BundleStorage.MAPPED) {
+            Path resourcePath = classesDir.resolve(PACKAGE_NAME.replace('.', '/')).resolve(JavaGenerator.getResourceFileName("messages_de", options.getStorage()));
+            try (OutputStream out = Files.newOutputStream(resourcePath)) {
+                javaGenerator.writeResource(out);
+            }
+        }
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, ContextLookupTest.class.getClassLoader());
+    }
+}
@@ -0,0 +1,102 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+/**
+ * Measures formatting of translations with {@link String#format(Locale, String, Object...)} and with precompiled
+ * templates of the generated formatter class.
+ * <p>
+ * Requires a JDK. Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.indigobyte.maven.plugins.FormatTemplateBenchmark}
+ */
+public class FormatTemplateBenchmark {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final String[] TRANSLATIONS = {
+            "Hello %s, you have %d new messages",
+            "File %s was saved by %s%n",
+            "%2$s of %1$s: %3$.1f%% done",
+    };
+    private static final Object[][] ARGUMENTS = {
+            {"Alice", 42},
+            {"report.txt", "Bob"},
+            {"upload", "step 3", 97.5},
+    };
+    private static final Locale LOCALE = Locale.GERMANY;
+    private static final int ITERATIONS = 3_000_000;
+
+    public static void main(String[] args) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run the benchmark with a JDK");
+        }
+        GeneratorOptions options = new GeneratorOptions().setOmitVersion(true).setFormatterClass(PACKAGE_NAME + ".MessageFormatter");
+        JavaGenerator javaGenerator = new JavaGenerator(options);
+        for (int i = 0; i < TRANSLATIONS.length; ++i) {
+            Message message = new Message();
+            message.setMsgctxt("benchmark");
+            message.setMsgid("message " + i);
+            message.setMsgstr(TRANSLATIONS[i]);
+            javaGenerator.addInitLine(message);
+        }
+        String bundle = javaGenerator.getText(PACKAGE_NAME, "messages_de", PluralFormula.DEFAULT, "benchmark");
+        StringWriter formatterClass = new StringWriter();
+        JavaGenerator.writeFormatterClass(formatterClass, options, PACKAGE_NAME, "MessageFormatter");
+        String caller = "package " + PACKAGE_NAME + ";\n" +
+                "\n" +
+                "public class TemplateCaller implements java.util.function.BiFunction<Integer, Object[], String> {\n" +
+                "    private static final messages_de BUNDLE = new messages_de();\n" +
+                "    private static final String[] KEYS = {\"benchmark\\u0004message 0\", \"benchmark\\u0004message 1\", \"benchmark\\u0004message 2\"};\n" +
+                "\n" +
+                "    public String apply(Integer i, Object[] args) {\n" +
+                "        return BUNDLE.format(java.util.Locale.GERMANY, KEYS[i], args);\n" +
+                "    }\n" +
+                "}\n";
+        Path classesDir = SourceCompiler.compile(compiler, Files.createTempDirectory("format-benchmark"), bundle, formatterClass.toString(), caller);
+        if (classesDir == null) {
+            throw new IllegalStateException("Generated code can't be compiled");
+        }
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, FormatTemplateBenchmark.class.getClassLoader())) {
+            @SuppressWarnings("unchecked")
+            BiFunction<Integer, Object[], String> templates = (BiFunction<Integer, Object[], String>) Class.forName(PACKAGE_NAME + ".TemplateCaller", true, classLoader).getDeclaredConstructor().newInstance();
+            BiFunction<Integer, Object[], String> formatter = (i, arguments) -> String.format(LOCALE, TRANSLATIONS[i], arguments);
+            for (int i = 0; i < TRANSLATIONS.length; ++i) {
+                if (!formatter.apply(i, ARGUMENTS[i]).equals(templates.apply(i, ARGUMENTS[i]))) {
+                    throw new IllegalStateException("Templates and String.format() differ for " + TRANSLATIONS[i]);
+                }
+            }
+            System.out.printf("%40s %20s %20s%n", "translation", "String.format(), ns", "template, ns");
+            for (int i = 0; i < TRANSLATIONS.length; ++i) {
+                // Warm-up
+                measure(formatter, i);
+                measure(templates, i);
+                System.out.printf("%40s %20.1f %20.1f%n", TRANSLATIONS[i], measure(formatter, i), measure(templates, i));
+            }
+        }
+    }
+
+    /**
+     * @return time per formatting in nanoseconds
+     */
+    private static double measure(@NotNull BiFunction<Integer, Object[], String> format, int translation) {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            length += format.apply(translation, ARGUMENTS[translation]).length();
+        }
+        long time = System.nanoTime() - start;
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return (double) time / ITERATIONS;
+    }
+}
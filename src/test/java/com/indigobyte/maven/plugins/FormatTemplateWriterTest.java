@@ -0,0 +1,194 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that translations formatted by the generated formatter class with their templates are the same as formatted
+ * by {@link String#format(Locale, String, Object...)}, including exceptions thrown for invalid arguments.
+ */
+public class FormatTemplateWriterTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final String[] TRANSLATIONS = {
+            "Hello %s",
+            "%d files",
+            "%s has %d new messages%n",
+            "%2$s %1$s",
+            "%1$s %1$s %s %s",
+            "%s %<s %<S",
+            "%2$d %<x %s",
+            "%-10s|%5d|%05d",
+            "%10.3s|%-6S|",
+            "%.2f %e",
+            "%,d %+d %(d",
+            "%x %X %o",
+            "%b %c %h",
+            "%tY-%<tm-%<td",
+            "100%% %s",
+            "%n%%%n",
+            "%3$s",
+            "%s %s %s %s",
+    };
+    // Translations which have no templates and are always formatted by String.format()
+    private static final String[] TRANSLATIONS_WITHOUT_TEMPLATES = {
+            "No specifiers",
+            "%<s first",
+            "%0$s",
+            "%99999999999$s",
+            "%q",
+            "%",
+    };
+    private static final Locale[] LOCALES = {
+            null,
+            Locale.US,
+            Locale.ROOT,
+            Locale.GERMANY,
+            Locale.forLanguageTag("ar-EG"),
+            Locale.forLanguageTag("fa-IR"),
+            Locale.forLanguageTag("th-TH-u-nu-thai"),
+            Locale.forLanguageTag("hi-IN-u-nu-deva"),
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSameAsStringFormat() throws Exception {
+        assertNotEquals('0', DecimalFormatSymbols.getInstance(Locale.forLanguageTag("th-TH-u-nu-thai")).getZeroDigit());
+        assertNotEquals('0', DecimalFormatSymbols.getInstance(Locale.forLanguageTag("hi-IN-u-nu-deva")).getZeroDigit());
+        Calendar calendar = new GregorianCalendar(2024, Calendar.FEBRUARY, 3);
+        Object[][] argumentSets = {
+                {"Bob", 5},
+                {"Bob", -5},
+                {"x", -1234567, 3.5},
+                {"x", Integer.MIN_VALUE, Long.MAX_VALUE},
+                {5L, (short) 7, (byte) -3},
+                {new BigInteger("-123456789012345678901234567890"), 12},
+                {null, null},
+                {new Tagged("tag"), 42, new Tagged("second")},
+                {true, 'z', 255, "extra"},
+                {calendar, "date"},
+                {"a", "b", "c"},
+                {"one"},
+                {},
+                null,
+                {3.5, "not a number"},
+        };
+        try (URLClassLoader classLoader = compileFormatter()) {
+            Class<?> formatterClass = Class.forName(PACKAGE_NAME + ".Formatter", true, classLoader);
+            Method format = formatterClass.getMethod("format", Locale.class, String.class, Object[].class, Object[].class);
+            Constructor<?> specifierConstructor = Class.forName(PACKAGE_NAME + ".Formatter$Specifier", true, classLoader).getConstructor(int.class, String.class);
+            for (String translation : TRANSLATIONS) {
+                List<Object> segments = FormatTemplateWriter.getSegments(translation);
+                assertNotNull("Translation \"" + translation + "\" has no template", segments);
+                Object[] template = new Object[segments.size()];
+                for (int i = 0; i < template.length; ++i) {
+                    Object segment = segments.get(i);
+                    if (segment instanceof FormatTemplateWriter.TemplateSpecifier) {
+                        FormatTemplateWriter.TemplateSpecifier specifier = (FormatTemplateWriter.TemplateSpecifier) segment;
+                        segment = specifierConstructor.newInstance(specifier.argument, specifier.format);
+                    }
+                    template[i] = segment;
+                }
+                for (Locale locale : LOCALES) {
+                    for (Object[] args : argumentSets) {
+                        assertEquals(
+                                "\"" + translation + "\" in " + locale + " with " + Arrays.toString(args),
+                                formatWithString(locale, translation, args),
+                                formatWithTemplate(format, locale, translation, template, args)
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTranslationsWithoutTemplates() {
+        for (String translation : TRANSLATIONS_WITHOUT_TEMPLATES) {
+            assertNull("Translation \"" + translation + "\" has a template", FormatTemplateWriter.getSegments(translation));
+        }
+    }
+
+    /**
+     * @return the formatted string, or description of the exception
+     */
+    @NotNull
+    private static String formatWithString(@Nullable Locale locale, @NotNull String translation, @Nullable Object[] args) {
+        try {
+            return String.format(locale, translation, args);
+        } catch (RuntimeException e) {
+            return describe(e);
+        }
+    }
+
+    @NotNull
+    private static String formatWithTemplate(@NotNull Method format, @Nullable Locale locale, @NotNull String translation, @NotNull Object[] template, @Nullable Object[] args) throws IllegalAccessException {
+        try {
+            return (String) format.invoke(null, locale, translation, template, args);
+        } catch (InvocationTargetException e) {
+            return describe(e.getCause());
+        }
+    }
+
+    @NotNull
+    private static String describe(@NotNull Throwable e) {
+        return e.getClass().getName() + ": " + e.getMessage();
+    }
+
+    @NotNull
+    private URLClassLoader compileFormatter() throws Exception {
+        StringWriter formatterClass = new StringWriter();
+        JavaGenerator.writeFormatterClass(formatterClass, new GeneratorOptions().setOmitVersion(true), PACKAGE_NAME, "Formatter");
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), formatterClass.toString());
+        assertNotNull("Formatter class can't be compiled", classesDir);
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, FormatTemplateWriterTest.class.getClassLoader());
+    }
+
+    /**
+     * Writes its tag with the flags, width and precision it is formatted with.
+     */
+    private static final class Tagged implements Formattable {
+        @NotNull
+        private final String tag;
+
+        Tagged(@NotNull String tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public void formatTo(Formatter formatter, int flags, int width, int precision) {
+            formatter.format("<%s %d %d %d>", tag, flags, width, precision);
+        }
+
+        @Override
+        public String toString() {
+            return "Tagged " + tag;
+        }
+    }
+}
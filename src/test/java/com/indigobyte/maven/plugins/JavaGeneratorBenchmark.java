@@ -0,0 +1,92 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Measures {@link JavaGenerator} code generation time against catalog size. Generation time per entry should stay
+ * roughly constant as the catalog grows.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.indigobyte.maven.plugins.JavaGeneratorBenchmark}
+ */
+public class JavaGeneratorBenchmark {
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 50_000, 100_000, 200_000};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%10s %12s %15s %15s%n", "entries", "ms", "ns/entry", "output chars");
+        for (int size : CATALOG_SIZES) {
+            JavaGenerator javaGenerator = createGenerator(size);
+            CountingWriter out = new CountingWriter();
+            for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+                generate(javaGenerator, out);
+            }
+            out.count = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; ++i) {
+                generate(javaGenerator, out);
+            }
+            long elapsed = (System.nanoTime() - start) / ITERATIONS;
+            System.out.printf("%10d %12.1f %15.1f %15d%n", size, elapsed / 1e6, (double) elapsed / size, out.count / ITERATIONS);
+        }
+    }
+
+    private static void generate(@NotNull JavaGenerator javaGenerator, @NotNull Writer out) throws IOException {
+        javaGenerator.write(out, "com.example.i18n", "messages_en", PluralFormula.DEFAULT, "benchmark");
+    }
+
+    @NotNull
+    static JavaGenerator createGenerator(int size) {
+        JavaGenerator javaGenerator = new JavaGenerator(new GeneratorOptions().setOmitVersion(true));
+        for (int i = 0; i < size; ++i) {
+            javaGenerator.addInitLine(createMessage(i));
+        }
+        return javaGenerator;
+    }
+
+    @NotNull
+    static Message createMessage(int i) {
+        Message message = new Message();
+        message.setMsgctxt("context." + (i % 100));
+        message.setMsgid("Message number " + i + " with %s argument");
+        if (i % 10 == 0) {
+            message.setMsgidPlural("Messages number " + i + " with %d arguments");
+            message.addMsgstrPlural("Nachricht Nummer " + i + " mit %s Argument", 0);
+            message.addMsgstrPlural("Nachrichten Nummer " + i + " mit %d Argumenten", 1);
+        } else {
+            message.setMsgstr("Nachricht Nummer " + i + " mit %s Argument");
+        }
+        return message;
+    }
+
+    private static class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(@NotNull char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(int c) {
+            ++count;
+        }
+
+        @Override
+        public void write(@NotNull String str, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
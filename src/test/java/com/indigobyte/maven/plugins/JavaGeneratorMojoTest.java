@@ -0,0 +1,194 @@
+package com.indigobyte.maven.plugins;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that generated files are only rewritten if their content or the configuration they were generated with has
+ * changed, and that bundles generated concurrently are the same as generated one by one.
+ */
+public class JavaGeneratorMojoTest {
+    private static final String PO_FILE = "msgid \"\"\n" +
+            "msgstr \"Content-Type: text/plain; charset=UTF-8\\n\"\n" +
+            "\n" +
+            "msgctxt \"menu\"\n" +
+            "msgid \"File\"\n" +
+            "msgstr \"Datei\"\n";
+    private static final int LANGUAGE_COUNT = 8;
+    private static final FileTime PAST = FileTime.fromMillis(1_000_000_000_000L);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteIfChanged() throws Exception {
+        Path path = temporaryFolder.getRoot().toPath().resolve("dir/file.txt");
+        assertTrue(JavaGeneratorMojo.writeIfChanged(path, out -> out.write(getBytes("content"))));
+        assertArrayEquals(getBytes("content"), Files.readAllBytes(path));
+
+        Files.setLastModifiedTime(path, PAST);
+        assertFalse(JavaGeneratorMojo.writeIfChanged(path, out -> out.write(getBytes("content"))));
+        assertEquals("Unchanged file was rewritten", PAST, Files.getLastModifiedTime(path));
+
+        assertTrue(JavaGeneratorMojo.writeIfChanged(path, out -> out.write(getBytes("changed"))));
+        assertArrayEquals(getBytes("changed"), Files.readAllBytes(path));
+        assertOnlyFile(path);
+    }
+
+    @Test
+    public void testWriteFailure() throws Exception {
+        Path path = temporaryFolder.getRoot().toPath().resolve("file.txt");
+        Files.write(path, getBytes("content"));
+        try {
+            JavaGeneratorMojo.writeIfChanged(path, out -> {
+                out.write(getBytes("partial"));
+                throw new IOException("Failed");
+            });
+            fail("Failure of the writer was ignored");
+        } catch (MojoExecutionException e) {
+            assertEquals("Failed", e.getCause().getMessage());
+        }
+        assertArrayEquals(getBytes("content"), Files.readAllBytes(path));
+        assertOnlyFile(path);
+    }
+
+    @Test
+    public void testGenerateJavaFile() throws Exception {
+        Path poFile = temporaryFolder.newFile("messages_de.po").toPath();
+        Files.write(poFile, getBytes(PO_FILE));
+        Files.setLastModifiedTime(poFile, PAST);
+        String outputDir = temporaryFolder.newFolder("generated").toString();
+        Path javaFile = temporaryFolder.getRoot().toPath().resolve("generated/com/example/messages_de.java");
+        GeneratorOptions options = new GeneratorOptions().setOmitVersion(true);
+
+        assertEquals(JavaGeneratorMojo.GenerationResult.WRITTEN, generateJavaFile(poFile, outputDir, options));
+        FileTime lastModified = FileTime.fromMillis(PAST.toMillis() + 1000);
+        Files.setLastModifiedTime(javaFile, lastModified);
+        assertEquals(JavaGeneratorMojo.GenerationResult.UP_TO_DATE, generateJavaFile(poFile, outputDir, options));
+
+        // The .po file is newer, but has the same messages
+        Files.setLastModifiedTime(poFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        assertEquals(JavaGeneratorMojo.GenerationResult.UNCHANGED, generateJavaFile(poFile, outputDir, options));
+        assertEquals(lastModified, Files.getLastModifiedTime(javaFile));
+        Files.setLastModifiedTime(poFile, PAST);
+
+        // Other options change the hash of the configuration in the file, so it is regenerated
+        GeneratorOptions sortedArray = new GeneratorOptions().setOmitVersion(true).setStorage(BundleStorage.SORTED_ARRAY);
+        assertEquals(JavaGeneratorMojo.GenerationResult.WRITTEN, generateJavaFile(poFile, outputDir, sortedArray));
+        assertTrue(new String(Files.readAllBytes(javaFile), StandardCharsets.UTF_8).contains("java.util.Arrays.binarySearch(keys, msgid)"));
+        Files.setLastModifiedTime(javaFile, lastModified);
+        assertEquals(JavaGeneratorMojo.GenerationResult.UP_TO_DATE, generateJavaFile(poFile, outputDir, sortedArray));
+        assertOnlyFile(javaFile);
+    }
+
+    @Test
+    public void testConcurrentGeneration() throws Exception {
+        Map<String, String> poFiles = new TreeMap<>();
+        for (int i = 0; i < LANGUAGE_COUNT; ++i) {
+            String language = "l" + i;
+            Path poFile = temporaryFolder.getRoot().toPath().resolve("messages_" + language + ".po");
+            Files.write(poFile, getBytes(PO_FILE.replace("Datei", "Datei " + i)));
+            poFiles.put(language, poFile.toString());
+        }
+        for (BundleStorage storage : BundleStorage.values()) {
+            GeneratorOptions options = new GeneratorOptions()
+                    .setOmitVersion(true)
+                    .setStorage(storage)
+                    .setAccessorClass("com.example.Messages")
+                    .setFactoryClass("com.example.Bundles")
+                    .setFormatterClass("com.example.Formatter")
+                    .setReaderClass("com.example.MoReader");
+            Path sequentialDir = temporaryFolder.newFolder().toPath();
+            generateJavaFiles(poFiles, sequentialDir, options, 1);
+            Path concurrentDir = temporaryFolder.newFolder().toPath();
+            generateJavaFiles(poFiles, concurrentDir, options, 4);
+            Map<Path, byte[]> sequentialFiles = readFiles(sequentialDir);
+            Map<Path, byte[]> concurrentFiles = readFiles(concurrentDir);
+            assertEquals(storage.name(), sequentialFiles.keySet(), concurrentFiles.keySet());
+            for (Map.Entry<Path, byte[]> entry : sequentialFiles.entrySet()) {
+                assertArrayEquals(storage + ": " + entry.getKey(), entry.getValue(), concurrentFiles.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentGenerationFailure() throws Exception {
+        Map<String, String> poFiles = new TreeMap<>();
+        for (int i = 0; i < LANGUAGE_COUNT; ++i) {
+            String language = "l" + i;
+            Path poFile = temporaryFolder.getRoot().toPath().resolve("messages_" + language + ".po");
+            Files.write(poFile, getBytes(i == LANGUAGE_COUNT / 2 ? "msgid \"unterminated\n" : PO_FILE));
+            poFiles.put(language, poFile.toString());
+        }
+        Path outputDir = temporaryFolder.newFolder().toPath();
+        try {
+            generateJavaFiles(poFiles, outputDir, new GeneratorOptions().setOmitVersion(true), 4);
+            fail("Invalid .po file was accepted");
+        } catch (MojoExecutionException e) {
+            // Expected
+        }
+        // Bundles of valid .po files are written, the one of the invalid file is not
+        Map<Path, byte[]> files = readFiles(outputDir);
+        assertEquals(LANGUAGE_COUNT - 1, files.size());
+        assertFalse(files.containsKey(Paths.get("java/com/example/messages_l" + LANGUAGE_COUNT / 2 + ".java")));
+    }
+
+    private static void generateJavaFiles(@NotNull Map<String, String> poFiles, @NotNull Path outputDir, @NotNull GeneratorOptions options, int threads) throws MojoExecutionException {
+        JavaGeneratorMojo.generateJavaFiles(new CatalogCache(), outputDir.resolve("java").toString(), "com.example.messages", poFiles, options,
+                outputDir.resolve("resources").toString(), threads, new SystemStreamLog());
+    }
+
+    /**
+     * @return contents of all files in the directory and its subdirectories, by their paths relative to it
+     */
+    @NotNull
+    private static Map<Path, byte[]> readFiles(@NotNull Path dir) throws IOException {
+        Map<Path, byte[]> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                files.put(dir.relativize(path), Files.readAllBytes(path));
+            }
+        }
+        return files;
+    }
+
+    @NotNull
+    private static JavaGeneratorMojo.GenerationResult generateJavaFile(@NotNull Path poFile, @NotNull String outputDir, @NotNull GeneratorOptions options) throws MojoExecutionException {
+        return JavaGeneratorMojo.generateJavaFile(new CatalogCache(), outputDir, "com.example.messages", "de", poFile.toString(), options, outputDir);
+    }
+
+    /**
+     * Checks that no temporary files are left next to the file.
+     */
+    private static void assertOnlyFile(@NotNull Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            assertArrayEquals(new Object[]{path}, files.toArray());
+        }
+    }
+
+    @NotNull
+    private static byte[] getBytes(@NotNull String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+}
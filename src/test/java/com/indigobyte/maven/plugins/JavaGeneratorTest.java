@@ -0,0 +1,147 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks bundles generated by {@link JavaGenerator}, compiled and loaded.
+ */
+public class JavaGeneratorTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    // Enough messages for several chunks of LAZY_CHUNKS
+    private static final int REPRODUCIBLE_MESSAGE_COUNT = 1_000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSharedPluralForms() throws Exception {
+        for (BundleStorage storage : new BundleStorage[]{BundleStorage.HASH_MAP, BundleStorage.SORTED_ARRAY, BundleStorage.RESOURCE, BundleStorage.LAZY_CHUNKS}) {
+            GeneratorOptions options = new GeneratorOptions().setOmitVersion(true).setStorage(storage);
+            JavaGenerator javaGenerator = new JavaGenerator(options);
+            javaGenerator.addInitLine(createPluralMessage("menu", "%d file", "%d Datei", "%d Dateien"));
+            javaGenerator.addInitLine(createPluralMessage("toolbar", "%d file", "%d Datei", "%d Dateien"));
+            javaGenerator.addInitLine(createPluralMessage("menu", "%d dir", "%d Ordner", "%d Ordner"));
+            try (URLClassLoader classLoader = compile(javaGenerator, options, "messages_de")) {
+                Object bundle = Class.forName(PACKAGE_NAME + ".messages_de", true, classLoader).getDeclaredConstructor().newInstance();
+                Method lookup = bundle.getClass().getMethod("lookup", String.class, String.class);
+                String[] menuFiles = (String[]) lookup.invoke(bundle, "menu", "%d file");
+                assertArrayEquals(storage.name(), new String[]{"%d Datei", "%d Dateien"}, menuFiles);
+                // Identical forms of different messages resolve to one array
+                assertSame(storage.name(), menuFiles, lookup.invoke(bundle, "toolbar", "%d file"));
+                String[] menuDirs = (String[]) lookup.invoke(bundle, "menu", "%d dir");
+                assertNotSame(storage.name(), menuFiles, menuDirs);
+                // Identical strings resolve to one instance
+                assertSame(storage.name(), menuDirs[0], menuDirs[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testReproducibleOutput() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < REPRODUCIBLE_MESSAGE_COUNT; ++i) {
+            messages.add(createMessage("context." + (i % 7), "Message " + i, "Nachricht " + (i % 100)));
+            messages.add(createPluralMessage("context." + (i % 7), "%d file " + i, "%d Datei", "%d Dateien " + (i % 3)));
+        }
+        List<Message> shuffled = new ArrayList<>(messages);
+        Collections.shuffle(shuffled, new Random(34));
+        for (BundleStorage storage : BundleStorage.values()) {
+            GeneratorOptions options = new GeneratorOptions()
+                    .setOmitVersion(true)
+                    .setStorage(storage)
+                    .setAccessorClass(PACKAGE_NAME + ".Messages")
+                    .setReaderClass(PACKAGE_NAME + ".MoReader");
+            JavaGenerator javaGenerator = new JavaGenerator(options);
+            messages.forEach(javaGenerator::addInitLine);
+            JavaGenerator shuffledGenerator = new JavaGenerator(options);
+            shuffled.forEach(shuffledGenerator::addInitLine);
+
+            assertArrayEquals(storage.name(), getBytes(javaGenerator.getText(PACKAGE_NAME, "messages_de", PluralFormula.DEFAULT, "test")),
+                    getBytes(shuffledGenerator.getText(PACKAGE_NAME, "messages_de", PluralFormula.DEFAULT, "test")));
+            assertArrayEquals(storage.name(), getAccessorClass(javaGenerator), getAccessorClass(shuffledGenerator));
+            if (storage == BundleStorage.RESOURCE || storage == BundleStorage.MAPPED) {
+                assertArrayEquals(storage.name(), getResource(javaGenerator), getResource(shuffledGenerator));
+            }
+        }
+    }
+
+    @NotNull
+    private static byte[] getAccessorClass(@NotNull JavaGenerator javaGenerator) throws Exception {
+        StringWriter out = new StringWriter();
+        javaGenerator.writeAccessorClass(out, PACKAGE_NAME, "Messages");
+        return getBytes(out.toString());
+    }
+
+    @NotNull
+    private static byte[] getResource(@NotNull JavaGenerator javaGenerator) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        javaGenerator.writeResource(out);
+        return out.toByteArray();
+    }
+
+    @NotNull
+    private static byte[] getBytes(@NotNull String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @NotNull
+    static Message createMessage(@Nullable String ctx, @NotNull String id, @Nullable String translation) {
+        Message message = new Message();
+        message.setMsgctxt(ctx);
+        message.setMsgid(id);
+        if (translation != null) {
+            message.setMsgstr(translation);
+        }
+        return message;
+    }
+
+    @NotNull
+    static Message createPluralMessage(@Nullable String ctx, @NotNull String id, @NotNull String... forms) {
+        Message message = createMessage(ctx, id, null);
+        message.setMsgidPlural(id + "s");
+        for (int i = 0; i < forms.length; ++i) {
+            message.addMsgstrPlural(forms[i], i);
+        }
+        return message;
+    }
+
+    /**
+     * Compiles the bundle, and writes its binary resource next to its class.
+     */
+    @NotNull
+    private URLClassLoader compile(@NotNull JavaGenerator javaGenerator, @NotNull GeneratorOptions options, @NotNull String className) throws Exception {
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), javaGenerator.getText(PACKAGE_NAME, className, PluralFormula.DEFAULT, "test"));
+        assertNotNull("Generated code can't be compiled", classesDir);
+        if (options.getStorage() == BundleStorage.RESOURCE || options.getStorage() == BundleStorage.MAPPED) {
+            Path resourcePath = classesDir.resolve(PACKAGE_NAME.replace('.', '/')).resolve(JavaGenerator.getResourceFileName(className, options.getStorage()));
+            try (OutputStream out = Files.newOutputStream(resourcePath)) {
+                javaGenerator.writeResource(out);
+            }
+        }
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, JavaGeneratorTest.class.getClassLoader());
+    }
+}
@@ -0,0 +1,146 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.ResourceBundle;
+
+/**
+ * Measures heap retained by a generated bundle and its lookup time with {@link BundleStorage#HASH_MAP} storage and
+ * with {@link BundleStorage#MAPPED} storage without and with the cache. Lookups are made either for a small set of hot
+ * keys or for keys evenly spread over the catalog.
+ * <p>
+ * Requires a JDK. Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.indigobyte.maven.plugins.MappedCatalogBenchmark}
+ */
+public class MappedCatalogBenchmark {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final int[] CATALOG_SIZES = {10_000, 100_000};
+    private static final int HOT_KEY_COUNT = 256;
+    private static final int CACHE_SIZE = 1024;
+    private static final int LOOKUPS = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run the benchmark with a JDK");
+        }
+        Path workDir = Files.createTempDirectory("mapped-benchmark");
+        System.out.printf("%10s %20s %15s %15s %15s%n", "entries", "storage", "heap, KB", "hot keys, ns", "all keys, ns");
+        for (int size : CATALOG_SIZES) {
+            GeneratorOptions mappedOptions = new GeneratorOptions()
+                    .setOmitVersion(true)
+                    .setStorage(BundleStorage.MAPPED)
+                    .setReaderClass(PACKAGE_NAME + ".MoReader");
+            JavaGenerator hashMapGenerator = createGenerator(new GeneratorOptions().setOmitVersion(true), size);
+            JavaGenerator mappedGenerator = createGenerator(mappedOptions, size);
+            JavaGenerator cachedGenerator = createGenerator(new GeneratorOptions()
+                    .setOmitVersion(true)
+                    .setStorage(BundleStorage.MAPPED)
+                    .setReaderClass(PACKAGE_NAME + ".MoReader")
+                    .setMappedCacheSize(CACHE_SIZE), size);
+            StringWriter readerClass = new StringWriter();
+            JavaGenerator.writeMoReaderClass(readerClass, mappedOptions, PACKAGE_NAME, "MoReader");
+            Path classesDir = SourceCompiler.compile(compiler, workDir.resolve(Integer.toString(size)),
+                    hashMapGenerator.getText(PACKAGE_NAME, "messages_hash", PluralFormula.DEFAULT, "benchmark"),
+                    mappedGenerator.getText(PACKAGE_NAME, "messages_mapped", PluralFormula.DEFAULT, "benchmark"),
+                    cachedGenerator.getText(PACKAGE_NAME, "messages_cached", PluralFormula.DEFAULT, "benchmark"),
+                    readerClass.toString()
+            );
+            if (classesDir == null) {
+                System.out.printf("%10d %68s%n", size, "generated code can't be compiled");
+                continue;
+            }
+            Path packageDir = classesDir.resolve(PACKAGE_NAME.replace('.', '/'));
+            try (OutputStream out = Files.newOutputStream(packageDir.resolve(JavaGenerator.getResourceFileName("messages_mapped", BundleStorage.MAPPED)))) {
+                mappedGenerator.writeResource(out);
+            }
+            try (OutputStream out = Files.newOutputStream(packageDir.resolve(JavaGenerator.getResourceFileName("messages_cached", BundleStorage.MAPPED)))) {
+                cachedGenerator.writeResource(out);
+            }
+            List<String> hotKeys = getKeys(size, HOT_KEY_COUNT);
+            List<String> allKeys = getKeys(size, size);
+            measure(classesDir, "messages_hash", "HASH_MAP", size, hotKeys, allKeys);
+            measure(classesDir, "messages_mapped", "MAPPED", size, hotKeys, allKeys);
+            measure(classesDir, "messages_cached", "MAPPED, cache " + CACHE_SIZE, size, hotKeys, allKeys);
+        }
+    }
+
+    @NotNull
+    private static JavaGenerator createGenerator(@NotNull GeneratorOptions options, int size) {
+        JavaGenerator javaGenerator = new JavaGenerator(options);
+        for (int i = 0; i < size; ++i) {
+            javaGenerator.addInitLine(JavaGeneratorBenchmark.createMessage(i));
+        }
+        return javaGenerator;
+    }
+
+    /**
+     * @return keys of {@code count} messages spread over the catalog, in random order
+     */
+    @NotNull
+    private static List<String> getKeys(int size, int count) {
+        List<String> keys = new ArrayList<>(count);
+        Random random = new Random(count);
+        for (int i = 0; i < count; ++i) {
+            int index = count < size ? random.nextInt(size) : i;
+            keys.add("context." + (index % 100) + "\u0004Message number " + index + " with %s argument");
+        }
+        Collections.shuffle(keys, random);
+        return keys;
+    }
+
+    private static void measure(
+            @NotNull Path classesDir,
+            @NotNull String className,
+            @NotNull String storage,
+            int size,
+            @NotNull List<String> hotKeys,
+            @NotNull List<String> allKeys
+    ) throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, MappedCatalogBenchmark.class.getClassLoader())) {
+            long heapBefore = getUsedHeap();
+            ResourceBundle bundle = (ResourceBundle) Class.forName(PACKAGE_NAME + "." + className, true, classLoader).getDeclaredConstructor().newInstance();
+            long heap = getUsedHeap() - heapBefore;
+            // Warm-up
+            measureLookups(bundle, hotKeys);
+            measureLookups(bundle, allKeys);
+            System.out.printf("%10d %20s %15d %15.1f %15.1f%n", size, storage, heap / 1024, measureLookups(bundle, hotKeys), measureLookups(bundle, allKeys));
+        }
+    }
+
+    private static long getUsedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return time per lookup in nanoseconds
+     */
+    private static double measureLookups(@NotNull ResourceBundle bundle, @NotNull List<String> keys) {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; ++i) {
+            length += ((String) bundle.getObject(keys.get(i % keys.size()))).length();
+        }
+        long time = System.nanoTime() - start;
+        if (length == 0) {
+            throw new IllegalStateException();
+        }
+        return (double) time / LOOKUPS;
+    }
+}
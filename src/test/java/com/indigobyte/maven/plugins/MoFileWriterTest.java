@@ -0,0 +1,396 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the layout of {@code .mo} files written by {@link MoFileWriter} against the one of GNU gettext, and that
+ * the generated reader finds every message in them, through the hash table, through binary search in files without
+ * it, and through its cache.
+ */
+public class MoFileWriterTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final int MESSAGE_COUNT = 3_000;
+    // Fewer distinct translations than messages, so that equal ones are stored once
+    private static final int TRANSLATION_COUNT = 700;
+    private static final int CACHE_SIZE = 64;
+    private static final String HEADER = "Content-Type: text/plain; charset=UTF-8\n" +
+            "Plural-Forms: nplurals=3; plural=(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);\n";
+    private static final String[] MISSING_KEYS = {
+            "Message 1", "context.1", "context.1\u0004", "context.1\u0004Message", "context.1\u0004Message 10", "%d file", "ü", "Aq\u0004"
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHashString() {
+        assertEquals(0, MoFileWriter.hashString(new byte[0]));
+        assertEquals(0x61, MoFileWriter.hashString(getBytes("a")));
+        assertEquals(0x672, MoFileWriter.hashString(getBytes("ab")));
+        // Keys with the same hash code
+        assertEquals(MoFileWriter.hashString(getBytes("Aq")), MoFileWriter.hashString(getBytes("Ba")));
+        // Plural id after NUL is not hashed
+        assertEquals(MoFileWriter.hashString(getBytes("file")), MoFileWriter.hashString(getBytes("file\u0000files")));
+        Random random = new Random(49);
+        for (int i = 0; i < 10_000; ++i) {
+            byte[] str = new byte[random.nextInt(40)];
+            random.nextBytes(str);
+            assertEquals(Arrays.toString(str), hashPjw(str), MoFileWriter.hashString(str));
+        }
+    }
+
+    @Test
+    public void testHashTableSize() {
+        assertEquals(3, MoFileWriter.getHashTableSize(0));
+        assertEquals(3, MoFileWriter.getHashTableSize(1));
+        assertEquals(13, MoFileWriter.getHashTableSize(10));
+        assertEquals(137, MoFileWriter.getHashTableSize(100));
+        assertEquals(1361, MoFileWriter.getHashTableSize(1000));
+        for (int count = 0; count <= 10_000; ++count) {
+            assertEquals("Hash table size for " + count + " strings", nextPrime(count * 4 / 3), MoFileWriter.getHashTableSize(count));
+        }
+    }
+
+    @Test
+    public void testLayout() throws Exception {
+        Map<String, Object> messages = new LinkedHashMap<>();
+        byte[] data = writeMoFile(messages);
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0x950412de, buffer.getInt(0));
+        assertEquals(0, buffer.getInt(4));
+        int count = buffer.getInt(8);
+        int originalsOffset = buffer.getInt(12);
+        int translationsOffset = buffer.getInt(16);
+        int hashTableSize = buffer.getInt(20);
+        int hashTableOffset = buffer.getInt(24);
+        // Messages and the header
+        assertEquals(messages.size() + 1, count);
+        assertEquals(MoFileWriter.getHashTableSize(count), hashTableSize);
+
+        byte[][] originals = new byte[count][];
+        long stringsSize = 0;
+        for (int i = 0; i < count; ++i) {
+            originals[i] = getString(data, buffer.getInt(originalsOffset + 8 * i), buffer.getInt(originalsOffset + 8 * i + 4));
+            stringsSize += originals[i].length + 1;
+            if (i > 0) {
+                assertTrue("Originals must be sorted", compareUnsigned(originals[i - 1], originals[i]) < 0);
+            }
+        }
+
+        // Every string is found by double hashing from its home slot, passing only occupied slots
+        int collisionCount = 0;
+        Set<Integer> occupiedSlots = new HashSet<>();
+        for (int i = 0; i < count; ++i) {
+            int hash = hashPjw(originals[i]);
+            int index = Integer.remainderUnsigned(hash, hashTableSize);
+            int increment = 1 + Integer.remainderUnsigned(hash, hashTableSize - 2);
+            int probeCount = 0;
+            while (buffer.getInt(hashTableOffset + 4 * index) != i + 1) {
+                assertNotEquals("Probe sequence of " + new String(originals[i], StandardCharsets.UTF_8) + " has an empty slot", 0, buffer.getInt(hashTableOffset + 4 * index));
+                assertTrue(++probeCount < hashTableSize);
+                index = (index + increment) % hashTableSize;
+            }
+            if (probeCount > 0) {
+                ++collisionCount;
+            }
+            occupiedSlots.add(index);
+        }
+        assertEquals(count, occupiedSlots.size());
+        assertTrue("No keys collide, probing isn't tested", collisionCount > 0);
+
+        // Equal translations are stored once
+        Map<ByteBuffer, Integer> translationOffsets = new HashMap<>();
+        Set<Integer> usedOffsets = new HashSet<>();
+        for (int i = 0; i < count; ++i) {
+            int length = buffer.getInt(translationsOffset + 8 * i);
+            int offset = buffer.getInt(translationsOffset + 8 * i + 4);
+            Integer firstOffset = translationOffsets.putIfAbsent(ByteBuffer.wrap(getString(data, length, offset)), offset);
+            if (firstOffset != null) {
+                assertEquals(firstOffset.intValue(), offset);
+            } else {
+                assertTrue("Different translations share an offset", usedOffsets.add(offset));
+                stringsSize += length + 1;
+            }
+        }
+        assertTrue(translationOffsets.size() < count / 2);
+        assertEquals(hashTableOffset + 4L * hashTableSize + stringsSize, data.length);
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        Map<String, Object> messages = new LinkedHashMap<>();
+        byte[] data = writeMoFile(messages);
+        try (URLClassLoader classLoader = compileReader()) {
+            Class<?> readerClass = Class.forName(PACKAGE_NAME + ".MoReader", true, classLoader);
+            checkLookups(new MoReaderAccess(readerClass, createReader(readerClass, data, 0)), messages);
+
+            // Without the hash table, readers fall back to binary search over sorted originals
+            byte[] withoutHashTable = data.clone();
+            ByteBuffer.wrap(withoutHashTable).order(ByteOrder.LITTLE_ENDIAN).putInt(20, 0);
+            checkLookups(new MoReaderAccess(readerClass, createReader(readerClass, withoutHashTable, 0)), messages);
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Map<String, Object> messages = new LinkedHashMap<>();
+        byte[] data = writeMoFile(messages);
+        try (URLClassLoader classLoader = compileReader()) {
+            Class<?> readerClass = Class.forName(PACKAGE_NAME + ".MoReader", true, classLoader);
+            MoReaderAccess uncached = new MoReaderAccess(readerClass, createReader(readerClass, data, 0));
+            MoReaderAccess cached = new MoReaderAccess(readerClass, createReader(readerClass, data, CACHE_SIZE));
+            // Many more keys than slots of the cache, so entries are replaced on every pass
+            for (int pass = 0; pass < 2; ++pass) {
+                checkLookups(cached, messages);
+            }
+            for (String key : messages.keySet()) {
+                assertNotSame(uncached.lookupValue(key), uncached.lookupValue(key));
+                assertSame(cached.lookupValue(key), cached.lookupValue(key));
+            }
+            for (String key : MISSING_KEYS) {
+                assertNull(cached.lookupValue(key));
+                assertNull(cached.lookupValue(key));
+            }
+            assertNull(cached.lookupValue(null));
+        }
+    }
+
+    @Test
+    public void testFuzzyAndObsoleteMessages() throws Exception {
+        MoFileWriter moFileWriter = new MoFileWriter();
+        moFileWriter.setHeader(HEADER);
+        Message translated = createMessage(null, "Translated", "Übersetzt");
+        Message fuzzy = createMessage("menu", "Fuzzy", "Unscharf");
+        fuzzy.markFuzzy();
+        Message obsolete = createMessage(null, "Obsolete", "Veraltet");
+        obsolete.markObsolete();
+        Message fuzzyPlural = createMessage(null, "%d file", null);
+        fuzzyPlural.setMsgidPlural("%d files");
+        fuzzyPlural.addMsgstrPlural("%d plik", 0);
+        fuzzyPlural.markFuzzy();
+        for (Message message : new Message[]{translated, fuzzy, obsolete, fuzzyPlural}) {
+            moFileWriter.addMessage(message);
+        }
+        assertTrue(MoFileWriter.isWritten(translated));
+        assertFalse(MoFileWriter.isWritten(fuzzy));
+        assertFalse(MoFileWriter.isWritten(obsolete));
+        assertFalse(MoFileWriter.isWritten(fuzzyPlural));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        moFileWriter.write(out);
+        try (URLClassLoader classLoader = compileReader()) {
+            Class<?> readerClass = Class.forName(PACKAGE_NAME + ".MoReader", true, classLoader);
+            MoReaderAccess reader = new MoReaderAccess(readerClass, createReader(readerClass, out.toByteArray(), 0));
+            // The header and the translated message
+            assertEquals(2, reader.size());
+            assertEquals(HEADER, reader.getHeader());
+            assertEquals("Übersetzt", reader.lookup("Translated"));
+            assertNull(reader.lookup("menu", "Fuzzy"));
+            assertNull(reader.lookup("Obsolete"));
+            assertNull(reader.lookupValue("%d file"));
+        }
+    }
+
+    /**
+     * Writes the header, messages with and without context, plural forms, keys with the same hash code, non-ASCII
+     * keys and untranslated messages.
+     *
+     * @param messages receives translations of all written messages by their keys, or plural forms as
+     *                 {@code String[]}
+     */
+    @NotNull
+    private static byte[] writeMoFile(@NotNull Map<String, Object> messages) throws Exception {
+        MoFileWriter moFileWriter = new MoFileWriter();
+        moFileWriter.setHeader(HEADER);
+        for (int i = 0; i < MESSAGE_COUNT; ++i) {
+            addMessage(moFileWriter, messages, "context." + (i % 53), "Message " + i, "Translation " + (i % TRANSLATION_COUNT));
+        }
+        addMessage(moFileWriter, messages, null, "Aq", "Hash collision 1");
+        addMessage(moFileWriter, messages, null, "Ba", "Hash collision 2");
+        addMessage(moFileWriter, messages, "Aq", "Ba", "Hash collision 3");
+        addMessage(moFileWriter, messages, null, "ünïcödé", "Ünïcödé");
+        addMessage(moFileWriter, messages, "日本", "語", "にほんご");
+        addMessage(moFileWriter, messages, null, "😀", "Emoji 😀");
+        addMessage(moFileWriter, messages, null, "\u007f\u0080߿ࠀ￿", "Boundaries of UTF-8 lengths");
+        addMessage(moFileWriter, messages, null, "Question?", "Frage?");
+        addMessage(moFileWriter, messages, null, "Untranslated", "");
+        addMessage(moFileWriter, messages, "menu", "Same as key", "Same as key");
+        addPluralMessage(moFileWriter, messages, "files", "%d file", "%d plik", "%d pliki", "%d plików");
+        addPluralMessage(moFileWriter, messages, null, "%d dir", "%d katalog", "%d katalogi", "%d katalogów");
+        addPluralMessage(moFileWriter, messages, null, "%d untranslated", "", "", "");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        moFileWriter.write(out);
+        return out.toByteArray();
+    }
+
+    private static void addMessage(@NotNull MoFileWriter moFileWriter, @NotNull Map<String, Object> messages, @Nullable String ctx, @NotNull String id, @NotNull String translation) {
+        moFileWriter.addMessage(createMessage(ctx, id, translation));
+        if (!translation.isEmpty()) {
+            messages.put(ctx != null ? ctx + "\u0004" + id : id, translation);
+        }
+    }
+
+    private static void addPluralMessage(@NotNull MoFileWriter moFileWriter, @NotNull Map<String, Object> messages, @Nullable String ctx, @NotNull String id, @NotNull String... forms) {
+        Message message = createMessage(ctx, id, null);
+        message.setMsgidPlural(id + "s");
+        for (int i = 0; i < forms.length; ++i) {
+            message.addMsgstrPlural(forms[i], i);
+        }
+        moFileWriter.addMessage(message);
+        if (!forms[0].isEmpty()) {
+            messages.put(ctx != null ? ctx + "\u0004" + id : id, forms);
+        }
+    }
+
+    @NotNull
+    private static Message createMessage(@Nullable String ctx, @NotNull String id, @Nullable String translation) {
+        Message message = new Message();
+        message.setMsgctxt(ctx);
+        message.setMsgid(id);
+        if (translation != null) {
+            message.setMsgstr(translation);
+        }
+        return message;
+    }
+
+    private static void checkLookups(@NotNull MoReaderAccess reader, @NotNull Map<String, Object> messages) {
+        assertEquals(messages.size() + 1, reader.size());
+        assertEquals(HEADER, reader.getHeader());
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < reader.size(); ++i) {
+            keys.add(reader.getKey(i));
+        }
+        Set<String> expectedKeys = new HashSet<>(messages.keySet());
+        expectedKeys.add("");
+        assertEquals(expectedKeys, keys);
+
+        for (Map.Entry<String, Object> entry : messages.entrySet()) {
+            String key = entry.getKey();
+            if (entry.getValue() instanceof String[]) {
+                String[] forms = (String[]) entry.getValue();
+                assertArrayEquals(key, forms, (String[]) reader.lookupValue(key));
+                assertEquals(key, forms[0], reader.lookup(key));
+                for (int form = 0; form < forms.length; ++form) {
+                    assertEquals(key, forms[form], reader.lookupPlural(key, form));
+                }
+                // As in gettext, the first form is used if there is no such form
+                assertEquals(key, forms[0], reader.lookupPlural(key, forms.length));
+            } else {
+                assertEquals(key, entry.getValue(), reader.lookupValue(key));
+                assertEquals(key, entry.getValue(), reader.lookup(key));
+            }
+            int separatorPos = key.indexOf('\u0004');
+            if (separatorPos != -1) {
+                assertEquals(key, reader.lookup(key), reader.lookup(key.substring(0, separatorPos), key.substring(separatorPos + 1)));
+            }
+        }
+        for (String key : MISSING_KEYS) {
+            assertNull(key, reader.lookup(key));
+            assertNull(key, reader.lookupValue(key));
+        }
+        assertNull(reader.lookup("Untranslated"));
+        assertNull(reader.lookup("%d untranslated"));
+        assertNull(reader.lookup("Aq", "Aq"));
+        assertNull(reader.lookup(null));
+        // Lone surrogates are encoded as '?', the same way as by String.getBytes()
+        assertEquals("Frage?", reader.lookup("Question\ud800"));
+    }
+
+    @NotNull
+    private static Object createReader(@NotNull Class<?> readerClass, @NotNull byte[] data, int cacheSize) throws Exception {
+        return readerClass.getConstructor(ByteBuffer.class, int.class).newInstance(ByteBuffer.wrap(data), cacheSize);
+    }
+
+    @NotNull
+    private URLClassLoader compileReader() throws Exception {
+        StringWriter readerClass = new StringWriter();
+        JavaGenerator.writeMoReaderClass(readerClass, new GeneratorOptions().setOmitVersion(true), PACKAGE_NAME, "MoReader");
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), readerClass.toString());
+        assertNotNull("Reader class can't be compiled", classesDir);
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, MoFileWriterTest.class.getClassLoader());
+    }
+
+    /**
+     * {@code hash_string()} of GNU gettext, with {@code unsigned long} arithmetic, up to the first NUL.
+     */
+    private static int hashPjw(@NotNull byte[] str) {
+        long hval = 0;
+        for (byte b : str) {
+            if (b == 0) {
+                break;
+            }
+            hval = ((hval << 4) + (b & 0xff)) & 0xffffffffL;
+            long g = hval & (0xfL << 28);
+            if (g != 0) {
+                hval ^= g >> 24;
+                hval ^= g;
+            }
+        }
+        return (int) hval;
+    }
+
+    /**
+     * {@code next_prime()} of GNU gettext, with the minimal size of the hash table of msgfmt.
+     */
+    private static int nextPrime(int seed) {
+        int candidate = seed | 1;
+        while (!BigInteger.valueOf(candidate).isProbablePrime(50)) {
+            candidate += 2;
+        }
+        return Math.max(3, candidate);
+    }
+
+    @NotNull
+    private static byte[] getString(@NotNull byte[] data, int length, int offset) {
+        assertEquals("String must be followed by NUL", 0, data[offset + length]);
+        return Arrays.copyOfRange(data, offset, offset + length);
+    }
+
+    private static int compareUnsigned(@NotNull byte[] a, @NotNull byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); ++i) {
+            int difference = (a[i] & 0xff) - (b[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    @NotNull
+    private static byte[] getBytes(@NotNull String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package com.indigobyte.maven.plugins;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.fedorahosted.tennera.jgettext.Catalog;
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that {@code .mo} files written from catalogs with messages with and without context are read back by the
+ * generated reader, and that plural forms are checked only for messages which are generated.
+ */
+public class MoGeneratorMojoTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final String HEADER = "Content-Type: text/plain; charset=UTF-8\n" +
+            "Plural-Forms: nplurals=3; plural=(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2);\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMessagesWithAndWithoutContext() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.addMessage(createMessage(null, "", HEADER));
+        catalog.addMessage(createMessage(null, "File", "Plik"));
+        catalog.addMessage(createMessage("menu", "File", "Plik menu"));
+        catalog.addMessage(createPluralMessage(null, "%d file", "%d plik", "%d pliki", "%d plików"));
+        catalog.addMessage(createPluralMessage("menu", "%d file", "%d plik w menu", "%d pliki w menu", "%d plików w menu"));
+        catalog.addMessage(createMessage(null, "Untranslated", ""));
+        catalog.addMessage(createMessage("", "Empty context", "Pusty kontekst"));
+        catalog.addMessage(createMessage(null, "Zażółć", "Gęślą jaźń"));
+
+        Path moFile = temporaryFolder.getRoot().toPath().resolve("pl/LC_MESSAGES/messages.mo");
+        assertTrue(MoGeneratorMojo.generateMoFile(catalog, "messages_pl.po", moFile));
+        assertFalse(MoGeneratorMojo.generateMoFile(catalog, "messages_pl.po", moFile));
+
+        try (URLClassLoader classLoader = compileReader()) {
+            Class<?> readerClass = Class.forName(PACKAGE_NAME + ".MoReader", true, classLoader);
+            Object reader = readerClass.getMethod("open", Path.class).invoke(null, moFile);
+            MoReaderAccess access = new MoReaderAccess(readerClass, reader);
+
+            assertEquals(HEADER, access.getHeader());
+            // Header and all translated messages, the untranslated one is left out
+            assertEquals(7, access.size());
+            assertEquals("Plik", access.lookup("File"));
+            assertEquals("Plik menu", access.lookup("menu", "File"));
+            assertEquals("Pusty kontekst", access.lookup("", "Empty context"));
+            assertEquals("Gęślą jaźń", access.lookup("Zażółć"));
+            assertNull(access.lookup("Untranslated"));
+            assertNull(access.lookup("Empty context"));
+            assertNull(access.lookup("other", "File"));
+
+            assertEquals("%d plik", access.lookupPlural("%d file", 0));
+            assertEquals("%d pliki", access.lookupPlural("%d file", 1));
+            assertEquals("%d plików", access.lookupPlural("%d file", 2));
+            assertEquals("%d plików w menu", access.lookupPlural("menu\u0004%d file", 2));
+            assertArrayEquals(new String[]{"%d plik", "%d pliki", "%d plików"}, (String[]) access.lookupValue("%d file"));
+        }
+    }
+
+    @Test
+    public void testPluralFormsOfMessageWithoutContext() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.addMessage(createMessage(null, "", HEADER));
+        catalog.addMessage(createPluralMessage(null, "%d file", "%d plik", "%d pliki"));
+        try {
+            MoGeneratorMojo.generateMoFile(catalog, "messages_pl.po", temporaryFolder.getRoot().toPath().resolve("messages.mo"));
+            fail("Message with 2 plural forms was accepted, but nplurals is 3");
+        } catch (MojoExecutionException e) {
+            assertTrue("Unexpected message: " + e.getMessage(), e.getMessage().startsWith("Message has 2 plural forms, but nplurals is 3"));
+        }
+    }
+
+    @Test
+    public void testFuzzyAndObsoleteMessages() throws Exception {
+        Catalog catalog = new Catalog();
+        Message header = createMessage(null, "", HEADER);
+        header.markFuzzy();
+        catalog.addMessage(header);
+        catalog.addMessage(createMessage(null, "File", "Plik"));
+        Message fuzzy = createMessage(null, "Fuzzy", "Niepewny");
+        fuzzy.markFuzzy();
+        catalog.addMessage(fuzzy);
+        Message obsolete = createMessage("menu", "Obsolete", "Przestarzały");
+        obsolete.markObsolete();
+        catalog.addMessage(obsolete);
+        // Plural forms of messages which are not written are not checked
+        Message fuzzyPlural = createPluralMessage(null, "%d file", "%d plik", "%d pliki");
+        fuzzyPlural.markFuzzy();
+        catalog.addMessage(fuzzyPlural);
+        Message obsoletePlural = createPluralMessage(null, "%d dir", "%d katalog");
+        obsoletePlural.markObsolete();
+        catalog.addMessage(obsoletePlural);
+
+        Path moFile = temporaryFolder.getRoot().toPath().resolve("messages.mo");
+        assertTrue(MoGeneratorMojo.generateMoFile(catalog, "messages_pl.po", moFile));
+        try (URLClassLoader classLoader = compileReader()) {
+            Class<?> readerClass = Class.forName(PACKAGE_NAME + ".MoReader", true, classLoader);
+            MoReaderAccess access = new MoReaderAccess(readerClass, readerClass.getMethod("open", Path.class).invoke(null, moFile));
+            // Fuzzy header is written, as msgfmt does
+            assertEquals(HEADER, access.getHeader());
+            assertEquals(2, access.size());
+            assertEquals("Plik", access.lookup("File"));
+            assertNull(access.lookup("Fuzzy"));
+            assertNull(access.lookup("menu", "Obsolete"));
+            assertNull(access.lookupValue("%d file"));
+            assertNull(access.lookupValue("%d dir"));
+        }
+    }
+
+    @Test
+    public void testJavaGenerationChecksOnlyMessagesWithContext() throws Exception {
+        Catalog catalog = new Catalog();
+        catalog.addMessage(createMessage(null, "", HEADER));
+        catalog.addMessage(createPluralMessage("menu", "%d file", "%d plik", "%d pliki", "%d plików"));
+        // Bundles have no messages without context, so their plural forms are not checked
+        catalog.addMessage(createPluralMessage(null, "%d dir", "%d katalog"));
+        PluralFormula pluralFormula = JavaGeneratorMojo.addMessages(new JavaGenerator(), catalog, "messages_pl.po");
+        assertEquals(3, pluralFormula.getPluralCount());
+
+        catalog.addMessage(createPluralMessage("menu", "%d dir", "%d katalog"));
+        try {
+            JavaGeneratorMojo.addMessages(new JavaGenerator(), catalog, "messages_pl.po");
+            fail("Message with 1 plural form was accepted, but nplurals is 3");
+        } catch (MojoExecutionException e) {
+            assertTrue("Unexpected message: " + e.getMessage(), e.getMessage().startsWith("Message has 1 plural forms, but nplurals is 3"));
+        }
+    }
+
+    @NotNull
+    private static Message createMessage(@Nullable String ctx, @NotNull String id, @NotNull String translation) {
+        Message message = new Message();
+        message.setMsgctxt(ctx);
+        message.setMsgid(id);
+        message.setMsgstr(translation);
+        return message;
+    }
+
+    @NotNull
+    private static Message createPluralMessage(@Nullable String ctx, @NotNull String id, @NotNull String... forms) {
+        Message message = new Message();
+        message.setMsgctxt(ctx);
+        message.setMsgid(id);
+        message.setMsgidPlural(id + "s");
+        for (int i = 0; i < forms.length; ++i) {
+            message.addMsgstrPlural(forms[i], i);
+        }
+        return message;
+    }
+
+    @NotNull
+    private URLClassLoader compileReader() throws Exception {
+        StringWriter readerClass = new StringWriter();
+        JavaGenerator.writeMoReaderClass(readerClass, new GeneratorOptions().setOmitVersion(true), PACKAGE_NAME, "MoReader");
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), readerClass.toString());
+        assertNotNull("Reader class can't be compiled", classesDir);
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, MoGeneratorMojoTest.class.getClassLoader());
+    }
+}
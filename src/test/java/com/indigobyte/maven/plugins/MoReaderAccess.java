@@ -0,0 +1,88 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Calls methods of an instance of the generated reader class, which is compiled and loaded by tests.
+ */
+class MoReaderAccess {
+    @NotNull
+    private final Object reader;
+    @NotNull
+    private final Method size;
+    @NotNull
+    private final Method getHeader;
+    @NotNull
+    private final Method getKey;
+    @NotNull
+    private final Method lookup;
+    @NotNull
+    private final Method contextLookup;
+    @NotNull
+    private final Method lookupPlural;
+    @NotNull
+    private final Method lookupValue;
+
+    MoReaderAccess(@NotNull Class<?> readerClass, @NotNull Object reader) throws NoSuchMethodException {
+        this.reader = reader;
+        size = readerClass.getMethod("size");
+        getHeader = readerClass.getMethod("getHeader");
+        getKey = readerClass.getMethod("getKey", int.class);
+        lookup = readerClass.getMethod("lookup", String.class);
+        contextLookup = readerClass.getMethod("lookup", String.class, String.class);
+        lookupPlural = readerClass.getMethod("lookupPlural", String.class, int.class);
+        lookupValue = readerClass.getMethod("lookupValue", String.class);
+    }
+
+    int size() {
+        return (Integer) invoke(size);
+    }
+
+    @Nullable
+    String getHeader() {
+        return (String) invoke(getHeader);
+    }
+
+    @NotNull
+    String getKey(int index) {
+        return (String) invoke(getKey, index);
+    }
+
+    @Nullable
+    String lookup(@Nullable String msgid) {
+        return (String) invoke(lookup, msgid);
+    }
+
+    @Nullable
+    String lookup(@Nullable String ctx, @Nullable String id) {
+        return (String) invoke(contextLookup, ctx, id);
+    }
+
+    @Nullable
+    String lookupPlural(@Nullable String msgid, int form) {
+        return (String) invoke(lookupPlural, msgid, form);
+    }
+
+    @Nullable
+    Object lookupValue(@Nullable String msgid) {
+        return invoke(lookupValue, msgid);
+    }
+
+    @Nullable
+    private Object invoke(@NotNull Method method, Object... args) {
+        try {
+            return method.invoke(reader, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that ids of keys in the key index generated by {@link MultiLocaleGeneratorMojo} select translations of the
+ * same messages in value columns of all locales, and that messages missing in a locale are looked up in its parent.
+ */
+public class MultiLocaleGeneratorMojoTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    private static final String HEADER = "msgid \"\"\n" +
+            "msgstr \"Content-Type: text/plain; charset=UTF-8\\n\"\n" +
+            "\"Plural-Forms: nplurals=%d; plural=%s;\\n\"\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testKeyIndex() throws Exception {
+        Map<String, Map<String, Object>> translations = new TreeMap<>();
+        translations.put("de", new HashMap<>());
+        translations.get("de").put("menu\u0004File", "Datei");
+        translations.get("de").put("menu\u0004German", "Nur deutsch");
+        translations.get("de").put("menu\u0004%d file", new String[]{"%d Datei", "%d Dateien"});
+        translations.put("de_AT", new HashMap<>());
+        translations.get("de_AT").put("menu\u0004File", "Datei (AT)");
+        translations.put("pl", new HashMap<>());
+        translations.get("pl").put("menu\u0004File", "Plik");
+        translations.get("pl").put("menu\u0004%d file", new String[]{"%d plik", "%d pliki", "%d plików"});
+        translations.get("pl").put("toolbar\u0004File", "Plik na pasku");
+        translations.get("pl").put("\u0004Empty context", "Pusty kontekst");
+
+        Map<String, String> poFiles = new TreeMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : translations.entrySet()) {
+            Path poFile = temporaryFolder.getRoot().toPath().resolve("messages_" + entry.getKey() + ".po");
+            Files.write(poFile, getPoFile(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+            poFiles.put(entry.getKey(), poFile.toString());
+        }
+        Path outputDir = temporaryFolder.newFolder("generated").toPath();
+        GeneratorOptions options = new GeneratorOptions().setOmitVersion(true).setFactoryClass(PACKAGE_NAME + ".Bundles");
+        assertEquals(JavaGeneratorMojo.GenerationResult.WRITTEN,
+                MultiLocaleGeneratorMojo.generateJavaFiles(new CatalogCache(), outputDir.toString(), PACKAGE_NAME + ".messages", poFiles, options));
+
+        TreeSet<String> allKeys = new TreeSet<>();
+        translations.values().forEach(values -> allKeys.addAll(values.keySet()));
+        try (URLClassLoader classLoader = compile(outputDir)) {
+            Class<?> indexClass = Class.forName(PACKAGE_NAME + ".messagesIndex", true, classLoader);
+            Method getKey = indexClass.getMethod("getKey", int.class);
+            Method indexOf = indexClass.getMethod("indexOf", String.class);
+            Method contextIndexOf = indexClass.getMethod("indexOf", String.class, String.class);
+            assertEquals(allKeys.size(), indexClass.getField("SIZE").getInt(null));
+            List<String> keys = new ArrayList<>();
+            for (int id = 0; id < allKeys.size(); ++id) {
+                keys.add((String) getKey.invoke(null, id));
+            }
+            // Every key is held once, in sorted order
+            assertEquals(new ArrayList<>(allKeys), keys);
+
+            Method forLanguage = Class.forName(PACKAGE_NAME + ".Bundles", true, classLoader).getMethod("forLanguage", String.class);
+            for (Map.Entry<String, Map<String, Object>> entry : translations.entrySet()) {
+                ResourceBundle bundle = (ResourceBundle) forLanguage.invoke(null, entry.getKey());
+                Method lookupId = bundle.getClass().getMethod("lookup", int.class);
+                Method lookup = bundle.getClass().getMethod("lookup", String.class);
+                Method contextLookup = bundle.getClass().getMethod("lookup", String.class, String.class);
+                for (String key : allKeys) {
+                    String message = entry.getKey() + ": " + key;
+                    int separatorPos = key.indexOf('\u0004');
+                    int id = (Integer) indexOf.invoke(null, key);
+                    assertEquals(message, keys.indexOf(key), id);
+                    assertEquals(message, id, contextIndexOf.invoke(null, key.substring(0, separatorPos), key.substring(separatorPos + 1)));
+                    Object expected = entry.getValue().get(key);
+                    assertValue(message, expected, lookupId.invoke(bundle, id));
+                    assertValue(message, expected, lookup.invoke(bundle, key));
+                    assertValue(message, expected, contextLookup.invoke(bundle, key.substring(0, separatorPos), key.substring(separatorPos + 1)));
+                }
+                assertNull(lookup.invoke(bundle, "menu\u0004Missing"));
+                assertNull(contextLookup.invoke(bundle, "menu", "Missing"));
+                assertNull(contextLookup.invoke(bundle, "other", "File"));
+                assertEquals(entry.getKey(), entry.getValue().keySet(), new HashSet<>(Collections.list(bundle.getKeys())));
+            }
+
+            assertEquals(-1, indexOf.invoke(null, "menu\u0004Missing"));
+            assertEquals(-1, indexOf.invoke(null, (Object) null));
+            assertEquals(-1, contextIndexOf.invoke(null, "menu", null));
+            assertEquals(-1, contextIndexOf.invoke(null, "menu", "Missing"));
+            assertEquals(-1, contextIndexOf.invoke(null, "men", "u\u0004File"));
+            // The empty context is a context, unlike null
+            assertEquals(indexOf.invoke(null, "\u0004Empty context"), contextIndexOf.invoke(null, "", "Empty context"));
+            assertEquals(-1, contextIndexOf.invoke(null, null, "Empty context"));
+
+            // Messages missing in a locale are taken from the parent
+            ResourceBundle deAt = (ResourceBundle) forLanguage.invoke(null, "de_AT");
+            assertEquals("Datei (AT)", deAt.getString("menu\u0004File"));
+            assertEquals("Nur deutsch", deAt.getString("menu\u0004German"));
+            assertEquals("%d Datei", deAt.getString("menu\u0004%d file"));
+        }
+    }
+
+    private static void assertValue(@NotNull String message, @Nullable Object expected, @Nullable Object actual) {
+        if (expected instanceof String[]) {
+            assertArrayEquals(message, (String[]) expected, (String[]) actual);
+        } else {
+            assertEquals(message, expected, actual);
+        }
+    }
+
+    @NotNull
+    private static String getPoFile(@NotNull Map<String, Object> translations) {
+        int pluralCount = 2;
+        for (Object value : translations.values()) {
+            if (value instanceof String[]) {
+                pluralCount = ((String[]) value).length;
+            }
+        }
+        StringBuilder poFile = new StringBuilder(String.format(HEADER, pluralCount, pluralCount == 3
+                ? "(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2)"
+                : "(n != 1)"));
+        for (Map.Entry<String, Object> entry : new TreeMap<>(translations).entrySet()) {
+            int separatorPos = entry.getKey().indexOf('\u0004');
+            String id = entry.getKey().substring(separatorPos + 1);
+            poFile.append("\nmsgctxt \"").append(entry.getKey(), 0, separatorPos).append("\"\n")
+                    .append("msgid \"").append(id).append("\"\n");
+            if (entry.getValue() instanceof String[]) {
+                String[] forms = (String[]) entry.getValue();
+                poFile.append("msgid_plural \"").append(id).append("s\"\n");
+                for (int i = 0; i < forms.length; ++i) {
+                    poFile.append("msgstr[").append(i).append("] \"").append(forms[i]).append("\"\n");
+                }
+            } else {
+                poFile.append("msgstr \"").append(entry.getValue()).append("\"\n");
+            }
+        }
+        return poFile.toString();
+    }
+
+    @NotNull
+    private URLClassLoader compile(@NotNull Path outputDir) throws Exception {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(outputDir)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList())) {
+                sources.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        assertTrue(sources.size() > 1);
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), sources.toArray(new String[0]));
+        assertNotNull("Generated code can't be compiled", classesDir);
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, MultiLocaleGeneratorMojoTest.class.getClassLoader());
+    }
+}
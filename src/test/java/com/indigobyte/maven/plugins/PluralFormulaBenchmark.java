@@ -0,0 +1,119 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Compares evaluation of plural formulas by {@link PluralFormula#evaluate(long)} with the code generated for them:
+ * {@code pluralEval()}, which evaluates the compiled formula, and {@code getPluralForm()}, which takes forms of small
+ * numbers from the precomputed table.
+ * <p>
+ * Requires a JDK. Run with {@code java -cp target/classes:target/test-classes:<dependencies> com.indigobyte.maven.plugins.PluralFormulaBenchmark}
+ */
+public class PluralFormulaBenchmark {
+    private static final String[][] FORMULAS = {
+            {"en", "2", "n != 1"},
+            {"fr", "2", "n > 1"},
+            {"cs", "3", "(n==1) ? 0 : (n>=2 && n<=4) ? 1 : 2"},
+            {"ru", "3", "n%10==1 && n%100!=11 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2"},
+            {"ar", "6", "n==0 ? 0 : n==1 ? 1 : n==2 ? 2 : n%100>=3 && n%100<=10 ? 3 : n%100>=11 ? 4 : 5"},
+    };
+    private static final int[] RANGES = {1_000, 1_000_000};
+    private static final long OPERATIONS = 20_000_000;
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 5;
+    private static final String PACKAGE_NAME = "com.example.i18n";
+
+    public static void main(String[] args) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run the benchmark with a JDK");
+        }
+        Path workDir = Files.createTempDirectory("plural-benchmark");
+        System.out.printf("%8s %10s %20s %20s %20s%n", "language", "n below", "interpreter, ns", "pluralEval, ns", "getPluralForm, ns");
+        for (String[] formula : FORMULAS) {
+            String language = formula[0];
+            PluralFormula pluralFormula = PluralFormula.parse(formula[2], Integer.parseInt(formula[1]));
+            String className = "messages_" + language;
+            String code = new JavaGenerator().getText(PACKAGE_NAME, className, pluralFormula, "benchmark");
+            Path classesDir = SourceCompiler.compile(
+                    compiler,
+                    workDir.resolve(language),
+                    code,
+                    getEvaluatorCode("PluralEval_" + language, className + ".pluralEval(n)"),
+                    getEvaluatorCode("PluralForm_" + language, className + ".getPluralForm(n)")
+            );
+            if (classesDir == null) {
+                throw new IllegalStateException("Generated code can't be compiled for " + language);
+            }
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, PluralFormulaBenchmark.class.getClassLoader())) {
+                LongUnaryOperator pluralEval = createEvaluator(classLoader, "PluralEval_" + language);
+                LongUnaryOperator pluralForm = createEvaluator(classLoader, "PluralForm_" + language);
+                for (int range : RANGES) {
+                    System.out.printf("%8s %10d %20.2f %20.2f %20.2f%n",
+                            language,
+                            range,
+                            measure(pluralFormula::evaluate, range),
+                            measure(pluralEval, range),
+                            measure(pluralForm, range)
+                    );
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static String getEvaluatorCode(@NotNull String className, @NotNull String expression) {
+        return "package " + PACKAGE_NAME + ";\n" +
+                "\n" +
+                "public class " + className + " implements java.util.function.LongUnaryOperator {\n" +
+                "    public long applyAsLong(long n) {\n" +
+                "        return " + expression + ";\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    @NotNull
+    private static LongUnaryOperator createEvaluator(@NotNull ClassLoader classLoader, @NotNull String className) throws Exception {
+        return (LongUnaryOperator) Class.forName(PACKAGE_NAME + "." + className, true, classLoader).getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * @return average time of a single evaluation in nanoseconds, for numbers from {@code 0} to {@code range - 1}
+     */
+    private static double measure(@NotNull LongUnaryOperator evaluator, int range) {
+        long checksum = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            checksum += run(evaluator, range);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            checksum += run(evaluator, range);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum == Long.MIN_VALUE) {
+            // Never happens, but keeps the results in use
+            System.out.println(checksum);
+        }
+        return (double) elapsed / ITERATIONS / OPERATIONS;
+    }
+
+    private static long run(@NotNull LongUnaryOperator evaluator, int range) {
+        long sum = 0;
+        long n = 0;
+        for (long i = 0; i < OPERATIONS; ++i) {
+            sum += evaluator.applyAsLong(n);
+            if (++n == range) {
+                n = 0;
+            }
+        }
+        return sum;
+    }
+}
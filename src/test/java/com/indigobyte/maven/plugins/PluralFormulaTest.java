@@ -0,0 +1,233 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.LongUnaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks parsing, evaluation and validation of plural formulas, and the Java code generated for them, against formulas
+ * written directly in Java.
+ */
+public class PluralFormulaTest {
+    private static final String PACKAGE_NAME = "com.example.plural";
+    private static final int MAX_N = 1000;
+    private static final long[] LARGE_NUMBERS = {1_000_000L, 1_000_000_007L, Integer.MAX_VALUE + 1L, Long.MAX_VALUE};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testStandardFormulas() throws Exception {
+        Map<PluralFormula, LongUnaryOperator> formulas = new LinkedHashMap<>();
+        // ar
+        formulas.put(PluralFormula.parse("n==0 ? 0 : n==1 ? 1 : n==2 ? 2 : n%100>=3 && n%100<=10 ? 3 : n%100>=11 ? 4 : 5", 6),
+                n -> n == 0 ? 0 : n == 1 ? 1 : n == 2 ? 2 : n % 100 >= 3 && n % 100 <= 10 ? 3 : n % 100 >= 11 ? 4 : 5);
+        // ru
+        formulas.put(PluralFormula.parse("(n%10==1 && n%100!=11 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2)", 3),
+                n -> n % 10 == 1 && n % 100 != 11 ? 0 : n % 10 >= 2 && n % 10 <= 4 && (n % 100 < 10 || n % 100 >= 20) ? 1 : 2);
+        // pl
+        formulas.put(PluralFormula.parse("(n==1 ? 0 : n%10>=2 && n%10<=4 && (n%100<10 || n%100>=20) ? 1 : 2)", 3),
+                n -> n == 1 ? 0 : n % 10 >= 2 && n % 10 <= 4 && (n % 100 < 10 || n % 100 >= 20) ? 1 : 2);
+        // cs
+        formulas.put(PluralFormula.parse("(n==1) ? 0 : (n>=2 && n<=4) ? 1 : 2", 3),
+                n -> n == 1 ? 0 : n >= 2 && n <= 4 ? 1 : 2);
+        // ga
+        formulas.put(PluralFormula.parse("n==1 ? 0 : n==2 ? 1 : (n>2 && n<7) ? 2 :(n>6 && n<11) ? 3 : 4", 5),
+                n -> n == 1 ? 0 : n == 2 ? 1 : n > 2 && n < 7 ? 2 : n > 6 && n < 11 ? 3 : 4);
+        // sl
+        formulas.put(PluralFormula.parse("(n%100==1 ? 0 : n%100==2 ? 1 : n%100==3 || n%100==4 ? 2 : 3)", 4),
+                n -> n % 100 == 1 ? 0 : n % 100 == 2 ? 1 : n % 100 == 3 || n % 100 == 4 ? 2 : 3);
+        checkFormulas(formulas);
+    }
+
+    @Test
+    public void testOperatorPrecedence() throws Exception {
+        Map<PluralFormula, LongUnaryOperator> formulas = new LinkedHashMap<>();
+        formulas.put(PluralFormula.parseExpression("2 + 3 * 4", 1), n -> 14);
+        formulas.put(PluralFormula.parseExpression("n + 2 * 3", 1), n -> n + 6);
+        formulas.put(PluralFormula.parseExpression("(n + 2) * 3", 1), n -> (n + 2) * 3);
+        formulas.put(PluralFormula.parseExpression("n - 2 - 3", 1), n -> n - 5);
+        formulas.put(PluralFormula.parseExpression("1 - 1 - 1", 1), n -> -1);
+        formulas.put(PluralFormula.parseExpression("n / 2 / 3", 1), n -> n / 2 / 3);
+        formulas.put(PluralFormula.parseExpression("n % 10 * 3", 1), n -> n % 10 * 3);
+        formulas.put(PluralFormula.parseExpression("n * 3 % 10", 1), n -> n * 3 % 10);
+        formulas.put(PluralFormula.parseExpression("100 / (n + 1) % 7", 1), n -> 100 / (n + 1) % 7);
+        formulas.put(PluralFormula.parseExpression("n + 1 < n * 2", 1), n -> n + 1 < n * 2 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n < 5 == 1", 1), n -> (n < 5 ? 1 : 0) == 1 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n > 2 == n > 3", 1), n -> (n > 2) == (n > 3) ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n <= 3 != n >= 3", 1), n -> (n <= 3) != (n >= 3) ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n == 1 || n == 2 && n == 3", 1), n -> n == 1 || n == 2 && n == 3 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n != 0 && n % 2 == 0 || n == 1", 1), n -> n != 0 && n % 2 == 0 || n == 1 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("!n + 1", 1), n -> (n == 0 ? 1 : 0) + 1);
+        formulas.put(PluralFormula.parseExpression("!n == 0", 1), n -> n != 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("!!n", 1), n -> n != 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("!(n % 2)", 1), n -> n % 2 == 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n % 100 >= 11 && n % 100 <= 14", 1), n -> n % 100 >= 11 && n % 100 <= 14 ? 1 : 0);
+        // Short-circuit evaluation, the right operand would divide by zero
+        formulas.put(PluralFormula.parseExpression("n == 0 || 10 / n > 1", 1), n -> n == 0 || 10 / n > 1 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n != 0 && 10 % n == 0", 1), n -> n != 0 && 10 % n == 0 ? 1 : 0);
+        // Repeated subexpressions, which are computed once into locals
+        formulas.put(PluralFormula.parseExpression("n % 10 == 1 && n % 100 != 11 ? n % 10 : n % 100 + n % 10", 1),
+                n -> n % 10 == 1 && n % 100 != 11 ? n % 10 : n % 100 + n % 10);
+        formulas.put(PluralFormula.parseExpression("n ? 100 / n + 100 / n : 0", 1), n -> n != 0 ? 100 / n + 100 / n : 0);
+        checkFormulas(formulas);
+    }
+
+    @Test
+    public void testTernaryAssociativity() throws Exception {
+        Map<PluralFormula, LongUnaryOperator> formulas = new LinkedHashMap<>();
+        // Right-associative: n ? 1 : (0 ? 2 : 3)
+        formulas.put(PluralFormula.parseExpression("n ? 1 : 0 ? 2 : 3", 1), n -> n != 0 ? 1 : 3);
+        formulas.put(PluralFormula.parseExpression("(n ? 1 : 0) ? 2 : 3", 1), n -> n != 0 ? 2 : 3);
+        formulas.put(PluralFormula.parseExpression("n == 0 ? 0 : n == 1 ? 1 : 2", 1), n -> n == 0 ? 0 : n == 1 ? 1 : 2);
+        formulas.put(PluralFormula.parseExpression("n > 1 ? n > 5 ? 2 : 1 : 0", 1), n -> n > 1 ? n > 5 ? 2 : 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n ? n - 1 ? 7 : 8 : 9", 1), n -> n != 0 ? n - 1 != 0 ? 7 : 8 : 9);
+        // The conditional operator has the lowest precedence
+        formulas.put(PluralFormula.parseExpression("n || 0 ? 5 : 6", 1), n -> n != 0 ? 5 : 6);
+        formulas.put(PluralFormula.parseExpression("1 + n ? 2 : 3", 1), n -> 1 + n != 0 ? 2 : 3);
+        formulas.put(PluralFormula.parseExpression("n == 1 ? 0 : n == 2 ? 1 : 2 + 1", 1), n -> n == 1 ? 0 : n == 2 ? 1 : 3);
+        formulas.put(PluralFormula.parseExpression("2 * 3 + 4 ? n : 0", 1), n -> n);
+        checkFormulas(formulas);
+    }
+
+    @Test
+    public void testUnsignedArithmetic() throws Exception {
+        // gettext evaluates formulas as unsigned long, so n - 1 for n = 0 is the largest value, not -1
+        PluralFormula shifted = PluralFormula.parse("n - 1 < 1 ? 0 : 1", 2);
+        assertEquals(1, shifted.evaluate(0));
+        assertEquals(0, shifted.evaluate(1));
+        assertEquals(1, shifted.evaluate(2));
+
+        Map<PluralFormula, LongUnaryOperator> formulas = new LinkedHashMap<>();
+        formulas.put(shifted, n -> Long.compareUnsigned(n - 1, 1) < 0 ? 0 : 1);
+        formulas.put(PluralFormula.parseExpression("n - 1 < 5", 1), n -> Long.compareUnsigned(n - 1, 5) < 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n - 1 >= n", 1), n -> Long.compareUnsigned(n - 1, n) >= 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("0 - 1 > n", 1), n -> Long.compareUnsigned(-1, n) > 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("n <= 0 - 2", 1), n -> Long.compareUnsigned(n, -2) <= 0 ? 1 : 0);
+        formulas.put(PluralFormula.parseExpression("(n - 1) / 2", 1), n -> Long.divideUnsigned(n - 1, 2));
+        formulas.put(PluralFormula.parseExpression("(n - 1) % 10", 1), n -> Long.remainderUnsigned(n - 1, 10));
+        formulas.put(PluralFormula.parseExpression("n % (0 - 3)", 1), n -> Long.remainderUnsigned(n, -3));
+        formulas.put(PluralFormula.parseExpression("(0 - 1) / 3", 1), n -> Long.divideUnsigned(-1, 3));
+        // Numbers which are negative as long are large unsigned ones
+        checkFormulas(formulas, -1, -2, -10, Long.MIN_VALUE);
+    }
+
+    @Test
+    public void testRejectsOutOfRangeForms() {
+        assertRejected("n", 2, "selects form 2 for n = 2");
+        // Values are unsigned, as in gettext
+        assertRejected("n == 0 ? 0 - 1 : n == 1 ? 0 : 1", 2, "selects form 18446744073709551615 for n = 0");
+        assertRejected("n > 50000 ? 2 : n != 1", 2, "selects form 2 for n = 50001");
+        assertRejected("0", 0, "nplurals must be positive");
+    }
+
+    @Test
+    public void testRejectsDivisionByZero() {
+        assertRejected("n / (n - 5) > 1 ? 1 : 0", 2, "divides by zero for n = 5");
+        assertRejected("n % (n - 3) ? 1 : 0", 2, "divides by zero for n = 3");
+        assertRejected("n == 1 ? 1 / 0 : 0", 2, "divides by zero for n = 1");
+    }
+
+    @Test
+    public void testRejectsUnreachableForms() {
+        assertRejected("n == 1 ? 0 : 1", 3, "never selects form 2");
+        assertRejected("n > 100000 ? 1 : 0", 2, "never selects form 1");
+        assertRejected("n == 1 ? 0 : 2", 3, "never selects form 1");
+    }
+
+    @Test
+    public void testRejectsMalformedFormulas() {
+        for (String formula : new String[]{"", "n ==", "(n", "n)", "n ? 1", "n ? 1 :", "n $ 1", "n 1", "-n", "m", "99999999999999999999"}) {
+            assertRejected(formula, 2, "Invalid plural formula");
+        }
+    }
+
+    private static void assertRejected(@NotNull String formula, int pluralCount, @NotNull String messageFragment) {
+        try {
+            PluralFormula.parse(formula, pluralCount);
+            fail("Formula \"" + formula + "\" with nplurals=" + pluralCount + " was accepted");
+        } catch (IllegalArgumentException e) {
+            assertTrue("Unexpected message: " + e.getMessage(), e.getMessage().contains(messageFragment));
+        }
+    }
+
+    /**
+     * Checks that {@link PluralFormula#evaluate(long)} and the compiled {@link PluralFormula#toJavaMethodBody(String)}
+     * return the same values as the formulas written in Java.
+     */
+    private void checkFormulas(@NotNull Map<PluralFormula, LongUnaryOperator> formulas, long... moreNumbers) throws Exception {
+        List<PluralFormula> keys = new ArrayList<>(formulas.keySet());
+        try (URLClassLoader classLoader = compileEvaluators(keys)) {
+            @SuppressWarnings("unchecked")
+            IntFunction<LongUnaryOperator> evaluators = (IntFunction<LongUnaryOperator>) Class.forName(PACKAGE_NAME + ".Evaluators", true, classLoader).getDeclaredConstructor().newInstance();
+            for (int i = 0; i < keys.size(); ++i) {
+                PluralFormula formula = keys.get(i);
+                LongUnaryOperator expected = formulas.get(formula);
+                LongUnaryOperator generated = evaluators.apply(i);
+                for (long n = 0; n <= MAX_N; ++n) {
+                    checkValue(formula, expected, generated, n);
+                }
+                for (long n : LARGE_NUMBERS) {
+                    checkValue(formula, expected, generated, n);
+                }
+                for (long n : moreNumbers) {
+                    checkValue(formula, expected, generated, n);
+                }
+            }
+        }
+    }
+
+    private static void checkValue(@NotNull PluralFormula formula, @NotNull LongUnaryOperator expected, @NotNull LongUnaryOperator generated, long n) {
+        String message = "\"" + formula + "\" for n = " + n;
+        assertEquals(message, expected.applyAsLong(n), formula.evaluate(n));
+        assertEquals(message + ", generated code:\n" + formula.toJavaMethodBody("    "), expected.applyAsLong(n), generated.applyAsLong(n));
+    }
+
+    /**
+     * Compiles a class whose instance returns the generated evaluator of the formula by its index.
+     */
+    @NotNull
+    private URLClassLoader compileEvaluators(@NotNull List<PluralFormula> formulas) throws Exception {
+        StringBuilder source = new StringBuilder("package " + PACKAGE_NAME + ";\n" +
+                "\n" +
+                "public class Evaluators implements java.util.function.IntFunction<java.util.function.LongUnaryOperator> {\n" +
+                "    public java.util.function.LongUnaryOperator apply(int index) {\n" +
+                "        switch (index) {\n"
+        );
+        for (int i = 0; i < formulas.size(); ++i) {
+            source.append("            case ").append(i).append(":\n")
+                    .append("                return Evaluators::formula_").append(i).append(";\n");
+        }
+        source.append("            default:\n" +
+                "                throw new IllegalArgumentException(\"Invalid index: \" + index);\n" +
+                "        }\n" +
+                "    }\n"
+        );
+        for (int i = 0; i < formulas.size(); ++i) {
+            source.append("\n")
+                    .append("    private static long formula_").append(i).append("(long n) {\n")
+                    .append(formulas.get(i).toJavaMethodBody("        "))
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), source.toString());
+        assertNotNull("Generated code can't be compiled:\n" + source, classesDir);
+        return new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, PluralFormulaTest.class.getClassLoader());
+    }
+}
@@ -0,0 +1,71 @@
+package com.indigobyte.maven.plugins;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles generated sources, so that tests and benchmarks can load the generated classes.
+ */
+final class SourceCompiler {
+    private static final Pattern CLASS_NAME = Pattern.compile("public (?:final )?class (\\w+)");
+
+    private SourceCompiler() {
+    }
+
+    /**
+     * Same as {@link #compile(JavaCompiler, Path, String...)} with the system Java compiler.
+     *
+     * @throws IllegalStateException if the system Java compiler is not available
+     */
+    @Nullable
+    static Path compile(@NotNull Path dir, @NotNull String... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler is not available, run with a JDK");
+        }
+        return compile(compiler, dir, sources);
+    }
+
+    /**
+     * Writes each source to a file named after its public class and compiles them together.
+     *
+     * @param dir where sources and classes are written
+     * @return directory with compiled classes or {@code null} if compilation failed
+     */
+    @Nullable
+    static Path compile(@NotNull JavaCompiler compiler, @NotNull Path dir, @NotNull String... sources) throws IOException {
+        Path sourceDir = dir.resolve("src");
+        Path classesDir = dir.resolve("classes");
+        Files.createDirectories(sourceDir);
+        Files.createDirectories(classesDir);
+        String[] compilerArgs = new String[sources.length + 2];
+        compilerArgs[0] = "-d";
+        compilerArgs[1] = classesDir.toString();
+        for (int i = 0; i < sources.length; ++i) {
+            Matcher matcher = CLASS_NAME.matcher(sources[i]);
+            if (!matcher.find()) {
+                throw new IllegalArgumentException("Source has no public class");
+            }
+            String className = matcher.group(1);
+            Path sourceFile = sourceDir.resolve(className + ".java");
+            try (Writer out = Files.newBufferedWriter(sourceFile, StandardCharsets.UTF_8)) {
+                out.write(sources[i]);
+            }
+            compilerArgs[i + 2] = sourceFile.toString();
+        }
+        if (compiler.run(null, null, null, compilerArgs) != 0) {
+            return null;
+        }
+        return classesDir;
+    }
+}
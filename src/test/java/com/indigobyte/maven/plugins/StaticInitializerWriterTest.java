@@ -0,0 +1,119 @@
+package com.indigobyte.maven.plugins;
+
+import org.fedorahosted.tennera.jgettext.Message;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that bundles whose tables need more than 64 KB of bytecode and more than 65535 constants compile, load and
+ * find all their messages, with all storages which fill their tables in static initializers. Bundles are just large
+ * enough to be split.
+ */
+public class StaticInitializerWriterTest {
+    private static final String PACKAGE_NAME = "com.example.i18n";
+    // Two distinct strings per message, each of them taking two constants
+    private static final int MESSAGE_COUNT = StaticInitializerWriter.MAX_CONSTANT_COUNT / 4;
+    // "Aa" and "BB" have equal hash codes, so all ids made of this number of them have equal hash codes as well, and
+    // their messages go to the same chunk of LAZY_CHUNKS, which needs more than 64 KB of bytecode
+    private static final int COLLIDING_PAIR_COUNT = 13;
+    // "ü😀x" takes 9 bytes in modified UTF-8
+    private static final int LONG_STRING_REPEAT_COUNT = StaticInitializerWriter.MAX_STRING_CONSTANT_LENGTH / 9 + 1;
+    private static final int PLURAL_FORM_COUNT = 300;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHashMap() throws Exception {
+        checkLargeBundle(BundleStorage.HASH_MAP);
+    }
+
+    @Test
+    public void testSortedArray() throws Exception {
+        checkLargeBundle(BundleStorage.SORTED_ARRAY);
+    }
+
+    @Test
+    public void testLazyChunks() throws Exception {
+        checkLargeBundle(BundleStorage.LAZY_CHUNKS);
+    }
+
+    private void checkLargeBundle(@NotNull BundleStorage storage) throws Exception {
+        JavaGenerator javaGenerator = new JavaGenerator(new GeneratorOptions().setOmitVersion(true).setStorage(storage));
+        Map<String, Object> messages = new LinkedHashMap<>();
+        if (storage == BundleStorage.LAZY_CHUNKS) {
+            for (int i = 0; i < 1 << COLLIDING_PAIR_COUNT; ++i) {
+                StringBuilder id = new StringBuilder();
+                for (int pair = 0; pair < COLLIDING_PAIR_COUNT; ++pair) {
+                    id.append((i & 1 << pair) != 0 ? "BB" : "Aa");
+                }
+                addMessage(javaGenerator, messages, "collision", id.toString(), "Translation " + i);
+            }
+        } else {
+            for (int i = 0; i < MESSAGE_COUNT; ++i) {
+                addMessage(javaGenerator, messages, "message", "Message " + i, "Translation " + i);
+            }
+        }
+        // Longer than a single string constant, in modified UTF-8
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < LONG_STRING_REPEAT_COUNT; ++i) {
+            longString.append("ü😀x");
+        }
+        addMessage(javaGenerator, messages, "long", longString.toString(), longString.reverse().toString());
+        Message plural = new Message();
+        plural.setMsgctxt("plural");
+        plural.setMsgid("%d form");
+        plural.setMsgidPlural("%d forms");
+        String[] forms = new String[PLURAL_FORM_COUNT];
+        for (int i = 0; i < forms.length; ++i) {
+            forms[i] = "Form " + i;
+            plural.addMsgstrPlural(forms[i], i);
+        }
+        javaGenerator.addInitLine(plural);
+        messages.put("plural\u0004%d form", forms);
+
+        String source = javaGenerator.getText(PACKAGE_NAME, "messages_de", PluralFormula.DEFAULT, "test");
+        if (storage == BundleStorage.LAZY_CHUNKS) {
+            assertTrue("Chunk fits into a single method", source.contains("clinit_part_1()"));
+        } else {
+            assertTrue("Tables fit into the constant pool of the class", source.contains("class Part_0 "));
+        }
+        Path classesDir = SourceCompiler.compile(temporaryFolder.newFolder().toPath(), source);
+        assertNotNull("Generated code can't be compiled", classesDir);
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classesDir.toUri().toURL()}, StaticInitializerWriterTest.class.getClassLoader())) {
+            Object bundle = Class.forName(PACKAGE_NAME + ".messages_de", true, classLoader).getDeclaredConstructor().newInstance();
+            Method lookup = bundle.getClass().getMethod("lookup", String.class);
+            for (Map.Entry<String, Object> entry : messages.entrySet()) {
+                Object value = lookup.invoke(bundle, entry.getKey());
+                if (entry.getValue() instanceof String[]) {
+                    assertArrayEquals((String[]) entry.getValue(), (String[]) value);
+                } else {
+                    assertEquals(entry.getValue(), value);
+                }
+            }
+        }
+    }
+
+    private static void addMessage(@NotNull JavaGenerator javaGenerator, @NotNull Map<String, Object> messages, @NotNull String ctx, @NotNull String id, @NotNull String translation) {
+        Message message = new Message();
+        message.setMsgctxt(ctx);
+        message.setMsgid(id);
+        message.setMsgstr(translation);
+        javaGenerator.addInitLine(message);
+        messages.put(ctx + "\u0004" + id, translation);
+    }
+}